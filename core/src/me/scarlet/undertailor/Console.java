@@ -25,23 +25,32 @@
 package me.scarlet.undertailor;
 
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.HPos;
 import javafx.scene.Scene;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.stage.Stage;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
+import me.scarlet.undertailor.lua.ScriptWatchdog.ScriptStats;
 import me.scarlet.undertailor.util.Blocker;
 import me.scarlet.undertailor.util.JFXUtil;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Function;
 
 public class Console {
     
@@ -92,6 +101,8 @@ public class Console {
                         console.appendText(buffer.toString().trim());
                         buffer.setLength(0);
                     }
+                    
+                    console.refreshScripts();
                 } catch(InterruptedException e) {}
             }
         }
@@ -101,15 +112,21 @@ public class Console {
         }
     }
 
+    public static final int TOP_SCRIPTS_SHOWN = 25;
+    
     private Stage stage;
     private TextArea output;
+    private Tab scriptsTab;
+    private TableView<ScriptStats> scripts;
     private ConsoleThread thread;
     
     public Console() {
         Blocker.block(() -> {
             this.stage = new Stage();
             this.output = new TextArea();
+            this.scripts = new TableView<>();
             AnchorPane pane = new AnchorPane();
+            TabPane tabs = new TabPane();
             GridPane header = new GridPane();
             CheckBox wrap = new CheckBox("Wrap Text");
             Label consoleTitle = new Label("Undertailor Console");
@@ -133,6 +150,21 @@ public class Console {
                 wrap.fire();
             }
             
+            // top scripts, by total cpu time spent
+            scripts.getColumns().add(newColumn("Script", 220, stats -> stats.getName()));
+            scripts.getColumns().add(newColumn("Calls", 70, stats -> stats.getCalls()));
+            scripts.getColumns().add(newColumn("Instructions", 100, stats -> stats.getInstructions()));
+            scripts.getColumns().add(newColumn("CPU (ms)", 80, stats -> String.format("%.2f", stats.getTime() / 1000000.0)));
+            scripts.getColumns().add(newColumn("Max (ms)", 80, stats -> String.format("%.2f", stats.getMaxTime() / 1000000.0)));
+            scripts.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+            
+            Tab outputTab = new Tab("Output", output);
+            this.scriptsTab = new Tab("Top Scripts", scripts);
+            outputTab.setClosable(false);
+            scriptsTab.setClosable(false);
+            tabs.getTabs().add(outputTab);
+            tabs.getTabs().add(scriptsTab);
+            
             GridPane.setColumnIndex(consoleTitle, 0);
             GridPane.setColumnIndex(wrap, 1);
             header.getColumnConstraints().add(new ColumnConstraints());
@@ -142,11 +174,11 @@ public class Console {
             header.getChildren().add(wrap);
             
             pane.getChildren().add(header);
-            pane.getChildren().add(output);
+            pane.getChildren().add(tabs);
             
             JFXUtil.setAnchorBounds(header, 15.0, null, 20.0, 20.0);
-            JFXUtil.setAnchorBounds(output, 20.0);
-            JFXUtil.setAnchorBounds(output, 50.0, null, null, null);
+            JFXUtil.setAnchorBounds(tabs, 20.0);
+            JFXUtil.setAnchorBounds(tabs, 50.0, null, null, null);
             JFXUtil.loadIcon(stage, "defaultIcon_small.png");
             JFXUtil.loadIcon(stage, "defaultIcon.png");
             
@@ -168,6 +200,22 @@ public class Console {
         output.appendText(text);
     }
     
+    void refreshScripts() {
+        if(scriptsTab.isSelected() && stage.isShowing()) {
+            List<ScriptStats> top = ScriptWatchdog.getTopScripts(TOP_SCRIPTS_SHOWN);
+            Platform.runLater(() -> {
+                scripts.getItems().setAll(top);
+            });
+        }
+    }
+    
+    private static TableColumn<ScriptStats, Object> newColumn(String title, double width, Function<ScriptStats, Object> value) {
+        TableColumn<ScriptStats, Object> column = new TableColumn<>(title);
+        column.setPrefWidth(width);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        return column;
+    }
+    
     public void show() {
         if(!stage.isShowing()) {
             Platform.runLater(() -> {
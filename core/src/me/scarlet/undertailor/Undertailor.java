@@ -49,15 +49,20 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import me.scarlet.undertailor.collision.CollisionHandler;
 import me.scarlet.undertailor.environment.Environment;
+import me.scarlet.undertailor.environment.Scheduler;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.ScriptReloader;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.impl.StyleImplementable;
 import me.scarlet.undertailor.lua.impl.UIComponentImplementable;
 import me.scarlet.undertailor.lua.impl.WorldObjectImplementable;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable;
 import me.scarlet.undertailor.lua.lib.BaseLib;
+import me.scarlet.undertailor.lua.lib.StoreLib;
 import me.scarlet.undertailor.manager.AnimationManager;
 import me.scarlet.undertailor.manager.AudioManager;
 import me.scarlet.undertailor.manager.EnvironmentManager;
@@ -68,6 +73,7 @@ import me.scarlet.undertailor.manager.StyleManager;
 import me.scarlet.undertailor.manager.TilemapManager;
 import me.scarlet.undertailor.texts.Font;
 import me.scarlet.undertailor.util.Blocker;
+import me.scarlet.undertailor.util.DirectoryWatcher;
 import me.scarlet.undertailor.util.InputRetriever;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.JFXUtil;
@@ -75,6 +81,7 @@ import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.util.MultiRenderer;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
 
 import java.io.File;
 import java.io.InputStream;
@@ -167,6 +174,7 @@ public class Undertailor extends ApplicationAdapter {
     private short strict;
     private boolean debug;
     private boolean paused;
+    private boolean hotReload;
     
     private LwjglApplicationConfiguration config;
     
@@ -186,6 +194,18 @@ public class Undertailor extends ApplicationAdapter {
     private InputRetriever inputRetriever;
     
     public Undertailor(LwjglApplicationConfiguration config, File assetDir) {
+        this(config, assetDir, false);
+    }
+    
+    /**
+     * @param config the application configuration
+     * @param assetDir the directory to load assets from, or null
+     *        for the default
+     * @param hotReload whether or not to watch the asset
+     *        directory and reload changed assets and scripts
+     */
+    public Undertailor(LwjglApplicationConfiguration config, File assetDir, boolean hotReload) {
+        this.hotReload = hotReload;
         if(assetDir != null && assetDir.isDirectory()) {
             Undertailor.ASSETS_DIRECTORY = assetDir;
         }
@@ -209,6 +229,7 @@ public class Undertailor extends ApplicationAdapter {
     @Override
     public void create() {
         Undertailor.instance = this;
+        ScriptWatchdog.setOwner(Thread.currentThread());
         Box2D.init();
         this.strict = 1;
         this.debug = true;
@@ -256,12 +277,24 @@ public class Undertailor extends ApplicationAdapter {
         environmentManager.getRoomLoader().loadScripts(new File(Undertailor.ASSETS_DIRECTORY, "scripts/rooms/"));
         environmentManager.getRoomLoader().loadObjects(new File(Undertailor.ASSETS_DIRECTORY, "rooms/"));
         
+        if(hotReload) {
+            ScriptReloader reloader = scriptManager.enableReloader();
+            fontManager.watch(new File(Undertailor.ASSETS_DIRECTORY, "fonts/"));
+            sheetManager.watch(new File(Undertailor.ASSETS_DIRECTORY, "sprites/"));
+            tilemapManager.watch(new File(Undertailor.ASSETS_DIRECTORY, "tilemaps/"));
+            animationManager.watch(new File(Undertailor.ASSETS_DIRECTORY, "animation/"));
+            environmentManager.getRoomLoader().watch(new File(Undertailor.ASSETS_DIRECTORY, "rooms/"));
+            reloader.watch(new File(Undertailor.ASSETS_DIRECTORY, "scripts/"));
+            reloader.watch(new File(Undertailor.ASSETS_DIRECTORY, "fonts/styles/"));
+        }
+        
         renderer.clear();
         
         File mainFile = new File(Undertailor.ASSETS_DIRECTORY, "main.lua");
         if(mainFile.exists()) {
             Globals globals = scriptManager.generateGlobals(true);
-            globals.loadfile(mainFile.getAbsolutePath()).invoke();
+            LuaValue chunk = globals.loadfile(mainFile.getAbsolutePath());
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(chunk, ScriptWatchdog.MAIN_CHUNK), chunk, LuaValue.NONE);
         } else {
             error("tailor", "main.lua file not found; no start code was executed");
         }
@@ -276,6 +309,11 @@ public class Undertailor extends ApplicationAdapter {
         Environment activeEnv = environmentManager.getActiveEnvironment();
         float delta = Gdx.graphics.getDeltaTime();
         
+        ScriptReloader reloader = scriptManager.getReloader();
+        if(reloader != null) {
+            reloader.process();
+        }
+        
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         
         if(activeEnv != null) {
@@ -297,6 +335,14 @@ public class Undertailor extends ApplicationAdapter {
         inputRetriever.update();
     }
     
+    @Override
+    public void dispose() {
+        CollisionHandler.disposeShared();
+        Scheduler.shutdownWorkers();
+        StoreLib.killWriter();
+        DirectoryWatcher.killShared();
+    }
+    
     @Override
     public void resize(int width, int height) {
         this.environmentManager.resize(width, height);
@@ -306,6 +352,14 @@ public class Undertailor extends ApplicationAdapter {
         return this.paused;
     }
     
+    /**
+     * Returns whether or not changed assets and scripts are
+     * reloaded while the engine is running.
+     */
+    public boolean isHotReloading() {
+        return this.hotReload;
+    }
+    
     public void debug(String tag, String message) {
         Gdx.app.debug("[DBUG] " + tag, message);
     }
@@ -42,6 +42,13 @@ public interface Collider {
     public boolean isOneSidedReaction();
     public void setOneSidedReaction(boolean flag);
     public Set<Collider> getContacts();
+    
+    /**
+     * Called right before each physics step, letting the {@link Collider}
+     * record its state prior to the step.
+     */
+    public default void prepareStep() {}
+    
     public default void updateCollision() {
         if(this.getBody() != null) {
             for(BoundingBox box : this.getBoundingBoxes()) {
@@ -49,4 +56,22 @@ public interface Collider {
             }
         }
     }
+    
+    /**
+     * Applies only the bounding boxes of this {@link Collider} that have
+     * changed since they were last applied.
+     * 
+     * <p>Called by the owning room once per frame, before its physics world
+     * is stepped, letting any number of changes to a bounding box within a
+     * frame cost a single fixture update.</p>
+     */
+    public default void flushCollision() {
+        if(this.getBody() != null) {
+            for(BoundingBox box : this.getBoundingBoxes()) {
+                if(box.isDirty()) {
+                    box.applyFixture(this.getBody());
+                }
+            }
+        }
+    }
 }
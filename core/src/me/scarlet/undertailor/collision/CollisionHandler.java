@@ -25,41 +25,49 @@
 package me.scarlet.undertailor.collision;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactFilter;
 import com.badlogic.gdx.physics.box2d.ContactImpulse;
 import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.manager.EnvironmentManager;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class CollisionHandler {
+public class CollisionHandler implements Disposable {
     
     public static final Map<Collider, Set<Collider>> RETURN_MAP;
     public static final float PHYSICS_STEP = 1F/60F;
+    public static final int DEFAULT_VELOCITY_ITERATIONS = 6;
+    public static final int DEFAULT_POSITION_ITERATIONS = 2;
+    public static final int DEFAULT_MAX_SUBSTEPS = 5;
+    
+    private static final ContactFilter CONTACT_FILTER;
+    private static final ContactListener CONTACT_LISTENER;
+    private static Box2DDebugRenderer debugRenderer;
     
     static {
         RETURN_MAP = new HashMap<>();
-    }
-    
-    private World world;
-    private float timeAccumulator;
-    private Box2DDebugRenderer renderer;
-    
-    public CollisionHandler() {
-        this.reset();
-        renderer = new Box2DDebugRenderer();
-    }
-    
-    public void reset() {
-        this.timeAccumulator = 0F;
-        this.world = new World(new Vector2(0F, 0F), true);
-        this.world.setContactListener(new ContactListener() {
+        CONTACT_FILTER = new ContactFilter() {
+            
+            @Override
+            public boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+                return CollisionHandler.shouldCollide(fixtureA, fixtureB);
+            }
+        };
+        
+        CONTACT_LISTENER = new ContactListener() {
             
             @Override
             public void preSolve(Contact contact, Manifold oldManifold) {}
@@ -71,7 +79,7 @@ public class CollisionHandler {
             public void endContact(Contact contact) {
                 Object uda = contact.getFixtureA().getBody().getUserData();
                 Object udb = contact.getFixtureB().getBody().getUserData();
-                if(uda instanceof Collider && udb instanceof Collider); {
+                if(uda instanceof Collider && udb instanceof Collider) {
                     ((Collider) uda).getContacts().remove((Collider) udb);
                     ((Collider) udb).getContacts().remove((Collider) uda);
                 }
@@ -81,28 +89,227 @@ public class CollisionHandler {
             public void beginContact(Contact contact) {
                 Object uda = contact.getFixtureA().getBody().getUserData();
                 Object udb = contact.getFixtureB().getBody().getUserData();
-                if(uda instanceof Collider && udb instanceof Collider); {
+                if(uda instanceof Collider && udb instanceof Collider) {
                     ((Collider) uda).getContacts().add((Collider) udb);
                     ((Collider) udb).getContacts().add((Collider) uda);
                 }
             }
-        });
+        };
+    }
+    
+    /**
+     * Returns the debug renderer shared by all {@link CollisionHandler}s,
+     * creating it on first use.
+     */
+    public static Box2DDebugRenderer getDebugRenderer() {
+        if(debugRenderer == null) {
+            debugRenderer = new Box2DDebugRenderer();
+        }
+        
+        return debugRenderer;
+    }
+    
+    /**
+     * Disposes of the resources shared by all {@link CollisionHandler}s; the
+     * debug renderer and any pooled worlds.
+     */
+    public static void disposeShared() {
+        if(debugRenderer != null) {
+            debugRenderer.dispose();
+            debugRenderer = null;
+        }
+        
+        PhysicsWorldPool.clear();
+    }
+    
+    private World world;
+    private float timeAccumulator;
+    private Array<Body> bodies;
+    
+    private float physicsStep;
+    private int velocityIterations;
+    private int positionIterations;
+    private int maxSubsteps;
+    
+    public CollisionHandler() {
+        this.bodies = new Array<>();
+        this.physicsStep = PHYSICS_STEP;
+        this.velocityIterations = DEFAULT_VELOCITY_ITERATIONS;
+        this.positionIterations = DEFAULT_POSITION_ITERATIONS;
+        this.maxSubsteps = DEFAULT_MAX_SUBSTEPS;
+        this.world = null;
+        this.reset();
+    }
+    
+    /**
+     * Clears the world of this {@link CollisionHandler}.
+     * 
+     * <p>The previous world, if any, is returned to the
+     * {@link PhysicsWorldPool} and a cleared one is obtained in its place.</p>
+     */
+    public void reset() {
+        if(this.world != null) {
+            PhysicsWorldPool.free(this.world);
+        }
+        
+        this.timeAccumulator = 0F;
+        this.world = PhysicsWorldPool.obtain();
+        this.world.setGravity(Vector2.Zero);
+        this.world.setContactFilter(CONTACT_FILTER);
+        this.world.setContactListener(CONTACT_LISTENER);
+    }
+    
+    /**
+     * Returns the world of this {@link CollisionHandler} to the
+     * {@link PhysicsWorldPool}. The handler should not be used afterwards.
+     */
+    @Override
+    public void dispose() {
+        if(this.world != null) {
+            PhysicsWorldPool.free(this.world);
+            this.world = null;
+        }
+    }
+    
+    /**
+     * Performs Box2D's default category/mask test between two fixtures.
+     * 
+     * <p>Fixtures created by a {@link BoundingBox} carry the latter as their
+     * user data, letting their bits be read without a trip through JNI.</p>
+     */
+    private static boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+        short categoryA, maskA, groupA, categoryB, maskB, groupB;
+        if(fixtureA.getUserData() instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) fixtureA.getUserData();
+            categoryA = box.getCategory();
+            maskA = box.getMask();
+            groupA = box.getGroupIndex();
+        } else {
+            Filter filter = fixtureA.getFilterData();
+            categoryA = filter.categoryBits;
+            maskA = filter.maskBits;
+            groupA = filter.groupIndex;
+        }
+        
+        if(fixtureB.getUserData() instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) fixtureB.getUserData();
+            categoryB = box.getCategory();
+            maskB = box.getMask();
+            groupB = box.getGroupIndex();
+        } else {
+            Filter filter = fixtureB.getFilterData();
+            categoryB = filter.categoryBits;
+            maskB = filter.maskBits;
+            groupB = filter.groupIndex;
+        }
+        
+        if(groupA == groupB && groupA != 0) {
+            return groupA > 0;
+        }
+        
+        return (maskA & categoryB) != 0 && (maskB & categoryA) != 0;
     }
     
     public World getWorld() {
         return this.world;
     }
     
+    /**
+     * Returns the length of a single physics step, in seconds.
+     */
+    public float getPhysicsStep() {
+        return this.physicsStep;
+    }
+    
+    /**
+     * Sets the length of a single physics step, in seconds.
+     * 
+     * <p>Longer steps trade simulation accuracy for CPU time. Time already
+     * accumulated is kept, and is simulated in steps of the new length on the
+     * next call to {@link #step(float)}.</p>
+     * 
+     * @param step the step length, must be above 0
+     */
+    public void setPhysicsStep(float step) {
+        if(step <= 0F) {
+            throw new IllegalArgumentException("physics step must be above 0");
+        }
+        
+        this.physicsStep = step;
+    }
+    
+    public int getVelocityIterations() {
+        return this.velocityIterations;
+    }
+    
+    public int getPositionIterations() {
+        return this.positionIterations;
+    }
+    
+    /**
+     * Sets the amount of iterations the Box2D constraint solver performs per
+     * step.
+     * 
+     * @param velocity the velocity iterations
+     * @param position the position iterations
+     */
+    public void setSolverIterations(int velocity, int position) {
+        this.velocityIterations = velocity < 1 ? 1 : velocity;
+        this.positionIterations = position < 1 ? 1 : position;
+    }
+    
+    public int getMaxSubsteps() {
+        return this.maxSubsteps;
+    }
+    
+    /**
+     * Sets the maximum amount of physics steps performed within a single
+     * frame. Time beyond what the substeps can cover is dropped, preventing a
+     * slow frame from snowballing into slower ones.
+     * 
+     * @param substeps the maximum substeps per frame
+     */
+    public void setMaxSubsteps(int substeps) {
+        this.maxSubsteps = substeps < 1 ? 1 : substeps;
+    }
+    
+    /**
+     * Returns how far the simulation currently is between its last step and
+     * its next, as a value from 0 to 1.
+     * 
+     * <p>Used to interpolate between the previous and current states of a
+     * body when rendering. Clamped, as the accumulated time may exceed a step
+     * until the next {@link #step(float)} after the step length was
+     * shortened.</p>
+     */
+    public float getAlpha() {
+        float alpha = this.timeAccumulator / this.physicsStep;
+        return alpha < 0F ? 0F : (alpha > 1F ? 1F : alpha);
+    }
+    
     public void step(float delta) {
         this.timeAccumulator += delta;
-        while(this.timeAccumulator > PHYSICS_STEP) {
-            this.world.step(PHYSICS_STEP, 6, 2);
-            this.timeAccumulator -= PHYSICS_STEP;
+        int substeps = 0;
+        while(this.timeAccumulator >= physicsStep && substeps < maxSubsteps) {
+            this.world.getBodies(bodies);
+            for(Body body : bodies) {
+                if(body.getUserData() instanceof Collider) {
+                    ((Collider) body.getUserData()).prepareStep();
+                }
+            }
+            
+            this.world.step(physicsStep, velocityIterations, positionIterations);
+            this.timeAccumulator -= physicsStep;
+            substeps++;
+        }
+        
+        if(this.timeAccumulator >= physicsStep) {
+            this.timeAccumulator %= physicsStep;
         }
         
         EnvironmentManager envMan = Undertailor.getEnvironmentManager();
         if(envMan.getActiveEnvironment() != null && envMan.isRenderingHitboxes()) {
-            this.renderer.render(world, Undertailor.getEnvironmentManager().getActiveEnvironment().getOverworldController().getCamera().combined);
+            getDebugRenderer().render(world, Undertailor.getEnvironmentManager().getActiveEnvironment().getOverworldController().getCamera().combined);
         }
     }
 }
@@ -0,0 +1,137 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.collision;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Registry of named collision layers.
+ * 
+ * <p>Each layer maps to one of the 16 category bits available to a Box2D
+ * fixture filter. Bits are handed out in order of first request; the
+ * {@link #LAYER_DEFAULT} layer always occupies the first bit, matching Box2D's
+ * default category.</p>
+ */
+public class CollisionLayer {
+    
+    public static final String LAYER_DEFAULT = "default";
+    public static final short CATEGORY_DEFAULT = 0x0001;
+    public static final short MASK_ALL = (short) 0xFFFF;
+    public static final int MAX_LAYERS = 16;
+    
+    private static Map<String, Short> layers;
+    
+    static {
+        layers = new HashMap<>();
+        layers.put(LAYER_DEFAULT, CATEGORY_DEFAULT);
+    }
+    
+    /**
+     * Returns the category bit assigned to the layer of the given name,
+     * assigning it a new bit if it has yet to be registered.
+     * 
+     * @param name the name of the layer
+     * 
+     * @throws IllegalStateException if all available category bits have been
+     *             assigned
+     */
+    public static short getCategory(String name) {
+        Short bits = layers.get(name);
+        if(bits == null) {
+            if(layers.size() >= MAX_LAYERS) {
+                throw new IllegalStateException("cannot register collision layer " + name + ": all " + MAX_LAYERS + " layers are in use");
+            }
+            
+            bits = (short) (1 << layers.size());
+            layers.put(name, bits);
+        }
+        
+        return bits;
+    }
+    
+    /**
+     * Returns the name of the layer assigned to the given category bit, or
+     * null if no layer holds it.
+     * 
+     * @param category the category bit
+     */
+    public static String getLayerName(short category) {
+        for(Entry<String, Short> entry : layers.entrySet()) {
+            if(entry.getValue() == category) {
+                return entry.getKey();
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Combines the category bits of the given layers into a single collision
+     * mask.
+     * 
+     * @param names the names of the layers to include in the mask
+     */
+    public static short getMask(String... names) {
+        short mask = 0;
+        for(String name : names) {
+            mask |= getCategory(name);
+        }
+        
+        return mask;
+    }
+    
+    /**
+     * Returns the names of all registered layers whose category bits are
+     * present within the given mask.
+     * 
+     * @param mask the mask to read
+     */
+    public static String[] getLayerNames(short mask) {
+        List<String> names = new ArrayList<>();
+        for(Entry<String, Short> entry : layers.entrySet()) {
+            if((entry.getValue() & mask) != 0) {
+                names.add(entry.getKey());
+            }
+        }
+        
+        return names.toArray(new String[names.size()]);
+    }
+    
+    /**
+     * Forgets every registered layer but {@link #LAYER_DEFAULT}, freeing their
+     * category bits.
+     * 
+     * <p>Only safe once no bounding box still uses the bits of the forgotten
+     * layers, such as after every environment has been destroyed.</p>
+     */
+    public static void reset() {
+        layers.clear();
+        layers.put(LAYER_DEFAULT, CATEGORY_DEFAULT);
+    }
+}
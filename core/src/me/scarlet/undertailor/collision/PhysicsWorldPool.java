@@ -0,0 +1,107 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.collision;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of Box2D {@link World}s, letting rooms reuse the native world of a
+ * previous room instead of allocating a new one on every transition.
+ * 
+ * <p>Worlds returned to the pool are emptied of all bodies and joints, and
+ * have their gravity and listeners reset by whoever obtains them next.</p>
+ */
+public class PhysicsWorldPool {
+    
+    public static final int MAX_POOLED = 2;
+    
+    private static Deque<World> pooled;
+    private static Array<Body> bodies;
+    private static Array<Joint> joints;
+    
+    static {
+        pooled = new ArrayDeque<>();
+        bodies = new Array<>();
+        joints = new Array<>();
+    }
+    
+    /**
+     * Returns an empty {@link World}, reusing a pooled one if available.
+     */
+    public static World obtain() {
+        World world = pooled.poll();
+        if(world == null) {
+            world = new World(new Vector2(0F, 0F), true);
+        }
+        
+        return world;
+    }
+    
+    /**
+     * Clears the given {@link World} and returns it to the pool, or disposes
+     * of it if the pool is full.
+     * 
+     * @param world the world to free
+     */
+    public static void free(World world) {
+        if(pooled.size() >= MAX_POOLED) {
+            world.dispose();
+            return;
+        }
+        
+        world.getJoints(joints);
+        for(Joint joint : joints) {
+            world.destroyJoint(joint);
+        }
+        
+        world.getBodies(bodies);
+        for(Body body : bodies) {
+            world.destroyBody(body);
+        }
+        
+        joints.clear();
+        bodies.clear();
+        world.clearForces();
+        pooled.push(world);
+    }
+    
+    /**
+     * Disposes of all pooled {@link World}s.
+     */
+    public static void clear() {
+        for(World world : pooled) {
+            world.dispose();
+        }
+        
+        pooled.clear();
+    }
+}
@@ -25,16 +25,37 @@
 package me.scarlet.undertailor.collision.bbshapes;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import me.scarlet.undertailor.collision.CollisionLayer;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 
-public abstract class AbstractBoundingBox implements BoundingBox {
+public abstract class AbstractBoundingBox implements BoundingBox, LuaObjectHolder {
 
     private float scale;
     private float rotation;
     private boolean sensor;
     private boolean canCollide;
     private Vector2 offset;
+    private short category;
+    private short mask;
+    private short group;
+    private boolean dirty;
+    
+    protected Body targetBody;
+    protected Fixture lastFixture;
+    private LuaObjectValue<?> luaValue;
     
     public AbstractBoundingBox() {
+        this.targetBody = null;
+        this.lastFixture = null;
+        this.dirty = true;
+        this.category = CollisionLayer.CATEGORY_DEFAULT;
+        this.mask = CollisionLayer.MASK_ALL;
+        this.group = 0;
         this.canCollide = true;
         this.sensor = false;
         this.rotation = 0F;
@@ -49,7 +70,10 @@ public abstract class AbstractBoundingBox implements BoundingBox {
     
     @Override
     public void setRotation(float rotation) {
-        this.rotation = rotation;
+        if(this.rotation != rotation) {
+            this.rotation = rotation;
+            this.markDirty();
+        }
     }
     
     @Override
@@ -59,7 +83,10 @@ public abstract class AbstractBoundingBox implements BoundingBox {
 
     @Override
     public void setCanCollide(boolean flag) {
-        this.canCollide = flag;
+        if(this.canCollide != flag) {
+            this.canCollide = flag;
+            this.markDirty();
+        }
     }
 
     @Override
@@ -69,7 +96,10 @@ public abstract class AbstractBoundingBox implements BoundingBox {
 
     @Override
     public void setSensor(boolean flag) {
-        this.sensor = flag;
+        if(this.sensor != flag) {
+            this.sensor = flag;
+            this.markDirty();
+        }
     }
     
     @Override
@@ -79,7 +109,10 @@ public abstract class AbstractBoundingBox implements BoundingBox {
     
     @Override
     public void setScale(float scale) {
-        this.scale = scale;
+        if(this.scale != scale) {
+            this.scale = scale;
+            this.markDirty();
+        }
     }
     
     @Override
@@ -89,6 +122,138 @@ public abstract class AbstractBoundingBox implements BoundingBox {
     
     @Override
     public void setOffset(float x, float y) {
-        this.offset.set(x, y);
+        if(this.offset.x != x || this.offset.y != y) {
+            this.offset.set(x, y);
+            this.markDirty();
+        }
+    }
+    
+    @Override
+    public boolean hasTarget() {
+        return this.targetBody != null;
+    }
+    
+    /**
+     * Forgets the current fixture and target body of this bounding box without
+     * touching Box2D, for use when the body is about to be destroyed along
+     * with its fixtures. The bounding box may be applied to a new body
+     * afterwards.
+     */
+    @Override
+    public void releaseFixture() {
+        this.targetBody = null;
+        this.lastFixture = null;
+        this.markDirty();
+    }
+    
+    @Override
+    public boolean isDirty() {
+        return this.dirty;
+    }
+    
+    /**
+     * Marks this bounding box as having changes not yet applied to its
+     * fixture.
+     */
+    protected void markDirty() {
+        this.dirty = true;
+    }
+    
+    /**
+     * Marks this bounding box as being in sync with its fixture.
+     */
+    protected void markClean() {
+        this.dirty = false;
+    }
+    
+    /**
+     * Returns whether or not the last fixture created by this bounding box
+     * still lives on the given body.
+     */
+    protected boolean hasLiveFixture(Body body) {
+        return this.lastFixture != null && body.getFixtureList().contains(this.lastFixture, true);
+    }
+    
+    /**
+     * Called after the shape of the active fixture has been modified in place.
+     * 
+     * <p>Box2D only resynchronizes the broadphase proxies of bodies it moves
+     * during a step, which excludes static and sleeping bodies, so the body is
+     * given a no-op transform to push the new shape bounds through. Bodies
+     * that can sleep are also woken so that their contacts are updated.</p>
+     */
+    protected void onFixtureUpdated(Body body) {
+        body.resetMassData();
+        body.setTransform(body.getPosition(), body.getAngle());
+        if(body.getType() != BodyType.StaticBody) {
+            body.setAwake(true);
+        }
+    }
+    
+    @Override
+    public short getCategory() {
+        return this.category;
+    }
+    
+    @Override
+    public void setCategory(short category) {
+        this.category = category;
+        this.updateFilter();
+    }
+    
+    @Override
+    public short getMask() {
+        return this.mask;
+    }
+    
+    @Override
+    public void setMask(short mask) {
+        this.mask = mask;
+        this.updateFilter();
+    }
+    
+    @Override
+    public short getGroupIndex() {
+        return this.group;
+    }
+    
+    @Override
+    public void setGroupIndex(short group) {
+        this.group = group;
+        this.updateFilter();
+    }
+    
+    /**
+     * Writes the category, mask and group bits of this bounding box into the
+     * given {@link Filter}.
+     * 
+     * @param filter the filter to write to
+     */
+    protected void applyFilter(Filter filter) {
+        filter.categoryBits = this.category;
+        filter.maskBits = this.mask;
+        filter.groupIndex = this.group;
+    }
+    
+    /**
+     * Pushes the current category, mask and group bits onto the active
+     * fixture, if any, without recreating it.
+     */
+    private void updateFilter() {
+        if(this.lastFixture != null) {
+            Filter filter = this.lastFixture.getFilterData();
+            this.applyFilter(filter);
+            this.lastFixture.setFilterData(filter);
+        }
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
     }
 }
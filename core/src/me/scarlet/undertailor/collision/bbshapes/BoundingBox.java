@@ -39,8 +39,16 @@ public interface BoundingBox {
     public void setSensor(boolean flag);
     public void applyFixture(Body body);
     public void destroyFixture(Body body);
+    public void releaseFixture();
     public float getScale();
     public void setScale(float scale);
     public boolean hasTarget();
+    public boolean isDirty();
+    public short getCategory();
+    public void setCategory(short category);
+    public short getMask();
+    public void setMask(short mask);
+    public short getGroupIndex();
+    public void setGroupIndex(short group);
     
 }
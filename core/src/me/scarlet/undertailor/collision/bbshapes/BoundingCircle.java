@@ -26,7 +26,7 @@ package me.scarlet.undertailor.collision.bbshapes;
 
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.CircleShape;
-import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
 
 /**
  * Radial bounding box.
@@ -34,14 +34,10 @@ import com.badlogic.gdx.physics.box2d.Fixture;
 public class BoundingCircle extends AbstractBoundingBox {
     
     private float radius;
-    private Body targetBody;
     private boolean fixedRotation;
     
-    private Fixture lastFixture;
-    
     public BoundingCircle() {
         this.fixedRotation = true;
-        this.targetBody = null;
         this.radius = 5F;
     }
     
@@ -50,7 +46,10 @@ public class BoundingCircle extends AbstractBoundingBox {
     }
     
     public void setFixedRotation(boolean flag) {
-        this.fixedRotation = flag;
+        if(this.fixedRotation != flag) {
+            this.fixedRotation = flag;
+            this.markDirty();
+        }
     }
     
     public float getRadius() {
@@ -58,30 +57,49 @@ public class BoundingCircle extends AbstractBoundingBox {
     }
     
     public void setRadius(float radius) {
-        this.radius = radius;
-    }
-    
-    @Override
-    public boolean hasTarget() {
-        return this.targetBody != null;
+        if(this.radius != radius) {
+            this.radius = radius;
+            this.markDirty();
+        }
     }
     
     @Override
     public void applyFixture(Body body) {
         if(this.targetBody == body || !this.hasTarget()) {
             this.targetBody = body;
+            if(this.canCollide() && this.hasLiveFixture(body)) { // reshape the existing fixture in place
+                body.setFixedRotation(fixedRotation);
+                CircleShape circle = (CircleShape) lastFixture.getShape();
+                circle.setPosition(this.getOffset());
+                circle.setRadius(radius * this.getScale());
+                lastFixture.setSensor(this.isSensor());
+                this.onFixtureUpdated(body);
+                this.markClean();
+                return;
+            }
+            
             if(lastFixture != null && body.getFixtureList().contains(lastFixture, true)) {
                 body.destroyFixture(lastFixture);
+                this.lastFixture = null;
             }
             
             if(this.canCollide()) {
                 body.setFixedRotation(fixedRotation);
                 CircleShape circle = new CircleShape();
+                FixtureDef fixDef = new FixtureDef();
                 circle.setPosition(this.getOffset());
                 circle.setRadius(radius * this.getScale());
-                body.createFixture(circle, 0.5F);
+                fixDef.isSensor = this.isSensor();
+                fixDef.shape = circle;
+                fixDef.density = 0.5F;
+                this.applyFilter(fixDef.filter);
+                
+                this.lastFixture = body.createFixture(fixDef);
+                this.lastFixture.setUserData(this);
                 circle.dispose();
             }
+            
+            this.markClean();
         }
     }
     
@@ -26,7 +26,6 @@ package me.scarlet.undertailor.collision.bbshapes;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 
@@ -35,55 +34,80 @@ import com.badlogic.gdx.physics.box2d.PolygonShape;
  */
 public class BoundingRectangle extends AbstractBoundingBox {
     
-    private Body targetBody;
+    private static final Vector2 TEMP_CENTER = new Vector2();
+    
     private Vector2 dimensions;
-    private Fixture lastFixture;
     
     public BoundingRectangle() {
         this.dimensions = new Vector2(1, 1);
-        this.lastFixture = null;
-        this.targetBody = null;
     }
     
+    /**
+     * Returns a copy of the dimensions of this bounding rectangle.
+     */
     public Vector2 getDimensions() {
-        return this.dimensions;
+        return new Vector2(this.dimensions);
     }
     
-    public void setDimensions(float x, float y) {
-        this.dimensions.set(x, y);
+    public float getWidth() {
+        return this.dimensions.x;
     }
     
-    @Override
-    public boolean hasTarget() {
-        return this.targetBody != null;
+    public float getHeight() {
+        return this.dimensions.y;
+    }
+    
+    public void setDimensions(float x, float y) {
+        if(this.dimensions.x != x || this.dimensions.y != y) {
+            this.dimensions.set(x, y);
+            this.markDirty();
+        }
     }
     
     @Override
     public void applyFixture(Body body) {
         if(this.targetBody == body || !this.hasTarget()) {
             this.targetBody = body;
+            if(this.canCollide() && this.hasLiveFixture(body)) { // reshape the existing fixture in place
+                this.setShape((PolygonShape) lastFixture.getShape());
+                lastFixture.setSensor(this.isSensor());
+                this.onFixtureUpdated(body);
+                this.markClean();
+                return;
+            }
+            
             if(lastFixture != null && body.getFixtureList().contains(lastFixture, true)) {
                 body.destroyFixture(lastFixture);
+                this.lastFixture = null;
             }
             
             if(this.canCollide()) {
-                Vector2 offset = this.getOffset();
                 PolygonShape polygon = new PolygonShape();
                 FixtureDef fixDef = new FixtureDef();
-                polygon.setAsBox((dimensions.x * this.getScale()) / 2, (dimensions.y * this.getScale()) / 2, new Vector2(offset.x * this.getScale(), offset.y * this.getScale()), this.getRotation());
+                this.setShape(polygon);
                 fixDef.isSensor = this.isSensor();
                 fixDef.shape = polygon;
                 fixDef.friction = 0.0F;
                 fixDef.density = 1F;
+                this.applyFilter(fixDef.filter);
                 
                 this.lastFixture = body.createFixture(fixDef);
+                this.lastFixture.setUserData(this);
                 polygon.dispose();
             }
+            
+            this.markClean();
         } else {
             throw new IllegalArgumentException("cannot reuse bounding object on another body");
         }
     }
     
+    private void setShape(PolygonShape polygon) {
+        Vector2 offset = this.getOffset();
+        TEMP_CENTER.set(offset.x * this.getScale(), offset.y * this.getScale());
+        polygon.setAsBox((dimensions.x * this.getScale()) / 2, (dimensions.y * this.getScale()) / 2, TEMP_CENTER, this.getRotation());
+    }
+    
     public void destroyFixture(Body body) {
         if(lastFixture != null && body.getFixtureList().contains(lastFixture, true)) {
             body.destroyFixture(lastFixture);
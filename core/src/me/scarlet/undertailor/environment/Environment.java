@@ -25,10 +25,12 @@
 package me.scarlet.undertailor.environment;
 
 import com.badlogic.gdx.utils.Disposable;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.manager.EnvironmentManager;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 
-public class Environment implements Disposable {
+public class Environment implements Disposable, LuaObjectHolder {
     
     private EnvironmentManager envMan;
     private String name;
@@ -36,6 +38,7 @@ public class Environment implements Disposable {
     private OverworldController ovw;
     private Scheduler scheduler;
     private UIController ui;
+    private LuaObjectValue<?> luaValue;
     
     public Environment(EnvironmentManager envMan, String name) {
         this.envMan = envMan;
@@ -87,4 +90,14 @@ public class Environment implements Disposable {
     public void dispose() {
         this.ovw.dispose();
     }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
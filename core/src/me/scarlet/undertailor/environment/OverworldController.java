@@ -29,18 +29,21 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.overworld.RoomPrefetcher;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
 import me.scarlet.undertailor.environment.overworld.map.RoomMap;
 import me.scarlet.undertailor.environment.scheduler.Task;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Renderable;
 
 import java.util.Iterator;
 import java.util.Set;
 
-public class OverworldController implements Renderable, Disposable {
+public class OverworldController implements Renderable, Disposable, LuaObjectHolder {
     
     public static final int RENDER_WIDTH = 640;
     public static final int RENDER_HEIGHT = 480;
@@ -53,6 +56,7 @@ public class OverworldController implements Renderable, Disposable {
     private boolean isProcessing, oldIsProcessing;
     private boolean cameraFixing;
     private WorldRoom currentRoom;
+    private RoomPrefetcher prefetcher;
     private boolean renderHitboxes;
     private OrthographicCamera camera;
     private Task entryTransition, exitTransition;
@@ -60,12 +64,14 @@ public class OverworldController implements Renderable, Disposable {
     //private WorldObjectLoader objLoader;
     //private RoomLoader roomLoader;
     private Environment env;
+    private LuaObjectValue<?> luaValue;
     
     public OverworldController(Environment env, Viewport port) {
         this.camera = new OrthographicCamera(RENDER_WIDTH, RENDER_HEIGHT);
         this.env = env;
         this.setViewport(port);
         this.charId = -1;
+        this.prefetcher = new RoomPrefetcher(this);
         
         this.zoom = 2.0F;
         this.isRendering = true;
@@ -105,6 +111,18 @@ public class OverworldController implements Renderable, Disposable {
         this.charId = id;
     }
     
+    public RoomPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+    
+    public float getPrefetchDistance() {
+        return prefetcher.getPrefetchDistance();
+    }
+    
+    public void setPrefetchDistance(float distance) {
+        prefetcher.setPrefetchDistance(distance);
+    }
+    
     public WorldRoom getCurrentRoom() {
         return currentRoom;
     }
@@ -165,6 +183,7 @@ public class OverworldController implements Renderable, Disposable {
         }
         
         room.onEnter(enterpoint);
+        prefetcher.onRoomEntered(room);
         if(currentRoom.getMap() != null) {
             float rmX = currentRoom.getMap().getReference().getSizeX() * 20;
             float rmY = currentRoom.getMap().getReference().getSizeY() * 20;
@@ -290,6 +309,7 @@ public class OverworldController implements Renderable, Disposable {
         if(currentRoom != null) {
             currentRoom.forceProcess();
             if(isProcessing) currentRoom.process(delta, input);
+            prefetcher.process();
         }
     }
     
@@ -311,4 +331,14 @@ public class OverworldController implements Renderable, Disposable {
             this.currentRoom.dispose();
         }
     }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
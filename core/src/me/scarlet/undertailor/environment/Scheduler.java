@@ -24,120 +24,658 @@
 
 package me.scarlet.undertailor.environment;
 
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.scheduler.AsyncTask;
+import me.scarlet.undertailor.environment.scheduler.CoroutineTask;
 import me.scarlet.undertailor.environment.scheduler.Task;
+import me.scarlet.undertailor.environment.scheduler.TimerWheel;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Scheduler {
+/**
+ * Processes {@link Task}s once per frame.
+ * 
+ * <p>Non-active tasks run in order of priority, highest first. Once the frame
+ * budget has been spent, remaining tasks are deferred to the next frame and
+ * receive the accumulated delta when they do run. Tasks deferred once, and
+ * tasks at or above {@link #PRIORITY_CRITICAL}, always run.</p>
+ * 
+ * <p>Active tasks run serially; only the oldest active task is processed
+ * until it finishes.</p>
+ * 
+ * <p>Tasks may be registered with a delay, in which case they wait in a heap
+ * ordered by wake-up time and cost nothing until they are due. The same goes
+ * for non-active {@link CoroutineTask}s waiting on time, frames or another
+ * task, which are parked until their wake condition is met.</p>
+ * 
+ * <p>Plain callbacks that only need to run after a delay, or at an interval,
+ * should instead use {@link #runLater(float, Runnable)} and
+ * {@link #runRepeating(float, Runnable)}, which are held in a
+ * {@link TimerWheel} and are never polled.</p>
+ * 
+ * <p>Heavy work that does not need game state can be handed off as an
+ * {@link AsyncTask}, which computes on a shared work-stealing pool and has its
+ * result committed on the main thread at the start of the next frame.</p>
+ * 
+ * <p>Tasks, timers and async tasks may be registered or cancelled from any
+ * thread. Ids are handed out immediately; calls made off the main thread are
+ * queued into a lock-free inbox and applied at the start of the next frame.
+ * Coroutine tasks resumed by this scheduler run on their own Java threads
+ * while the main thread waits on them, and count as the main thread.</p>
+ */
+public class Scheduler implements LuaObjectHolder {
     
-    public static long nextId;
     public static final String MANAGER_TAG = "scheduler";
     
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+    public static final int PRIORITY_CRITICAL = 100;
+    
+    public static final float DEFAULT_FRAME_BUDGET = 0.004F; // 4ms
+    
+    private static ForkJoinPool workers;
+    
     static {
-        nextId = 0;
+        workers = null;
+    }
+    
+    /**
+     * Returns the work-stealing pool async tasks are computed on, shared by
+     * all schedulers. One core is left for the render thread.
+     */
+    public static synchronized ForkJoinPool getWorkerPool() {
+        if(workers == null) {
+            workers = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        }
+        
+        return workers;
+    }
+    
+    /**
+     * Stops the shared worker pool. Async tasks still running are left to
+     * finish, but their results are never committed.
+     */
+    public static synchronized void shutdownWorkers() {
+        if(workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+    }
+    
+    private static final Comparator<ScheduledTask> PRIORITY_ORDER = (t1, t2) -> {
+        if(t1.priority != t2.priority) {
+            return Integer.compare(t2.priority, t1.priority);
+        }
+        
+        return Long.compare(t1.id, t2.id);
+    };
+    
+    private static final Comparator<ScheduledTask> FRAME_ORDER = (t1, t2) -> {
+        if(t1.wakeFrame != t2.wakeFrame) {
+            return Long.compare(t1.wakeFrame, t2.wakeFrame);
+        }
+        
+        return Long.compare(t1.id, t2.id);
+    };
+    
+    private static final Comparator<ScheduledTask> WAKE_ORDER = (t1, t2) -> {
+        if(t1.wakeTime != t2.wakeTime) {
+            return Double.compare(t1.wakeTime, t2.wakeTime);
+        }
+        
+        return Long.compare(t1.id, t2.id);
+    };
+    
+    /**
+     * Bookkeeping for a single registered task.
+     */
+    private static class ScheduledTask {
+        
+        private long id;
+        private Task task;
+        private int priority;
+        private boolean active;
+        private boolean deferred;
+        private boolean removed;
+        private double wakeTime;
+        private long wakeFrame;
+        private float pendingDelta;
+        private String taskName;
+        
+        ScheduledTask(long id, Task task, int priority, boolean active) {
+            this.id = id;
+            this.task = task;
+            this.priority = priority;
+            this.active = active;
+            this.deferred = false;
+            this.removed = false;
+            this.wakeTime = 0;
+            this.wakeFrame = 0;
+            this.pendingDelta = 0F;
+            this.taskName = null;
+        }
+        
+        String getTaskName() {
+            if(taskName == null) {
+                String name = task.getName();
+                String prefix = active ? "active task " : "task ";
+                taskName = prefix + (name == null ? "#" + id : name + " (#" + id + ")");
+            }
+            
+            return taskName;
+        }
     }
     
     private Environment env;
-    private Map<Long, Task> tasks;
-    private Map<Long, Task> activeTasks;
+    private AtomicLong nextId;
+    private volatile Thread owner;
+    private Queue<Runnable> inbox;
+    private Set<Long> posted;
+    private double time;
+    private long frame;
+    private long frameBudget;
+    private boolean processing;
+    private Map<Long, ScheduledTask> entries;
+    private List<ScheduledTask> tasks;
+    private List<ScheduledTask> added;
+    private Deque<ScheduledTask> activeTasks;
+    private PriorityQueue<ScheduledTask> delayed;
+    private PriorityQueue<ScheduledTask> frameDelayed;
+    private Map<Long, List<ScheduledTask>> waiters;
+    private TimerWheel timers;
+    private Map<Long, ForkJoinTask<?>> asyncTasks;
+    private Queue<Runnable> completions;
+    private LuaObjectValue<?> luaValue;
     
     public Scheduler(Environment env) {
         this.env = env;
-        this.tasks = new HashMap<>();
-        this.activeTasks = new LinkedHashMap<>();
+        this.nextId = new AtomicLong(0);
+        this.owner = Thread.currentThread();
+        this.inbox = new ConcurrentLinkedQueue<>();
+        this.posted = ConcurrentHashMap.newKeySet();
+        this.time = 0;
+        this.frame = 0;
+        this.processing = false;
+        this.entries = new HashMap<>();
+        this.tasks = new ArrayList<>();
+        this.added = new ArrayList<>();
+        this.activeTasks = new ArrayDeque<>();
+        this.delayed = new PriorityQueue<>(WAKE_ORDER);
+        this.frameDelayed = new PriorityQueue<>(FRAME_ORDER);
+        this.waiters = new HashMap<>();
+        this.timers = new TimerWheel();
+        this.asyncTasks = new HashMap<>();
+        this.completions = new ConcurrentLinkedQueue<>();
+        this.setFrameBudget(DEFAULT_FRAME_BUDGET);
     }
     
     public Environment getEnvironment() {
         return this.env;
     }
     
+    /**
+     * Returns the time, in seconds, this scheduler has processed for.
+     */
+    public double getTime() {
+        return this.time;
+    }
+    
+    /**
+     * Returns the number of frames this scheduler has processed.
+     */
+    public long getFrame() {
+        return this.frame;
+    }
+    
+    /**
+     * Returns the amount of time, in seconds, non-active tasks may spend
+     * processing each frame before being deferred.
+     */
+    public float getFrameBudget() {
+        return this.frameBudget / 1000000000F;
+    }
+    
+    /**
+     * Sets the amount of time, in seconds, non-active tasks may spend
+     * processing each frame before being deferred. A budget of 0 or below
+     * disables deferral.
+     * 
+     * @param budget the per-frame budget, in seconds
+     */
+    public void setFrameBudget(float budget) {
+        this.frameBudget = budget <= 0F ? 0 : (long) (budget * 1000000000L);
+    }
+    
     public void process(float delta, InputData data) {
-        Iterator<Entry<Long, Task>> iterator = tasks.entrySet().iterator();
+        this.time += delta;
+        this.frame++;
+        this.processing = true;
+        this.drainInbox();
+        
+        Runnable completion;
+        while((completion = completions.poll()) != null) {
+            completion.run();
+        }
+        
+        this.timers.advance(delta);
+        
+        while(!delayed.isEmpty() && delayed.peek().wakeTime <= time) {
+            ScheduledTask entry = delayed.poll();
+            if(!entry.removed) {
+                this.enqueue(entry);
+            }
+        }
+        
+        while(!frameDelayed.isEmpty() && frameDelayed.peek().wakeFrame <= frame) {
+            ScheduledTask entry = frameDelayed.poll();
+            if(!entry.removed) {
+                this.enqueue(entry);
+            }
+        }
+        
+        long start = System.nanoTime();
+        boolean overBudget = false;
+        Iterator<ScheduledTask> iterator = tasks.iterator();
         while(iterator.hasNext()) {
-            Entry<Long, Task> entry = iterator.next();
-            long id = entry.getKey();
-            Task task = entry.getValue();
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
+            ScheduledTask entry = iterator.next();
+            if(entry.removed) {
+                iterator.remove();
+                continue;
+            }
             
-            try {
-                if(task.process(delta, data)) {
-                    Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " finished and was removed");
-                    task.onFinish(false);
-                    iterator.remove();
-                }
-            } catch(Exception e) {
-                Undertailor.instance.warn(MANAGER_TAG, "task " + taskName + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                e.printStackTrace();
-                task.onFinish(true);
+            if(!overBudget && frameBudget > 0 && System.nanoTime() - start > frameBudget) {
+                overBudget = true;
+            }
+            
+            if(overBudget && !entry.deferred && entry.priority < PRIORITY_CRITICAL) {
+                entry.deferred = true;
+                entry.pendingDelta += delta;
+                continue;
+            }
+            
+            float taskDelta = entry.pendingDelta + delta;
+            entry.deferred = false;
+            entry.pendingDelta = 0F;
+            if(this.runTask(entry, taskDelta, data) || this.park(entry)) {
                 iterator.remove();
             }
         }
         
-        iterator = activeTasks.entrySet().iterator();
-        while(iterator.hasNext()) {
-            Entry<Long, Task> entry = iterator.next();
-            long id = entry.getKey();
-            Task task = entry.getValue();
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
-            
-            try {
-                if(task.process(delta, data)) {
-                    Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " finished and was removed");
-                    task.onFinish(false);
-                    iterator.remove();
-                } else {
+        while(!activeTasks.isEmpty()) {
+            ScheduledTask entry = activeTasks.peek();
+            if(!entry.removed) {
+                if(!this.runTask(entry, delta, data)) {
                     break;
                 }
-            } catch(Exception e) {
-                Undertailor.instance.warn(MANAGER_TAG, "active task " + taskName + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                e.printStackTrace();
-                task.onFinish(true);
-                iterator.remove();
+            }
+            
+            activeTasks.poll();
+        }
+        
+        this.processing = false;
+        for(ScheduledTask entry : added) {
+            if(!entry.removed) {
+                this.enqueue(entry);
             }
         }
+        
+        added.clear();
     }
     
     public long registerTask(Task task, boolean active) {
-        long id = nextId++;
-        String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
-        if(active) {
-            activeTasks.put(id, task);
-            Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " registered");
+        return this.registerTask(task, active, task.getPriority(), 0F);
+    }
+    
+    public long registerTask(Task task, boolean active, int priority) {
+        return this.registerTask(task, active, priority, 0F);
+    }
+    
+    /**
+     * Registers a task to be processed by this scheduler.
+     * 
+     * <p>Priority only affects non-active tasks; active tasks are always
+     * processed in the order they were registered.</p>
+     * 
+     * @param task the task to register
+     * @param active whether the task is active
+     * @param priority the priority of the task
+     * @param delay the time, in seconds, to wait before the task starts
+     *        processing
+     * 
+     * @return the id of the task
+     */
+    public long registerTask(Task task, boolean active, int priority, float delay) {
+        long id = nextId.getAndIncrement();
+        if(this.isOwnerThread()) {
+            this.doRegisterTask(id, task, active, priority, delay);
         } else {
-            tasks.put(id, task);
-            Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " registered");
+            this.post(id, () -> this.doRegisterTask(id, task, active, priority, delay));
         }
         
         return id;
     }
     
     public void cancelTask(long id) {
-        if(tasks.containsKey(id)) {
-            Task task = tasks.get(id);
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
-            
-            task.onFinish(true);
-            Undertailor.instance.debug(MANAGER_TAG, "task " + taskName + " was removed by scheduler call");
-            tasks.remove(id);
+        if(this.isOwnerThread()) {
+            this.drainInbox();
+            this.doCancelTask(id);
+        } else {
+            posted.remove(id);
+            inbox.add(() -> this.doCancelTask(id));
+        }
+    }
+    
+    private void doRegisterTask(long id, Task task, boolean active, int priority, float delay) {
+        ScheduledTask entry = new ScheduledTask(id, task, priority, active);
+        entries.put(entry.id, entry);
+        if(delay > 0F) {
+            entry.wakeTime = time + delay;
+            delayed.add(entry);
+        } else {
+            this.requeue(entry);
         }
         
-        if(activeTasks.containsKey(id)) {
-            Task task = activeTasks.get(id);
-            String taskName = (task.getName() == null ? "#" + id : task.getName() + " (#" + id + ")");
-            
-            task.onFinish(true);
-            Undertailor.instance.debug(MANAGER_TAG, "active task " + taskName + " was removed by scheduler call");
-            activeTasks.remove(id);
+        if(isDebugging()) {
+            Undertailor.instance.debug(MANAGER_TAG, entry.getTaskName() + " registered");
+        }
+    }
+    
+    private void doCancelTask(long id) {
+        ScheduledTask entry = entries.remove(id);
+        if(entry != null) {
+            entry.removed = true;
+            entry.task.onFinish(true);
+            this.wakeWaiters(id);
+            if(isDebugging()) {
+                Undertailor.instance.debug(MANAGER_TAG, entry.getTaskName() + " was removed by scheduler call");
+            }
         }
     }
     
+    /**
+     * Runs the given callback once after the given delay.
+     * 
+     * @param delay the delay, in seconds
+     * @param callback the callback to run
+     * 
+     * @return the id of the timer, usable with {@link #cancel(long)}
+     */
+    public long runLater(float delay, Runnable callback) {
+        long id = nextId.getAndIncrement();
+        if(this.isOwnerThread()) {
+            timers.schedule(id, delay, 0F, callback);
+        } else {
+            this.post(id, () -> timers.schedule(id, delay, 0F, callback));
+        }
+        
+        return id;
+    }
+    
+    public long runRepeating(float interval, Runnable callback) {
+        return this.runRepeating(interval, interval, callback);
+    }
+    
+    /**
+     * Runs the given callback repeatedly until cancelled.
+     * 
+     * @param delay the delay before the first run, in seconds
+     * @param interval the time between runs, in seconds
+     * @param callback the callback to run
+     * 
+     * @return the id of the timer, usable with {@link #cancel(long)}
+     */
+    public long runRepeating(float delay, float interval, Runnable callback) {
+        if(interval <= 0F) {
+            throw new IllegalArgumentException("interval must be above 0");
+        }
+        
+        long id = nextId.getAndIncrement();
+        if(this.isOwnerThread()) {
+            timers.schedule(id, delay, interval, callback);
+        } else {
+            this.post(id, () -> timers.schedule(id, delay, interval, callback));
+        }
+        
+        return id;
+    }
+    
+    /**
+     * Computes the given task on the shared worker pool, committing its result
+     * on the main thread once done.
+     * 
+     * @param task the task to run
+     * 
+     * @return the id of the task, usable with {@link #cancel(long)}
+     */
+    public <T> long runAsync(AsyncTask<T> task) {
+        long id = nextId.getAndIncrement();
+        if(this.isOwnerThread()) {
+            this.doRunAsync(id, task);
+        } else {
+            this.post(id, () -> this.doRunAsync(id, task));
+        }
+        
+        return id;
+    }
+    
+    /**
+     * Cancels the task, timer or async task with the given id.
+     */
+    public void cancel(long id) {
+        if(this.isOwnerThread()) {
+            this.drainInbox();
+            this.doCancel(id);
+        } else {
+            posted.remove(id);
+            inbox.add(() -> this.doCancel(id));
+        }
+    }
+    
+    /**
+     * Returns whether a task, timer or async task with the given id is still
+     * pending, including registrations still queued in the inbox.
+     */
     public boolean hasTask(long id) {
-        return tasks.containsKey(id) || activeTasks.containsKey(id);
+        if(this.isOwnerThread()) {
+            this.drainInbox();
+        } else if(posted.contains(id)) {
+            return true;
+        }
+        
+        return entries.containsKey(id) || timers.hasTimer(id) || asyncTasks.containsKey(id);
+    }
+    
+    private <T> void doRunAsync(long id, AsyncTask<T> task) {
+        asyncTasks.put(id, getWorkerPool().submit(() -> {
+            try {
+                T result = task.compute();
+                completions.add(() -> this.commitAsync(id, task, result, null));
+            } catch(Exception e) {
+                completions.add(() -> this.commitAsync(id, task, null, e));
+            }
+        }));
+    }
+    
+    private void doCancel(long id) {
+        ForkJoinTask<?> async = asyncTasks.remove(id);
+        if(async != null) {
+            async.cancel(false);
+        } else if(!timers.cancel(id)) {
+            this.doCancelTask(id);
+        }
+    }
+    
+    private boolean isOwnerThread() {
+        Thread current = Thread.currentThread();
+        if(current == owner) {
+            return true;
+        }
+        
+        Scheduler resumer = CoroutineTask.getResumingScheduler(current);
+        return resumer != null && resumer.owner == owner;
+    }
+    
+    private void post(long id, Runnable command) {
+        posted.add(id);
+        inbox.add(() -> {
+            try {
+                command.run();
+            } finally {
+                posted.remove(id);
+            }
+        });
+    }
+    
+    private void drainInbox() {
+        Runnable command;
+        while((command = inbox.poll()) != null) {
+            command.run();
+        }
+    }
+    
+    private <T> void commitAsync(long id, AsyncTask<T> task, T result, Exception error) {
+        if(asyncTasks.remove(id) == null) { // cancelled
+            return;
+        }
+        
+        try {
+            if(error == null) {
+                task.onComplete(result);
+            } else {
+                task.onError(error);
+            }
+        } catch(Exception e) {
+            Undertailor.instance.warn(MANAGER_TAG, "async task " + task.getName() + " (#" + id + ") failed to commit: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+    
+    private void requeue(ScheduledTask entry) {
+        if(processing) {
+            added.add(entry);
+        } else {
+            this.enqueue(entry);
+        }
+    }
+    
+    private void enqueue(ScheduledTask entry) {
+        if(entry.active) {
+            activeTasks.add(entry);
+        } else {
+            int index = Collections.binarySearch(tasks, entry, PRIORITY_ORDER);
+            tasks.add(index < 0 ? -(index + 1) : index, entry);
+        }
+    }
+    
+    // moves a waiting coroutine task out of the task list until it can resume
+    private boolean park(ScheduledTask entry) {
+        if(entry.active || !(entry.task instanceof CoroutineTask)) {
+            return false;
+        }
+        
+        CoroutineTask coroutine = (CoroutineTask) entry.task;
+        switch(coroutine.getWaitType()) {
+            case CoroutineTask.WAIT_TIME:
+                entry.wakeTime = coroutine.getWaitTime();
+                delayed.add(entry);
+                return true;
+            case CoroutineTask.WAIT_FRAMES:
+                entry.wakeFrame = coroutine.getWaitFrame();
+                frameDelayed.add(entry);
+                return true;
+            case CoroutineTask.WAIT_TASK:
+                if(!entries.containsKey(coroutine.getWaitTask())) { // timers aren't tracked; keep polling
+                    return false;
+                }
+                
+                List<ScheduledTask> list = waiters.get(coroutine.getWaitTask());
+                if(list == null) {
+                    list = new ArrayList<>();
+                    waiters.put(coroutine.getWaitTask(), list);
+                }
+                
+                list.add(entry);
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private void wakeWaiters(long id) {
+        List<ScheduledTask> list = waiters.remove(id);
+        if(list != null) {
+            for(ScheduledTask entry : list) {
+                if(!entry.removed) {
+                    this.requeue(entry);
+                }
+            }
+        }
+    }
+    
+    // returns true if the task is done and should be dropped from its queue
+    private boolean runTask(ScheduledTask entry, float delta, InputData data) {
+        try {
+            boolean finished = entry.task.process(delta, data);
+            if(entry.removed) { // cancelled during its own processing
+                return true;
+            }
+            
+            if(finished) {
+                entries.remove(entry.id);
+                entry.removed = true;
+                this.wakeWaiters(entry.id);
+                if(isDebugging()) {
+                    Undertailor.instance.debug(MANAGER_TAG, entry.getTaskName() + " finished and was removed");
+                }
+                
+                entry.task.onFinish(false);
+                return true;
+            }
+            
+            return false;
+        } catch(Exception e) {
+            entries.remove(entry.id);
+            entry.removed = true;
+            this.wakeWaiters(entry.id);
+            Undertailor.instance.warn(MANAGER_TAG, entry.getTaskName() + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            e.printStackTrace();
+            entry.task.onFinish(true);
+            return true;
+        }
+    }
+    
+    private static boolean isDebugging() {
+        return Gdx.app != null && Gdx.app.getLogLevel() >= Application.LOG_DEBUG;
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
     }
 }
@@ -29,6 +29,8 @@ import com.badlogic.gdx.utils.viewport.Viewport;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.ui.UIObject;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Renderable;
 
@@ -39,7 +41,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.function.Consumer;
 
-public class UIController implements Renderable {
+public class UIController implements Renderable, LuaObjectHolder {
     
     /** Next ID holder for incoming generations UI objects. */
     private static int nextUID;
@@ -56,6 +58,7 @@ public class UIController implements Renderable {
     private OrthographicCamera camera;
     private Environment env;
     private Viewport port;
+    private LuaObjectValue<?> luaValue;
     
     public UIController(Environment env, Viewport port) {
         this.env = env;
@@ -157,4 +160,14 @@ public class UIController implements Renderable {
         this.camera.position.set(this.camera.viewportWidth/2.0F, this.camera.viewportHeight/2.0F, 0.0F);
         this.camera.update();
     }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
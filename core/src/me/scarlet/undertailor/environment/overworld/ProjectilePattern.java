@@ -0,0 +1,357 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.overworld;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import me.scarlet.undertailor.gfx.SpriteSheet;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
+
+/**
+ * Describes how the projectiles of a {@link ProjectilePool} are
+ * spawned, how they move and what they hit with.
+ * 
+ * <p>A pattern is built once and then spawned any amount of
+ * times; spawning and moving its projectiles is done entirely
+ * from the values held here, without calling back into a script
+ * per projectile.</p>
+ * 
+ * <p>Each spawn fires <code>volleys</code> volleys spaced
+ * <code>interval</code> seconds apart. A volley is
+ * <code>count</code> projectiles fanned evenly across
+ * <code>spread</code> degrees around the spawn angle (a spread
+ * of 360 forms a ring), with the spawn angle turning by
+ * <code>rotate</code> degrees after each volley. Projectiles
+ * then travel along their heading at their speed, changing speed
+ * by <code>acceleration</code> per second within
+ * <code>[minSpeed, maxSpeed]</code>, turning by
+ * <code>turn</code> degrees per second and weaving sideways by
+ * the configured wave.</p>
+ */
+public class ProjectilePattern implements LuaObjectHolder {
+    
+    // spawn rules
+    private int count;
+    private float spread;
+    private int volleys;
+    private float interval;
+    private float rotate;
+    private float distance;
+    private boolean aimed;
+    
+    // motion
+    private float life;
+    private float speed;
+    private float acceleration;
+    private float minSpeed, maxSpeed;
+    private float turn;
+    private float waveAmplitude, waveFrequency;
+    
+    // shape
+    private float radius;
+    private float width, height;
+    private boolean piercing;
+    
+    // appearance
+    private SpriteSheetWrapper sheet;
+    private int spriteIndex;
+    private boolean oriented;
+    
+    long frameStamp;
+    TextureRegion frameRegion;
+    private LuaObjectValue<?> luaValue;
+    
+    public ProjectilePattern() {
+        this.count = 1;
+        this.spread = 0F;
+        this.volleys = 1;
+        this.interval = 0.1F;
+        this.rotate = 0F;
+        this.distance = 0F;
+        this.aimed = false;
+        
+        this.life = 10F;
+        this.speed = 60F;
+        this.acceleration = 0F;
+        this.minSpeed = 0F;
+        this.maxSpeed = Float.MAX_VALUE;
+        this.turn = 0F;
+        this.waveAmplitude = 0F;
+        this.waveFrequency = 0F;
+        
+        this.radius = 4F;
+        this.width = 0F;
+        this.height = 0F;
+        this.piercing = false;
+        
+        this.oriented = true;
+        this.frameStamp = -1;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public void setCount(int count) {
+        this.count = Math.max(1, count);
+    }
+    
+    public float getSpread() {
+        return spread;
+    }
+    
+    public void setSpread(float spread) {
+        this.spread = spread;
+    }
+    
+    public int getVolleys() {
+        return volleys;
+    }
+    
+    public void setVolleys(int volleys) {
+        this.volleys = Math.max(1, volleys);
+    }
+    
+    public float getInterval() {
+        return interval;
+    }
+    
+    public void setInterval(float interval) {
+        this.interval = Math.max(0F, interval);
+    }
+    
+    public float getRotate() {
+        return rotate;
+    }
+    
+    public void setRotate(float rotate) {
+        this.rotate = rotate;
+    }
+    
+    /**
+     * Returns the distance from the spawn position at which
+     * projectiles appear, along their heading.
+     */
+    public float getDistance() {
+        return distance;
+    }
+    
+    public void setDistance(float distance) {
+        this.distance = distance;
+    }
+    
+    /**
+     * Returns whether each volley is aimed at the nearest target
+     * of the pool, the spawn angle then being added on top.
+     */
+    public boolean isAimed() {
+        return aimed;
+    }
+    
+    public void setAimed(boolean flag) {
+        this.aimed = flag;
+    }
+    
+    public float getLife() {
+        return life;
+    }
+    
+    public void setLife(float life) {
+        this.life = life;
+    }
+    
+    public float getSpeed() {
+        return speed;
+    }
+    
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+    
+    public float getAcceleration() {
+        return acceleration;
+    }
+    
+    public void setAcceleration(float acceleration) {
+        this.acceleration = acceleration;
+    }
+    
+    public float getMinSpeed() {
+        return minSpeed;
+    }
+    
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+    
+    public void setSpeedLimits(float min, float max) {
+        this.minSpeed = min;
+        this.maxSpeed = max;
+    }
+    
+    public float getTurn() {
+        return turn;
+    }
+    
+    public void setTurn(float turn) {
+        this.turn = turn;
+    }
+    
+    public float getWaveAmplitude() {
+        return waveAmplitude;
+    }
+    
+    public float getWaveFrequency() {
+        return waveFrequency;
+    }
+    
+    /**
+     * Sets the sideways weave of projectiles, as the distance
+     * they stray from their path and how many times per second
+     * they do so.
+     */
+    public void setWave(float amplitude, float frequency) {
+        this.waveAmplitude = amplitude;
+        this.waveFrequency = frequency;
+    }
+    
+    /**
+     * Returns whether projectiles of this pattern hit with a
+     * rectangle rather than a circle.
+     */
+    public boolean isRectangular() {
+        return width > 0 && height > 0;
+    }
+    
+    public float getRadius() {
+        return radius;
+    }
+    
+    /**
+     * Makes projectiles hit with a circle of the provided radius.
+     */
+    public void setRadius(float radius) {
+        this.radius = radius;
+        this.width = 0F;
+        this.height = 0F;
+    }
+    
+    public float getWidth() {
+        return width;
+    }
+    
+    public float getHeight() {
+        return height;
+    }
+    
+    /**
+     * Makes projectiles hit with an axis-aligned rectangle of the
+     * provided dimensions, centered on their position.
+     */
+    public void setDimensions(float width, float height) {
+        this.width = width;
+        this.height = height;
+    }
+    
+    /**
+     * Returns the distance from a projectile's position to the
+     * farthest edge of its hit shape.
+     */
+    public float getExtent() {
+        return isRectangular() ? Math.max(width, height) / 2F : radius;
+    }
+    
+    /**
+     * Returns whether projectiles of this pattern carry on after
+     * hitting a target.
+     */
+    public boolean isPiercing() {
+        return piercing;
+    }
+    
+    public void setPiercing(boolean flag) {
+        this.piercing = flag;
+    }
+    
+    public SpriteSheetWrapper getSpriteSheet() {
+        return sheet;
+    }
+    
+    public int getSpriteIndex() {
+        return spriteIndex;
+    }
+    
+    public void setSprite(SpriteSheetWrapper sheet, int spriteIndex) {
+        if(this.sheet != null && this.sheet != sheet) {
+            this.sheet.removeReference(this);
+        }
+        
+        this.sheet = sheet;
+        this.spriteIndex = spriteIndex;
+        this.frameStamp = -1;
+    }
+    
+    /**
+     * Returns whether projectiles are drawn rotated to face their
+     * heading.
+     */
+    public boolean isOriented() {
+        return oriented;
+    }
+    
+    public void setOriented(boolean flag) {
+        this.oriented = flag;
+    }
+    
+    /**
+     * Returns the region to draw the projectiles of this pattern
+     * with, resolving it at most once per frame.
+     */
+    TextureRegion getRegion(long stamp) {
+        if(this.frameStamp != stamp) {
+            this.frameStamp = stamp;
+            this.frameRegion = null;
+            if(sheet != null) {
+                SpriteSheet spriteSheet = sheet.getReference(this);
+                if(spriteSheet != null) {
+                    this.frameRegion = spriteSheet.getSprite(spriteIndex).getTextureRegion();
+                }
+            }
+        }
+        
+        return frameRegion;
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
+}
@@ -0,0 +1,506 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.overworld;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
+import me.scarlet.undertailor.collision.bbshapes.BoundingCircle;
+import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
+import me.scarlet.undertailor.environment.overworld.map.RoomMap;
+
+import java.util.Arrays;
+
+/**
+ * Simulates the lightweight projectiles of a {@link WorldRoom}.
+ * 
+ * <p>Projectiles are not {@link WorldObject}s and have no physics
+ * body; each is a single entry within a set of parallel arrays,
+ * moved by the values of its {@link ProjectilePattern}. They only
+ * ever test against the objects designated as targets of the
+ * pool, through a uniform grid rebuilt each frame, so a room can
+ * keep thousands of them alive at once.</p>
+ * 
+ * <p>Targets are hit by their collidable bounding boxes, taken as
+ * unrotated circles and rectangles, and are told of each hit
+ * through {@link WorldObject#onProjectileHit(ProjectilePattern,
+ * float, float)}. Projectiles leaving the room's map by more than
+ * {@link #CULL_MARGIN} are dropped.</p>
+ */
+public class ProjectilePool {
+    
+    public static final float CELL_SIZE = 32F;
+    public static final float CULL_MARGIN = 64F;
+    public static final int DEFAULT_MAX_PROJECTILES = 8192;
+    
+    /**
+     * A spawned pattern still having volleys left to fire.
+     */
+    private static class Spawn {
+        
+        private ProjectilePattern pattern;
+        private float x, y;
+        private float angle;
+        private int remaining;
+        private float timer;
+    }
+    
+    private static long nextStamp = 0;
+    
+    private WorldRoom room;
+    private int maxProjectiles;
+    private int count;
+    private float[] x, y, angle, speed, age, rotation;
+    private ProjectilePattern[] patterns;
+    private TextureRegion[] regions;
+    
+    private Array<Spawn> spawns;
+    private Array<Spawn> freeSpawns;
+    private Array<WorldObject> targets;
+    
+    // broadphase; hits are gathered first and reported once the grid is done with
+    private int[] cellHeads;
+    private int[] cellNext;
+    private int hitCount;
+    private int[] hitIndex;
+    private WorldObject[] hitTarget;
+    
+    public ProjectilePool(WorldRoom room) {
+        this.room = room;
+        this.maxProjectiles = DEFAULT_MAX_PROJECTILES;
+        this.spawns = new Array<>(false, 8);
+        this.freeSpawns = new Array<>(false, 8);
+        this.targets = new Array<>(false, 2);
+        this.cellHeads = new int[0];
+        this.hitIndex = new int[16];
+        this.hitTarget = new WorldObject[16];
+        this.allocate(128);
+    }
+    
+    public int getMaxProjectiles() {
+        return maxProjectiles;
+    }
+    
+    public void setMaxProjectiles(int max) {
+        this.maxProjectiles = Math.max(0, max);
+    }
+    
+    /**
+     * Returns the amount of live projectiles.
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    public boolean isTarget(WorldObject object) {
+        return targets.contains(object, true);
+    }
+    
+    /**
+     * Sets whether the provided object can be hit by the
+     * projectiles of this pool.
+     */
+    public void setTarget(WorldObject object, boolean flag) {
+        if(flag) {
+            if(!targets.contains(object, true)) {
+                targets.add(object);
+            }
+        } else {
+            targets.removeValue(object, true);
+        }
+    }
+    
+    /**
+     * Spawns the provided pattern, its first volley being fired
+     * right away and any later ones during later frames.
+     * 
+     * @param pattern the pattern to spawn
+     * @param x the x position to spawn at
+     * @param y the y position to spawn at
+     * @param angle the angle, in degrees, to fire towards
+     */
+    public void spawn(ProjectilePattern pattern, float x, float y, float angle) {
+        Spawn spawn = freeSpawns.size > 0 ? freeSpawns.pop() : new Spawn();
+        spawn.pattern = pattern;
+        spawn.x = x;
+        spawn.y = y;
+        spawn.angle = angle;
+        spawn.remaining = pattern.getVolleys();
+        spawn.timer = 0F;
+        
+        fire(spawn);
+        if(spawn.remaining > 0) {
+            spawns.add(spawn);
+        } else {
+            freeSpawn(spawn);
+        }
+    }
+    
+    /**
+     * Removes all projectiles and pending volleys.
+     */
+    public void clear() {
+        Arrays.fill(patterns, 0, count, null);
+        this.count = 0;
+        for(Spawn spawn : spawns) {
+            freeSpawn(spawn);
+        }
+        
+        spawns.clear();
+    }
+    
+    /**
+     * Removes all projectiles and targets, letting go of
+     * everything the pool referenced.
+     */
+    public void reset() {
+        this.clear();
+        this.targets.clear();
+        Arrays.fill(hitTarget, null);
+        Arrays.fill(regions, null);
+    }
+    
+    public void process(float delta) {
+        for(int i = spawns.size - 1; i >= 0; i--) {
+            Spawn spawn = spawns.get(i);
+            spawn.timer += delta;
+            while(spawn.remaining > 0 && spawn.timer >= spawn.pattern.getInterval()) {
+                spawn.timer -= spawn.pattern.getInterval();
+                fire(spawn);
+            }
+            
+            if(spawn.remaining <= 0) {
+                spawns.removeIndex(i);
+                freeSpawn(spawn);
+            }
+        }
+        
+        this.integrate(delta);
+        this.collide();
+        this.compact();
+    }
+    
+    public void render() {
+        if(count == 0) {
+            return;
+        }
+        
+        long stamp = nextStamp++;
+        for(int i = 0; i < count; i++) {
+            regions[i] = patterns[i].getRegion(stamp);
+        }
+        
+        Undertailor.getRenderer().drawSprites(regions, x, y, rotation, count);
+    }
+    
+    private void fire(Spawn spawn) {
+        ProjectilePattern pattern = spawn.pattern;
+        float base = spawn.angle;
+        if(pattern.isAimed()) {
+            WorldObject target = getNearestTarget(spawn.x, spawn.y);
+            if(target != null) {
+                Vector2 position = target.getPosition();
+                base += MathUtils.atan2(position.y - spawn.y, position.x - spawn.x) * MathUtils.radiansToDegrees;
+            }
+        }
+        
+        int amount = pattern.getCount();
+        float spread = pattern.getSpread();
+        // a full ring would otherwise put the first and last projectile on top of each other
+        float step = amount <= 1 ? 0F : (Math.abs(spread) >= 360F ? spread / amount : spread / (amount - 1));
+        float first = amount <= 1 || Math.abs(spread) >= 360F ? base : base - spread / 2F;
+        float distance = pattern.getDistance();
+        for(int i = 0; i < amount && count < maxProjectiles; i++) {
+            float heading = first + step * i;
+            int index = obtain();
+            this.x[index] = spawn.x + MathUtils.cosDeg(heading) * distance;
+            this.y[index] = spawn.y + MathUtils.sinDeg(heading) * distance;
+            this.angle[index] = heading;
+            this.speed[index] = pattern.getSpeed();
+            this.age[index] = 0F;
+            this.rotation[index] = pattern.isOriented() ? heading : 0F;
+            this.patterns[index] = pattern;
+        }
+        
+        spawn.angle += pattern.getRotate();
+        spawn.remaining--;
+    }
+    
+    private void integrate(float delta) {
+        boolean culling = false;
+        float maxX = 0F, maxY = 0F;
+        if(room.getMap() != null) {
+            RoomMap map = room.getMap().getReference();
+            culling = true;
+            maxX = map.getSizeX() * 20 + CULL_MARGIN;
+            maxY = map.getSizeY() * 20 + CULL_MARGIN;
+        }
+        
+        for(int i = 0; i < count; i++) {
+            ProjectilePattern pattern = patterns[i];
+            float age = this.age[i] += delta;
+            if(age >= pattern.getLife()) {
+                this.age[i] = -1F;
+                continue;
+            }
+            
+            float speed = this.speed[i];
+            if(pattern.getAcceleration() != 0F) {
+                speed = MathUtils.clamp(speed + pattern.getAcceleration() * delta, pattern.getMinSpeed(), pattern.getMaxSpeed());
+                this.speed[i] = speed;
+            }
+            
+            float heading = this.angle[i];
+            if(pattern.getTurn() != 0F) {
+                heading = this.angle[i] += pattern.getTurn() * delta;
+            }
+            
+            float cos = MathUtils.cosDeg(heading);
+            float sin = MathUtils.sinDeg(heading);
+            float dx = cos * speed;
+            float dy = sin * speed;
+            if(pattern.getWaveAmplitude() != 0F) {
+                float omega = MathUtils.PI2 * pattern.getWaveFrequency();
+                float lateral = pattern.getWaveAmplitude() * omega * MathUtils.cos(omega * age);
+                dx -= sin * lateral;
+                dy += cos * lateral;
+            }
+            
+            float px = this.x[i] += dx * delta;
+            float py = this.y[i] += dy * delta;
+            if(pattern.isOriented()) {
+                this.rotation[i] = heading;
+            }
+            
+            if(culling && (px < -CULL_MARGIN || py < -CULL_MARGIN || px > maxX || py > maxY)) {
+                this.age[i] = -1F;
+            }
+        }
+    }
+    
+    private void collide() {
+        if(count == 0 || targets.size == 0) {
+            return;
+        }
+        
+        // drop targets that have since left the room
+        for(int i = targets.size - 1; i >= 0; i--) {
+            if(targets.get(i).getRoom() != room) {
+                targets.removeIndex(i);
+            }
+        }
+        
+        if(targets.size == 0) {
+            return;
+        }
+        
+        // bucket every live projectile by cell
+        int size = MathUtils.nextPowerOfTwo(Math.max(64, count * 2));
+        if(cellHeads.length != size) {
+            this.cellHeads = new int[size];
+        }
+        
+        Arrays.fill(cellHeads, -1);
+        int mask = size - 1;
+        float extent = 0F;
+        for(int i = 0; i < count; i++) {
+            if(age[i] < 0F) {
+                continue;
+            }
+            
+            int cell = hash(cell(x[i]), cell(y[i])) & mask;
+            cellNext[i] = cellHeads[cell];
+            cellHeads[cell] = i;
+            extent = Math.max(extent, patterns[i].getExtent());
+        }
+        
+        this.hitCount = 0;
+        for(WorldObject target : targets) {
+            if(!target.canCollide()) {
+                continue;
+            }
+            
+            Vector2 position = target.getPosition();
+            for(BoundingBox box : target.getBoundingBoxes()) {
+                if(!box.canCollide()) {
+                    continue;
+                }
+                
+                float cx, cy, halfW, halfH;
+                boolean circle = box instanceof BoundingCircle;
+                if(circle) {
+                    cx = position.x + box.getOffset().x;
+                    cy = position.y + box.getOffset().y;
+                    halfW = halfH = ((BoundingCircle) box).getRadius() * box.getScale();
+                } else if(box instanceof BoundingRectangle) {
+                    BoundingRectangle rectangle = (BoundingRectangle) box;
+                    cx = position.x + box.getOffset().x * box.getScale();
+                    cy = position.y + box.getOffset().y * box.getScale();
+                    halfW = rectangle.getWidth() * box.getScale() / 2F;
+                    halfH = rectangle.getHeight() * box.getScale() / 2F;
+                } else {
+                    continue;
+                }
+                
+                int minX = cell(cx - halfW - extent), maxX = cell(cx + halfW + extent);
+                int minY = cell(cy - halfH - extent), maxY = cell(cy + halfH + extent);
+                for(int gx = minX; gx <= maxX; gx++) {
+                    for(int gy = minY; gy <= maxY; gy++) {
+                        for(int i = cellHeads[hash(gx, gy) & mask]; i != -1; i = cellNext[i]) {
+                            // other cells may share the bucket; only take this cell's own
+                            if(age[i] < 0F || cell(x[i]) != gx || cell(y[i]) != gy) {
+                                continue;
+                            }
+                            
+                            if(overlaps(i, circle, cx, cy, halfW, halfH)) {
+                                addHit(i, target);
+                                if(!patterns[i].isPiercing()) {
+                                    age[i] = -1F;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        for(int i = 0; i < hitCount; i++) {
+            int index = hitIndex[i];
+            if(index >= count || patterns[index] == null) { // cleared by an earlier hit's handler
+                hitTarget[i] = null;
+                continue;
+            }
+            
+            hitTarget[i].onProjectileHit(patterns[index], x[index], y[index]);
+            hitTarget[i] = null;
+        }
+    }
+    
+    private boolean overlaps(int i, boolean circle, float cx, float cy, float halfW, float halfH) {
+        ProjectilePattern pattern = patterns[i];
+        float px = x[i], py = y[i];
+        if(pattern.isRectangular()) {
+            float pw = pattern.getWidth() / 2F, ph = pattern.getHeight() / 2F;
+            if(circle) {
+                return circleRect(cx, cy, halfW, px, py, pw, ph);
+            }
+            
+            return Math.abs(px - cx) <= pw + halfW && Math.abs(py - cy) <= ph + halfH;
+        }
+        
+        float radius = pattern.getRadius();
+        if(circle) {
+            float dx = px - cx, dy = py - cy, reach = radius + halfW;
+            return dx * dx + dy * dy <= reach * reach;
+        }
+        
+        return circleRect(px, py, radius, cx, cy, halfW, halfH);
+    }
+    
+    private static boolean circleRect(float cx, float cy, float radius, float rx, float ry, float halfW, float halfH) {
+        float dx = Math.max(Math.abs(cx - rx) - halfW, 0F);
+        float dy = Math.max(Math.abs(cy - ry) - halfH, 0F);
+        return dx * dx + dy * dy <= radius * radius;
+    }
+    
+    private void addHit(int index, WorldObject target) {
+        if(hitCount == hitIndex.length) {
+            this.hitIndex = Arrays.copyOf(hitIndex, hitCount * 2);
+            this.hitTarget = Arrays.copyOf(hitTarget, hitCount * 2);
+        }
+        
+        hitIndex[hitCount] = index;
+        hitTarget[hitCount++] = target;
+    }
+    
+    private void compact() {
+        for(int i = count - 1; i >= 0; i--) {
+            if(age[i] < 0F) {
+                int last = --count;
+                if(i != last) {
+                    x[i] = x[last];
+                    y[i] = y[last];
+                    angle[i] = angle[last];
+                    speed[i] = speed[last];
+                    age[i] = age[last];
+                    rotation[i] = rotation[last];
+                    patterns[i] = patterns[last];
+                }
+                
+                patterns[last] = null;
+            }
+        }
+    }
+    
+    private int obtain() {
+        if(count == x.length) {
+            this.allocate(x.length * 2);
+        }
+        
+        return count++;
+    }
+    
+    private void allocate(int capacity) {
+        this.x = this.x == null ? new float[capacity] : Arrays.copyOf(this.x, capacity);
+        this.y = this.y == null ? new float[capacity] : Arrays.copyOf(this.y, capacity);
+        this.angle = this.angle == null ? new float[capacity] : Arrays.copyOf(this.angle, capacity);
+        this.speed = this.speed == null ? new float[capacity] : Arrays.copyOf(this.speed, capacity);
+        this.age = this.age == null ? new float[capacity] : Arrays.copyOf(this.age, capacity);
+        this.rotation = this.rotation == null ? new float[capacity] : Arrays.copyOf(this.rotation, capacity);
+        this.patterns = this.patterns == null ? new ProjectilePattern[capacity] : Arrays.copyOf(this.patterns, capacity);
+        this.regions = new TextureRegion[capacity];
+        this.cellNext = new int[capacity];
+    }
+    
+    private void freeSpawn(Spawn spawn) {
+        spawn.pattern = null;
+        freeSpawns.add(spawn);
+    }
+    
+    private WorldObject getNearestTarget(float x, float y) {
+        WorldObject nearest = null;
+        float best = Float.MAX_VALUE;
+        for(WorldObject target : targets) {
+            float distance = target.getPosition().dst2(x, y);
+            if(distance < best) {
+                best = distance;
+                nearest = target;
+            }
+        }
+        
+        return nearest;
+    }
+    
+    private static int cell(float value) {
+        return MathUtils.floor(value / CELL_SIZE);
+    }
+    
+    private static int hash(int cellX, int cellY) {
+        return (cellX * 73856093) ^ (cellY * 19349663);
+    }
+}
@@ -0,0 +1,215 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.overworld;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.OverworldController;
+import me.scarlet.undertailor.environment.Scheduler;
+import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
+import me.scarlet.undertailor.environment.overworld.map.RoomLoader;
+import me.scarlet.undertailor.lua.PrototypeCache;
+import me.scarlet.undertailor.util.LuaUtil;
+import me.scarlet.undertailor.wrappers.RoomDataWrapper;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warms up the rooms the character is likely to enter next.
+ * 
+ * <p>Each room entered is recorded into an adjacency graph, built from the
+ * room targets of its entrypoints, alongside the map the room was using. When
+ * the character comes within the prefetch distance of an entrypoint, the
+ * target room's script is compiled and its map data is referenced, keeping
+ * the tilemaps and spritesheets it uses loaded.</p>
+ * 
+ * <p>Script compilation happens on the shared worker pool, leaving the
+ * compiled prototype cached for when the room is loaded. Map data holds
+ * textures, which can only be created on the render thread; only taking the
+ * map's reference is posted back to it. Warm-ups still in flight when
+ * another room is entered are discarded.</p>
+ */
+public class RoomPrefetcher {
+    
+    public static final float DEFAULT_PREFETCH_DISTANCE = 120F;
+    
+    /**
+     * Returns the name of the room targeted by the given entrypoint, or null
+     * if it has no target.
+     */
+    public static String getTargetRoom(Entrypoint entrypoint) {
+        String target = entrypoint.getRoomTarget();
+        if(target == null || target.isEmpty()) {
+            return null;
+        }
+        
+        return target.split(":")[0];
+    }
+    
+    private float distance;
+    private OverworldController controller;
+    private Map<String, Set<String>> adjacency;
+    private Map<String, RoomDataWrapper> roomMaps;
+    private Map<String, RoomDataWrapper> warmed;
+    private Set<String> requested;
+    private int generation;
+    
+    public RoomPrefetcher(OverworldController controller) {
+        this.controller = controller;
+        this.distance = DEFAULT_PREFETCH_DISTANCE;
+        this.adjacency = new HashMap<>();
+        this.roomMaps = new HashMap<>();
+        this.warmed = new HashMap<>();
+        this.requested = new HashSet<>();
+        this.generation = 0;
+    }
+    
+    public float getPrefetchDistance() {
+        return this.distance;
+    }
+    
+    /**
+     * Sets the distance from an entrypoint at which the character triggers
+     * the warm-up of its target room. A distance of 0 or below disables
+     * prefetching.
+     * 
+     * @param distance the prefetch distance
+     */
+    public void setPrefetchDistance(float distance) {
+        this.distance = distance;
+    }
+    
+    /**
+     * Returns the names of the rooms known to be reachable from the given
+     * room, or an empty set if the room has yet to be entered.
+     * 
+     * @param roomName the name of the room
+     */
+    public Set<String> getAdjacentRooms(String roomName) {
+        Set<String> adjacent = this.adjacency.get(roomName);
+        return adjacent == null ? new HashSet<>() : new HashSet<>(adjacent);
+    }
+    
+    /**
+     * Records the given room into the adjacency graph and releases the map
+     * data warmed while in the previous room.
+     * 
+     * @param room the room that was entered
+     */
+    public void onRoomEntered(WorldRoom room) {
+        for(RoomDataWrapper wrapper : warmed.values()) {
+            if(wrapper != null) {
+                wrapper.removeReference(this);
+            }
+        }
+        
+        this.warmed.clear();
+        this.requested.clear();
+        this.generation++;
+        
+        String roomName = room.getRoomName();
+        if(roomName == null) {
+            return;
+        }
+        
+        if(room.getMap() != null) {
+            this.roomMaps.put(roomName, room.getMap());
+        }
+        
+        Set<String> adjacent = new HashSet<>();
+        for(Entrypoint entrypoint : room.entrypoints.values()) {
+            String target = getTargetRoom(entrypoint);
+            if(target != null) {
+                adjacent.add(target);
+            }
+        }
+        
+        this.adjacency.put(roomName, adjacent);
+    }
+    
+    /**
+     * Checks the distance between the character and the entrypoints of the
+     * current room, starting the warm-up of target rooms that came within
+     * range.
+     */
+    public void process() {
+        WorldRoom room = controller.getCurrentRoom();
+        if(room == null || this.distance <= 0F) {
+            return;
+        }
+        
+        WorldObject character = controller.getCharacterID() > -1 ? room.getObject(controller.getCharacterID()) : null;
+        if(character != null) {
+            Vector2 position = character.getPosition();
+            float distance2 = this.distance * this.distance;
+            for(Entrypoint entrypoint : room.entrypoints.values()) {
+                String target = getTargetRoom(entrypoint);
+                if(target != null && !requested.contains(target) && entrypoint.getPosition().dst2(position) <= distance2) {
+                    requested.add(target);
+                    this.warm(target);
+                }
+            }
+        }
+    }
+    
+    private void warm(String roomName) {
+        RoomLoader loader = Undertailor.getEnvironmentManager().getRoomLoader();
+        File script = loader.hasRoomScript(roomName) ? loader.getRoomScript(roomName) : null;
+        RoomDataWrapper map = roomMaps.get(roomName);
+        if(map == null && loader.hasRoom(roomName)) { // never visited; assume the map shares the room's name
+            map = loader.getRoom(roomName);
+        }
+        
+        RoomDataWrapper wrapper = map;
+        int expected = this.generation;
+        Scheduler.getWorkerPool().execute(() -> {
+            try {
+                if(script != null) {
+                    PrototypeCache.getPrototype(script);
+                }
+            } catch(Exception e) {
+                Undertailor.instance.warn(OverworldController.MANAGER_TAG, "could not prefetch script for room " + roomName + ": " + LuaUtil.formatJavaException(e));
+            }
+            
+            Gdx.app.postRunnable(() -> {
+                if(this.generation != expected) { // left the room while warming
+                    return;
+                }
+                
+                if(wrapper != null) {
+                    wrapper.getReference(this);
+                }
+                
+                this.warmed.put(roomName, wrapper);
+                Undertailor.instance.debug(OverworldController.MANAGER_TAG, "prefetched room " + roomName);
+            });
+        });
+    }
+}
@@ -28,9 +28,13 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import me.scarlet.undertailor.collision.Collider;
+import me.scarlet.undertailor.collision.CollisionLayer;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
 import me.scarlet.undertailor.gfx.AnimationData;
+import me.scarlet.undertailor.gfx.ParticleEmitter;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Layerable;
 import me.scarlet.undertailor.util.Positionable;
@@ -42,7 +46,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 
-public abstract class WorldObject implements Collider, Layerable, Renderable, Positionable {
+public abstract class WorldObject implements Collider, Layerable, Renderable, Positionable, LuaObjectHolder {
     
     public static BodyDef generateDefaultObjectDef() {
         BodyDef def = new BodyDef();
@@ -68,8 +72,15 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     private BodyDef bodyDef;
     private boolean canCollide;
     private boolean oneSided;
+    private short category;
+    private short mask;
+    
+    private Vector2 renderPosition;
+    private Vector2 previousPosition;
+    private float previousAngle;
     
     private Map<String, AnimationData> animations;
+    private Map<String, ParticleEmitter> emitters;
     
     private Map<String, BoundingBox> boundingBoxes;
     private Map<Collider, String> ignoreCollideList;
@@ -77,6 +88,7 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     protected long id;
     protected Body body;
     protected WorldRoom room;
+    private LuaObjectValue<?> luaValue;
     
     public WorldObject() {
         this.z = 1;
@@ -86,9 +98,15 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         this.isVisible = true;
         this.oneSided = false;
         this.canCollide = true;
+        this.category = CollisionLayer.CATEGORY_DEFAULT;
+        this.mask = CollisionLayer.MASK_ALL;
         this.contacts = new HashSet<>();
         this.animations = new HashMap<>();
+        this.emitters = new HashMap<>();
         this.boundingBoxes = new HashMap<>();
+        this.renderPosition = new Vector2();
+        this.previousPosition = new Vector2();
+        this.previousAngle = 0F;
         
         this.bodyDef = WorldObject.generateDefaultObjectDef();
         this.ignoreCollideList = new WeakHashMap<>();
@@ -103,9 +121,35 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         this.room = room;
         this.body = body;
         this.body.setUserData(this);
+        this.prepareStep();
         this.updateCollision();
     }
     
+    /**
+     * Destroys the body of this {@link WorldObject}, storing its current state
+     * within the object's {@link BodyDef} so an equivalent body can be created
+     * by another world through {@link #claim(long, WorldRoom, Body)}.
+     */
+    public void releaseBody() {
+        if(this.body != null) {
+            this.bodyDef.type = body.getType();
+            this.bodyDef.position.set(body.getPosition());
+            this.bodyDef.angle = body.getAngle();
+            this.bodyDef.linearVelocity.set(body.getLinearVelocity());
+            this.bodyDef.angularVelocity = body.getAngularVelocity();
+            this.bodyDef.fixedRotation = body.isFixedRotation();
+            this.bodyDef.active = this.canCollide;
+            
+            for(BoundingBox box : boundingBoxes.values()) {
+                box.releaseFixture();
+            }
+            
+            this.body.getWorld().destroyBody(body);
+            this.contacts.clear();
+            this.body = null;
+        }
+    }
+    
     @Override
     public boolean isCollisionIgnored(Collider obj) {
         return this.ignoreCollideList.containsKey(obj);
@@ -122,6 +166,50 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         }
     }
     
+    /**
+     * Returns the collision category bits assigned to the bounding boxes of
+     * this {@link WorldObject}.
+     */
+    public short getCollisionCategory() {
+        return this.category;
+    }
+    
+    /**
+     * Sets the collision category bits of this {@link WorldObject}, applying
+     * them to all of its current and future bounding boxes.
+     * 
+     * @param category the category bits, usually retrieved from
+     *            {@link CollisionLayer#getCategory(String)}
+     */
+    public void setCollisionCategory(short category) {
+        this.category = category;
+        for(BoundingBox box : boundingBoxes.values()) {
+            box.setCategory(category);
+        }
+    }
+    
+    /**
+     * Returns the collision mask bits assigned to the bounding boxes of this
+     * {@link WorldObject}.
+     */
+    public short getCollisionMask() {
+        return this.mask;
+    }
+    
+    /**
+     * Sets the collision mask bits of this {@link WorldObject}, applying them
+     * to all of its current and future bounding boxes.
+     * 
+     * @param mask the mask bits, usually retrieved from
+     *            {@link CollisionLayer#getMask(String...)}
+     */
+    public void setCollisionMask(short mask) {
+        this.mask = mask;
+        for(BoundingBox box : boundingBoxes.values()) {
+            box.setMask(mask);
+        }
+    }
+    
     public float getRotation() {
         if(this.body == null) {
             return new Float(Math.toDegrees(this.bodyDef.angle));
@@ -135,6 +223,7 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
             this.bodyDef.angle = (float) Math.toRadians(rotation);
         } else {
             this.body.setTransform(body.getPosition(), (float) Math.toRadians(rotation));
+            this.previousAngle = this.body.getAngle();
         }
     }
     
@@ -178,7 +267,9 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         if(box == null && boundingBoxes.containsKey(id)) {
             this.boundingBoxes.get(id).destroyFixture(body);
             this.boundingBoxes.remove(id);
-        } else {
+        } else if(box != null) {
+            box.setCategory(this.category);
+            box.setMask(this.mask);
             this.boundingBoxes.put(id, box);
         }
     }
@@ -242,9 +333,54 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
             this.bodyDef.position.set(x, y);
         } else {
             this.body.setTransform(x, y, this.body.getAngle());
+            this.previousPosition.set(x, y);
+        }
+    }
+    
+    @Override
+    public void prepareStep() {
+        if(this.body != null) {
+            this.previousPosition.set(this.body.getPosition());
+            this.previousAngle = this.body.getAngle();
         }
     }
     
+    /**
+     * Returns the position this {@link WorldObject} should be drawn at,
+     * interpolated between its last two physics steps.
+     * 
+     * <p>The returned vector is reused between calls.</p>
+     */
+    public Vector2 getRenderPosition() {
+        if(this.body == null) {
+            return this.renderPosition.set(this.getPosition());
+        }
+        
+        float alpha = this.getInterpolationAlpha();
+        return this.renderPosition.set(this.previousPosition).lerp(this.body.getPosition(), alpha);
+    }
+    
+    /**
+     * Returns the rotation this {@link WorldObject} should be drawn at, in
+     * degrees, interpolated between its last two physics steps.
+     */
+    public float getRenderRotation() {
+        if(this.body == null) {
+            return this.getRotation();
+        }
+        
+        float alpha = this.getInterpolationAlpha();
+        return (float) Math.toDegrees(this.previousAngle + (this.body.getAngle() - this.previousAngle) * alpha);
+    }
+    
+    private float getInterpolationAlpha() {
+        if(this.room == null || this.room.getCollisionHandler() == null) {
+            return 1F;
+        }
+        
+        return this.room.getCollisionHandler().getAlpha();
+    }
+    
     public WorldRoom getRoom() {
         return room;
     }
@@ -265,6 +401,28 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
         }
     }
     
+    public ParticleEmitter getEmitter(String id) {
+        return this.emitters.get(id);
+    }
+    
+    public void setEmitter(String id, ParticleEmitter emitter) {
+        ParticleEmitter previous = emitter == null ? this.emitters.remove(id) : this.emitters.put(id, emitter);
+        if(previous != null && previous != emitter) {
+            previous.clear();
+        }
+    }
+    
+    @Override
+    public void flushCollision() {
+        if(this.body != null) {
+            for(BoundingBox box : this.boundingBoxes.values()) {
+                if(box.isDirty()) {
+                    box.applyFixture(this.body);
+                }
+            }
+        }
+    }
+    
     @Override
     public Set<BoundingBox> getBoundingBoxes() {
         return new HashSet<>(this.boundingBoxes.values());
@@ -283,8 +441,14 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     public void render() {
         onRender();
         if(isVisible) {
+            Vector2 position = this.getRenderPosition();
+            float rotation = this.getRenderRotation();
             for(AnimationData animation : this.animations.values()) {
-                animation.drawCurrentFrame(body.getPosition().x, body.getPosition().y + height, scale, (float) Math.toDegrees(body.getAngle()));
+                animation.drawCurrentFrame(position.x, position.y + height, scale, rotation);
+            }
+            
+            for(ParticleEmitter emitter : this.emitters.values()) {
+                emitter.draw(1F);
             }
         }
     }
@@ -296,12 +460,36 @@ public abstract class WorldObject implements Collider, Layerable, Renderable, Po
     public void onRegister(long id, WorldRoom room) {}
     public void onPersist(WorldRoom newRoom, Entrypoint entrypoint) {}
     
+    /**
+     * Called when a projectile of the room's
+     * {@link ProjectilePool} hits this object, provided it is
+     * one of the pool's targets.
+     */
+    public void onProjectileHit(ProjectilePattern pattern, float x, float y) {}
+    
     public void process(float delta, InputData input) {
         if(this.body != null && this.body.isActive() != this.canCollide) {
             this.body.setActive(this.canCollide);
         }
+        
+        if(!this.emitters.isEmpty()) {
+            Vector2 position = this.getPosition();
+            for(ParticleEmitter emitter : this.emitters.values()) {
+                emitter.update(delta, position.x, position.y + height);
+            }
+        }
     }
     
     @Override public void onCollide(Collider collider) {}
     public abstract String getObjectName();
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
@@ -38,6 +38,8 @@ import me.scarlet.undertailor.environment.OverworldController;
 import me.scarlet.undertailor.environment.overworld.map.RoomMapLayer;
 import me.scarlet.undertailor.environment.overworld.map.RoomMapLayer.SpriteData;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable;
 import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
@@ -54,9 +56,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
-public class WorldRoom implements Disposable {
+public class WorldRoom implements Disposable, LuaObjectHolder {
     
-    public static class Entrypoint implements Collider {
+    public static class Entrypoint implements Collider, LuaObjectHolder {
         
         public static final BodyDef ENTRYPOINT_BODY_DEF;
         public static final String ENTRYPOINT_BOX_ID = "entrypointBox";
@@ -74,14 +76,17 @@ public class WorldRoom implements Disposable {
         protected Body body;
         protected WorldRoom currentRoom;
         
+        private Vector2 position;
         private Vector2 spawnloc;
         private String roomTarget;
         private Set<Collider> contacts;
         private Map<String, BoundingBox> boundingBoxes;
+        private LuaObjectValue<?> luaValue;
         
         public Entrypoint() {
             this.boundingBoxes = new HashMap<>();
             this.boundingBoxes.put(ENTRYPOINT_BOX_ID, new BoundingRectangle());
+            this.position = new Vector2(0, 0);
             this.spawnloc = new Vector2(0, 0);
             this.roomTarget = "";
             this.contacts = new HashSet<>();
@@ -92,11 +97,18 @@ public class WorldRoom implements Disposable {
         }
         
         public Vector2 getPosition() {
-            return body.getPosition();
+            if(body != null) {
+                return body.getPosition();
+            }
+            
+            return position;
         }
         
         public void setPosition(float x, float y) {
-            body.getPosition().set(x, y);
+            position.set(x, y);
+            if(body != null) {
+                body.setTransform(x, y, 0F);
+            }
         }
         
         public Vector2 getSpawnPosition() {
@@ -182,6 +194,16 @@ public class WorldRoom implements Disposable {
 
         @Override
         public void setBoundingBox(String id, BoundingBox box) {} // nope
+        
+        @Override
+        public LuaObjectValue<?> getCachedObjectValue() {
+            return luaValue;
+        }
+        
+        @Override
+        public void setCachedObjectValue(LuaObjectValue<?> value) {
+            this.luaValue = value;
+        }
     }
     
     private static final TreeSet<Layerable> RETURN_SET;
@@ -214,16 +236,18 @@ public class WorldRoom implements Disposable {
         nextId = 0;
     }
     
-    private String roomName;
+    protected String roomName;
     private RoomDataWrapper roomWrapper;
-    private Map<String, Entrypoint> entrypoints;
+    protected Map<String, Entrypoint> entrypoints;
     
     private Set<WorldObject> removed;
     private Map<Long, WorldObject> added;
     private Map<Long, WorldObject> objects;
     private CollisionHandler collision;
+    private ProjectilePool projectiles;
     
     protected OverworldController currentController;
+    private LuaObjectValue<?> luaValue;
     
     public WorldRoom() {
         this.added = new HashMap<>();
@@ -232,6 +256,7 @@ public class WorldRoom implements Disposable {
         this.objects = new HashMap<>();
         this.roomWrapper = null;
         this.collision = new CollisionHandler();
+        this.projectiles = new ProjectilePool(this);
         this.currentController = null;
     }
     
@@ -264,6 +289,11 @@ public class WorldRoom implements Disposable {
         this.roomWrapper = wrapper;
     }
     
+    
+    public Set<Entrypoint> getEntrypoints() {
+        return new HashSet<>(entrypoints.values());
+    }
+    
     public Entrypoint getEntrypoint(String name) {
         return entrypoints.get(name);
     }
@@ -288,6 +318,10 @@ public class WorldRoom implements Disposable {
     }
     
     public void registerPersistentObject(WorldObject object) {
+        if(object.getBody() == null) {
+            object.claim(object.id, this, collision.getWorld().createBody(object.getBodyDef()));
+        }
+        
         added.put(object.id, object);
     }
     
@@ -313,6 +347,10 @@ public class WorldRoom implements Disposable {
             object.process(delta, input);
         }
         
+        for(WorldObject object : objects.values()) {
+            object.flushCollision();
+        }
+        
         collision.step(delta);
         
         for(WorldObject object : objects.values()) {
@@ -324,6 +362,8 @@ public class WorldRoom implements Disposable {
                 }
             }
         }
+        
+        projectiles.process(delta);
     }
     
     public void render() {
@@ -333,6 +373,8 @@ public class WorldRoom implements Disposable {
                 ((Renderable) object).render();
             }
         }
+        
+        projectiles.render();
     }
     
     private void updateMapping() {
@@ -344,6 +386,7 @@ public class WorldRoom implements Disposable {
         }
         
         for(WorldObject object : removed) {
+            projectiles.setTarget(object, false);
             object.room = null;
             objects.remove(object.id);
             object.id = -1;
@@ -353,8 +396,10 @@ public class WorldRoom implements Disposable {
     public Set<WorldObject> prepareExit() {
         Iterator<WorldObject> iterator = objects.values().iterator();
         Set<WorldObject> set = new HashSet<>();
+        projectiles.reset();
         iterator.forEachRemaining(obj -> {
             if(obj.isPersisting()) {
+                obj.releaseBody(); // recreated within the next room's world
                 set.add(obj);
             } else {
                 obj.onDestroy();
@@ -407,10 +452,14 @@ public class WorldRoom implements Disposable {
             this.roomWrapper = null;
         }
         
-        this.collision.getWorld().dispose();
+        this.collision.dispose();
         this.collision = null;
     }
     
+    public ProjectilePool getProjectiles() {
+        return projectiles;
+    }
+    
     public CollisionHandler getCollisionHandler() {
         return this.collision;
     }
@@ -420,4 +469,14 @@ public class WorldRoom implements Disposable {
     public void onProcess(float delta, InputData input) {}
     public void onEnter(Entrypoint entrypoint) {}
     public void onExit(Entrypoint exitpoint) {}
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
@@ -24,15 +24,18 @@
 
 package me.scarlet.undertailor.environment.overworld.map;
 
+import com.badlogic.gdx.Gdx;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptIndex;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable;
 import me.scarlet.undertailor.manager.Manager;
 import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.RoomDataWrapper;
+import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.json.JSONConfigurationLoader;
 import org.luaj.vm2.Varargs;
 
@@ -46,9 +49,11 @@ public class RoomLoader extends Manager<RoomDataWrapper> {
     
     private Map<String, File> scriptFiles;
     private Map<String, RoomDataWrapper> rooms;
+    private Map<File, RoomDataWrapper> sources;
     
     public RoomLoader() {
         this.rooms = new HashMap<>();
+        this.sources = new HashMap<>();
         this.scriptFiles = new HashMap<>();
     }
     
@@ -92,19 +97,16 @@ public class RoomLoader extends Manager<RoomDataWrapper> {
             JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setFile(file).build();
             try {
                 Undertailor.instance.debug(MANAGER_TAG, "loading room " + entryName);
-                rooms.put(entryName, new RoomDataWrapper(loader.load()));
+                RoomDataWrapper room = new RoomDataWrapper(loader.load());
+                rooms.put(entryName, room);
+                sources.put(file.getAbsoluteFile(), room);
             } catch(Exception e) {
                 Undertailor.instance.error(MANAGER_TAG, "could not load room " + entryName + ": " + LuaUtil.formatJavaException(e), e);
             }
         }
     }
     
-    public void loadScripts(File directory) {
-        loadScripts(directory, null);
-        Undertailor.instance.log(MANAGER_TAG, rooms.keySet().size() + " room script(s) currently loaded");
-    }
-    
-    public void loadScripts(File dir, String heading) {
+    public void loadScripts(File dir) {
         String dirPath = dir.getAbsolutePath();
         if(!dir.exists()) {
             Undertailor.instance.warn(MANAGER_TAG, "could not load room scripts directory " + dirPath + " (did not exist)");
@@ -117,35 +119,38 @@ public class RoomLoader extends Manager<RoomDataWrapper> {
         }
         
         Undertailor.instance.log(MANAGER_TAG, "searching for room scripts in " + dirPath);
-        if(heading == null) {
-            heading = "";
+        scriptFiles.putAll(ScriptIndex.getScripts(dir));
+        ScriptIndex.warmUp(scriptFiles, ScriptIndex.getWarmupNames(dir));
+        Undertailor.instance.log(MANAGER_TAG, scriptFiles.keySet().size() + " room script(s) currently loaded");
+    }
+    
+    @Override
+    protected void onFileChanged(File file) {
+        RoomDataWrapper room = sources.get(file.getAbsoluteFile());
+        if(room == null) {
+            return;
         }
         
-        for(File file : dir.listFiles(file -> {
-            return file.isDirectory() || file.getName().endsWith(".lua");
-        })) {
-            if(file.isDirectory()) {
-                loadObjects(file, heading + (heading.isEmpty() ? "" : ".") + file.getName() + ".");
-                continue;
-            }
-            
-            String roomName = file.getName().substring(0, file.getName().length() - 4);
-            String entryName = heading + (heading.isEmpty() ? "" : ".") + roomName;
-            
-            if(!file.isFile()) {
-                Undertailor.instance.warn(MANAGER_TAG, "ignoring room script" + entryName + " (bad file)");
-                continue;
-            }
-            
-            try {
-                Undertailor.instance.debug(MANAGER_TAG, "loading room script " + entryName);
-                scriptFiles.put(entryName, file);
-            } catch(Exception e) {
-                Undertailor.instance.error(MANAGER_TAG, "could not load room script " + entryName + ": " + LuaUtil.formatJavaException(e), e);
-            }
+        try {
+            ConfigurationNode mapData = JSONConfigurationLoader.builder().setFile(file).build().load();
+            Gdx.app.postRunnable(() -> {
+                room.setMapData(mapData);
+                room.reload();
+                Undertailor.instance.log(MANAGER_TAG, "reloaded room from " + file.getName());
+            });
+        } catch(Exception e) {
+            Undertailor.instance.error(MANAGER_TAG, "could not reload room " + file.getName() + ": " + LuaUtil.formatJavaException(e), e);
         }
     }
     
+    public boolean hasRoom(String name) {
+        return rooms.containsKey(name);
+    }
+    
+    public boolean hasRoomScript(String name) {
+        return scriptFiles.containsKey(name);
+    }
+    
     public RoomDataWrapper getRoom(String name) {
         if(rooms.containsKey(name)) {
             return rooms.get(name);
@@ -0,0 +1,55 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.scheduler;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.Scheduler;
+
+/**
+ * A unit of work run off the main thread by a {@link Scheduler}.
+ * 
+ * <p>{@link #compute()} runs on one of the scheduler's worker threads and
+ * must not touch game state; whatever it returns is handed back to
+ * {@link #onComplete(Object)} on the main thread, during the next
+ * {@link Scheduler#process(float, me.scarlet.undertailor.util.InputRetriever.InputData)}
+ * call.</p>
+ *
+ * @param <T> the type of the computed result
+ */
+public interface AsyncTask<T> {
+    
+    public String getName();
+    
+    // runs on a worker thread
+    public T compute() throws Exception;
+    
+    // runs on the main thread, once compute has returned
+    public void onComplete(T result);
+    
+    // runs on the main thread, if compute threw an error
+    public default void onError(Exception e) {
+        Undertailor.instance.warn(Scheduler.MANAGER_TAG, "async task " + getName() + " failed: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+}
@@ -0,0 +1,263 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.scheduler;
+
+import me.scarlet.undertailor.environment.Scheduler;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
+import me.scarlet.undertailor.util.InputRetriever.InputData;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Upvaldesc;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+
+/**
+ * A {@link Task} running a Lua function as a coroutine.
+ * 
+ * <p>The function runs inside a {@link LuaThread} and suspends itself through
+ * the wait functions found in the base library ({@link #waitSeconds(double)}
+ * and the likes), instead of returning to be called again next frame. The
+ * task is only resumed once its wake condition has been met; non-active
+ * coroutine tasks waiting on time, frames or another task are parked by the
+ * {@link Scheduler} and are not processed at all until then.</p>
+ * 
+ * <p>LuaJ runs each coroutine on a Java thread of its own, resumed
+ * synchronously by the scheduler's thread, so game state may be used freely
+ * but the GL context may not. Coroutine tasks must not draw, or create or
+ * dispose of textures, fonts and other render objects; such work belongs in
+ * render callbacks.</p>
+ */
+public class CoroutineTask implements Task {
+    
+    public static final int WAIT_NONE = 0;
+    public static final int WAIT_TIME = 1;
+    public static final int WAIT_FRAMES = 2;
+    public static final int WAIT_PREDICATE = 3;
+    public static final int WAIT_TASK = 4;
+    
+    // the coroutine task currently being resumed, if any; the coroutine runs on
+    // its own java thread while the main thread waits for it
+    private static volatile CoroutineTask running = null;
+    private static final LuaString ENV = LuaValue.valueOf("_ENV");
+    
+    /**
+     * Returns the coroutine task currently running, or null if not called from
+     * within one.
+     */
+    public static CoroutineTask getRunning() {
+        return running;
+    }
+    
+    /**
+     * Returns the {@link Scheduler} resuming the coroutine task running on the
+     * provided Java thread, or null if that thread isn't running one.
+     * 
+     * <p>The scheduler's thread is blocked for as long as the task runs, so
+     * calls made from the coroutine are treated as if made by the
+     * scheduler.</p>
+     * 
+     * @param thread the thread to check
+     */
+    public static Scheduler getResumingScheduler(Thread thread) {
+        CoroutineTask task = running;
+        return task != null && task.javaThread == thread ? task.scheduler : null;
+    }
+    
+    private String name;
+    private String meterName;
+    private int priority;
+    private LuaThread thread;
+    private Thread javaThread;
+    private Scheduler scheduler;
+    
+    private int waitType;
+    private double waitTime;
+    private long waitFrame;
+    private long waitTask;
+    private LuaValue waitPredicate;
+    
+    public CoroutineTask(Scheduler scheduler, String name, LuaFunction func) {
+        this(scheduler, name, Scheduler.PRIORITY_NORMAL, func);
+    }
+    
+    public CoroutineTask(Scheduler scheduler, String name, int priority, LuaFunction func) {
+        this.scheduler = scheduler;
+        this.name = name;
+        this.meterName = name != null ? name : ScriptWatchdog.getScriptName(func, "coroutine");
+        this.priority = priority;
+        this.thread = new LuaThread(getGlobals(func), new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                javaThread = Thread.currentThread(); // luaj keeps a coroutine on one thread until it dies
+                return func.invoke(args);
+            }
+        });
+        this.waitType = WAIT_NONE;
+    }
+    
+    /**
+     * Returns the environment the provided function was defined in, so that
+     * the coroutine's running state belongs to its script. Functions that
+     * never touch their environment get a blank one.
+     */
+    private static Globals getGlobals(LuaFunction func) {
+        if(func instanceof LuaClosure) {
+            LuaClosure closure = (LuaClosure) func;
+            Upvaldesc[] upvalues = closure.p.upvalues;
+            for(int i = 0; i < upvalues.length; i++) {
+                if(ENV.raweq(upvalues[i].name)) {
+                    LuaValue env = closure.upValues[i].getValue();
+                    if(env instanceof Globals) {
+                        return (Globals) env;
+                    }
+                }
+            }
+        }
+        
+        return new Globals();
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+    
+    public int getWaitType() {
+        return waitType;
+    }
+    
+    /**
+     * Returns the time, in scheduler seconds, this task is waiting for. Only
+     * meaningful if the wait type is {@link #WAIT_TIME}.
+     */
+    public double getWaitTime() {
+        return waitTime;
+    }
+    
+    /**
+     * Returns the frame this task is waiting for. Only meaningful if the wait
+     * type is {@link #WAIT_FRAMES}.
+     */
+    public long getWaitFrame() {
+        return waitFrame;
+    }
+    
+    /**
+     * Returns the id of the task this task is waiting on. Only meaningful if
+     * the wait type is {@link #WAIT_TASK}.
+     */
+    public long getWaitTask() {
+        return waitTask;
+    }
+    
+    /**
+     * Returns whether the wake condition of this task has been met.
+     */
+    public boolean isReady() {
+        switch(waitType) {
+            case WAIT_TIME:
+                return scheduler.getTime() >= waitTime;
+            case WAIT_FRAMES:
+                return scheduler.getFrame() >= waitFrame;
+            case WAIT_TASK:
+                return !scheduler.hasTask(waitTask);
+            case WAIT_PREDICATE:
+                return waitPredicate.call().toboolean();
+            default:
+                return true;
+        }
+    }
+    
+    @Override
+    public boolean process(float delta, InputData input) {
+        if(!this.isReady()) {
+            return false;
+        }
+        
+        this.waitType = WAIT_NONE;
+        this.waitPredicate = null;
+        
+        CoroutineTask previous = running;
+        Varargs result;
+        running = this;
+        try {
+            result = ScriptWatchdog.run(meterName, () -> ScriptWatchdog.resume(thread, LuaValue.NONE));
+        } finally {
+            running = previous;
+        }
+        
+        if(!result.arg1().toboolean()) {
+            throw new LuaError(result.arg(2).tojstring());
+        }
+        
+        return thread.state.status == LuaThread.STATUS_DEAD;
+    }
+    
+    @Override
+    public void onFinish(boolean forced) {} // a suspended thread is reclaimed once orphaned
+    
+    public void waitSeconds(double seconds) {
+        this.waitTime = scheduler.getTime() + seconds;
+        this.suspend(WAIT_TIME);
+    }
+    
+    public void waitFrames(long frames) {
+        this.waitFrame = scheduler.getFrame() + Math.max(1, frames);
+        this.suspend(WAIT_FRAMES);
+    }
+    
+    public void waitFor(LuaValue predicate) {
+        this.waitPredicate = predicate;
+        this.suspend(WAIT_PREDICATE);
+    }
+    
+    public void waitForTask(long id) {
+        this.waitTask = id;
+        this.suspend(WAIT_TASK);
+    }
+    
+    private void suspend(int waitType) {
+        if(running != this) {
+            throw new LuaError("cannot wait outside of the coroutine task");
+        }
+        
+        if(Thread.currentThread() != javaThread) {
+            throw new LuaError("cannot wait from a coroutine nested within the coroutine task");
+        }
+        
+        this.waitType = waitType;
+        thread.globals.yield(LuaValue.NONE);
+    }
+}
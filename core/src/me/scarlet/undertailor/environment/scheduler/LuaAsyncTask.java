@@ -0,0 +1,186 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.scheduler;
+
+import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.compiler.LuaC;
+import org.luaj.vm2.lib.Bit32Lib;
+import org.luaj.vm2.lib.PackageLib;
+import org.luaj.vm2.lib.StringLib;
+import org.luaj.vm2.lib.TableLib;
+import org.luaj.vm2.lib.jse.JseBaseLib;
+import org.luaj.vm2.lib.jse.JseMathLib;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An {@link AsyncTask} running a data-only Lua function on a worker thread.
+ * 
+ * <p>Lua state cannot be shared between threads, so the function is rebuilt
+ * from its prototype inside a fresh, minimal {@link Globals} instance holding
+ * only the base, string, table, bit32 and math libraries. The function may
+ * not capture any upvalues other than its environment, and both the data
+ * passed to it and the values it returns are deep-copied, and may only
+ * consist of nils, booleans, numbers, strings and tables of those.</p>
+ */
+public class LuaAsyncTask implements AsyncTask<Varargs> {
+    
+    public static final int MAX_DEPTH = 64;
+    
+    /**
+     * Returns a deep copy of the given value, throwing a {@link LuaError} if
+     * it holds anything other than plain data.
+     * 
+     * @param value the value to copy
+     */
+    public static LuaValue copyData(LuaValue value) {
+        return copyData(value, new IdentityHashMap<>(), 0);
+    }
+    
+    private static LuaValue copyData(LuaValue value, Map<LuaValue, LuaTable> copied, int depth) {
+        switch(value.type()) {
+            case LuaValue.TNIL:
+            case LuaValue.TBOOLEAN:
+            case LuaValue.TNUMBER:
+            case LuaValue.TSTRING:
+                return value;
+            case LuaValue.TTABLE:
+                if(depth > MAX_DEPTH) {
+                    throw new LuaError("async task data nested too deeply");
+                }
+                
+                if(copied.containsKey(value)) {
+                    return copied.get(value);
+                }
+                
+                LuaTable copy = new LuaTable();
+                copied.put(value, copy);
+                LuaUtil.iterateTable((LuaTable) value, vargs -> {
+                    copy.set(copyData(vargs.arg(1), copied, depth + 1), copyData(vargs.arg(2), copied, depth + 1));
+                });
+                
+                return copy;
+            default:
+                throw new LuaError("async task data may only contain nil, boolean, number, string or table values (got " + value.typename() + ")");
+        }
+    }
+    
+    private static Globals generateSandbox() {
+        Globals globals = new Globals();
+        globals.load(new JseBaseLib());
+        globals.load(new PackageLib());
+        globals.load(new Bit32Lib());
+        globals.load(new TableLib());
+        globals.load(new StringLib());
+        globals.load(new JseMathLib());
+        LoadState.install(globals);
+        LuaC.install(globals);
+        
+        globals.set("package", LuaValue.NIL);
+        globals.set("require", LuaValue.NIL);
+        globals.set("load", LuaValue.NIL);
+        globals.set("dofile", LuaValue.NIL);
+        globals.set("loadfile", LuaValue.NIL);
+        globals.set("collectgarbage", LuaValue.NIL);
+        globals.set("print", LuaValue.NIL);
+        return globals;
+    }
+    
+    private String name;
+    private Prototype prototype;
+    private LuaValue data;
+    private LuaFunction onComplete;
+    private LuaFunction onError;
+    
+    /**
+     * @param name the name of the task, can be null
+     * @param func the function to run; takes the copied data as its only
+     *        parameter
+     * @param data the data to pass to the function
+     * @param onComplete called with the returned values on the main thread
+     * @param onError called with the error message on the main thread, can
+     *        be null
+     */
+    public LuaAsyncTask(String name, LuaFunction func, LuaValue data, LuaFunction onComplete, LuaFunction onError) {
+        if(!func.isclosure()) {
+            throw new LuaError("async task function must be a lua function");
+        }
+        
+        Prototype prototype = ((LuaClosure) func).p;
+        for(int i = 0; i < prototype.upvalues.length; i++) {
+            LuaValue upvalue = prototype.upvalues[i].name;
+            if(upvalue == null || !upvalue.tojstring().equals("_ENV")) {
+                throw new LuaError("async task function cannot capture local variables (captured " + upvalue + ")");
+            }
+        }
+        
+        this.name = name;
+        this.prototype = prototype;
+        this.data = copyData(data);
+        this.onComplete = onComplete;
+        this.onError = onError;
+    }
+    
+    @Override
+    public String getName() {
+        return name == null ? "<lua>" : name;
+    }
+    
+    @Override
+    public Varargs compute() throws Exception {
+        LuaClosure func = new LuaClosure(prototype, generateSandbox());
+        Varargs returned = func.invoke(data);
+        LuaValue[] values = new LuaValue[returned.narg()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = copyData(returned.arg(i + 1));
+        }
+        
+        return LuaValue.varargsOf(values);
+    }
+    
+    @Override
+    public void onComplete(Varargs result) {
+        onComplete.invoke(result);
+    }
+    
+    @Override
+    public void onError(Exception e) {
+        if(onError != null) {
+            onError.call(LuaValue.valueOf(e instanceof LuaError ? e.getMessage() : LuaUtil.formatJavaException(e)));
+        } else {
+            AsyncTask.super.onError(e);
+        }
+    }
+}
@@ -26,6 +26,7 @@ package me.scarlet.undertailor.environment.scheduler;
 
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.Scheduler;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import org.luaj.vm2.LuaError;
@@ -35,10 +36,13 @@ import org.luaj.vm2.LuaValue;
 public class LuaTask implements Task {
     
     public static final String VAR_NAME = "name";
+    public static final String VAR_PRIORITY = "priority";
     public static final String IMPLMETHOD_PROCESS = "process";   // process(table, delta, input)
     public static final String IMPLMETHOD_ONFINISH = "onFinish"; // onFinish(bool)
     
     private String name;
+    private String meterName;
+    private int priority;
     private LuaTable taskImpl;
     public LuaTask(LuaTable taskImpl) {
         this.taskImpl = taskImpl;
@@ -50,6 +54,10 @@ public class LuaTask implements Task {
         if(taskImpl.get(VAR_NAME).isstring()) {
             this.name = taskImpl.get(VAR_NAME).checkjstring();
         }
+        
+        this.meterName = name != null ? name : ScriptWatchdog.getScriptName(taskImpl.get(IMPLMETHOD_PROCESS), IMPLMETHOD_PROCESS);
+        
+        this.priority = taskImpl.get(VAR_PRIORITY).optint(Scheduler.PRIORITY_NORMAL);
     }
     
     @Override
@@ -57,9 +65,14 @@ public class LuaTask implements Task {
         return name;
     }
     
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+    
     @Override
     public boolean process(float delta, InputData input) {
-        LuaValue returned = taskImpl.get(IMPLMETHOD_PROCESS).call(taskImpl, LuaValue.valueOf(delta), LuaInputDataMeta.create(input));
+        LuaValue returned = ScriptWatchdog.run(meterName, () -> taskImpl.get(IMPLMETHOD_PROCESS).call(taskImpl, LuaValue.valueOf(delta), LuaInputDataMeta.create(input)));
         try {
             return returned.optboolean(true);
         } catch(LuaError error) {
@@ -24,12 +24,18 @@
 
 package me.scarlet.undertailor.environment.scheduler;
 
+import me.scarlet.undertailor.environment.Scheduler;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 
 public interface Task {
     
     public String getName();
     
+    // higher priority tasks are processed first, and are the last to be deferred
+    public default int getPriority() {
+        return Scheduler.PRIORITY_NORMAL;
+    }
+    
     // returns true to indicate finished, false if it needs to keep running
     public boolean process(float delta, InputData input);
     // forced means if it was canceled preemptively either by an error or a call to the scheduler
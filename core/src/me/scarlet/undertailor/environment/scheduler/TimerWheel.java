@@ -0,0 +1,243 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.environment.scheduler;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.Scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hierarchical timing wheel holding delayed and repeating callbacks.
+ * 
+ * <p>Time is split into ticks of a fixed duration. Timers due within the
+ * next {@link #SLOTS} ticks live in the lowest wheel, indexed directly by
+ * their deadline; later timers live in coarser wheels and are cascaded down
+ * as time reaches them. Scheduling, cancelling and advancing by a tick are
+ * all constant time, regardless of how many timers are pending.</p>
+ */
+public class TimerWheel {
+    
+    public static final float DEFAULT_TICK_DURATION = 0.01F; // 10ms
+    
+    static final int BITS = 6;
+    static final int SLOTS = 1 << BITS;
+    static final int MASK = SLOTS - 1;
+    static final int LEVELS = 4;
+    static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+    
+    /**
+     * A single pending timer, linked into the slot it currently occupies.
+     */
+    static class Timer {
+        
+        private long id;
+        private long deadline;
+        private long interval; // in ticks, 0 if not repeating
+        private Runnable callback;
+        private Timer prev, next;
+        private Timer[] slots;
+        private int slot;
+        
+        Timer(long id, long deadline, long interval, Runnable callback) {
+            this.id = id;
+            this.deadline = deadline;
+            this.interval = interval;
+            this.callback = callback;
+        }
+    }
+    
+    private float tickDuration;
+    private float elapsed;
+    private long currentTick;
+    private Timer[][] wheels;
+    private Map<Long, Timer> timers;
+    
+    public TimerWheel() {
+        this(DEFAULT_TICK_DURATION);
+    }
+    
+    public TimerWheel(float tickDuration) {
+        if(tickDuration <= 0F) {
+            throw new IllegalArgumentException("tick duration must be above 0");
+        }
+        
+        this.tickDuration = tickDuration;
+        this.elapsed = 0F;
+        this.currentTick = 0;
+        this.wheels = new Timer[LEVELS][SLOTS];
+        this.timers = new HashMap<>();
+    }
+    
+    public float getTickDuration() {
+        return this.tickDuration;
+    }
+    
+    /**
+     * Returns the number of timers currently pending.
+     */
+    public int size() {
+        return timers.size();
+    }
+    
+    public boolean hasTimer(long id) {
+        return timers.containsKey(id);
+    }
+    
+    /**
+     * Schedules a callback.
+     * 
+     * @param id the id to register the timer under
+     * @param delay the time, in seconds, before the callback first runs
+     * @param interval the time, in seconds, between runs of the callback
+     *        afterwards, or 0 to run it only once
+     * @param callback the callback to run
+     */
+    public void schedule(long id, float delay, float interval, Runnable callback) {
+        long intervalTicks = interval > 0F ? toTicks(interval) : 0;
+        Timer timer = new Timer(id, currentTick + toTicks(delay), intervalTicks, callback);
+        timers.put(id, timer);
+        this.insert(timer);
+    }
+    
+    /**
+     * Cancels the timer with the given id.
+     * 
+     * @return whether a timer was cancelled
+     */
+    public boolean cancel(long id) {
+        Timer timer = timers.remove(id);
+        if(timer != null) {
+            this.unlink(timer);
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Advances the wheel, running every timer that becomes due.
+     * 
+     * @param delta the time passed, in seconds
+     */
+    public void advance(float delta) {
+        elapsed += delta;
+        while(elapsed >= tickDuration) {
+            elapsed -= tickDuration;
+            this.tick();
+        }
+    }
+    
+    private void tick() {
+        currentTick++;
+        int index = (int) (currentTick & MASK);
+        if(index == 0) {
+            this.cascade(1);
+        }
+        
+        Timer[] slots = wheels[0];
+        while(slots[index] != null) {
+            Timer timer = slots[index];
+            this.unlink(timer);
+            this.fire(timer);
+        }
+    }
+    
+    private void cascade(int level) {
+        int index = (int) ((currentTick >> (level * BITS)) & MASK);
+        if(index == 0 && level + 1 < LEVELS) {
+            this.cascade(level + 1);
+        }
+        
+        Timer[] slots = wheels[level];
+        while(slots[index] != null) {
+            Timer timer = slots[index];
+            this.unlink(timer);
+            this.insert(timer);
+        }
+    }
+    
+    private void fire(Timer timer) {
+        if(timer.interval > 0) {
+            timer.deadline = Math.max(timer.deadline + timer.interval, currentTick + 1);
+            this.insert(timer);
+        } else {
+            timers.remove(timer.id);
+        }
+        
+        try {
+            timer.callback.run();
+        } catch(Exception e) {
+            this.cancel(timer.id);
+            Undertailor.instance.warn(Scheduler.MANAGER_TAG, "timer #" + timer.id + " was removed due to caught error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+    
+    private void insert(Timer timer) {
+        long delta = Math.min(timer.deadline - currentTick, MAX_DELTA);
+        long target = delta < 0 ? currentTick : currentTick + delta;
+        int level = 0;
+        while(level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        
+        Timer[] slots = wheels[level];
+        int index = (int) ((target >> (level * BITS)) & MASK);
+        timer.slots = slots;
+        timer.slot = index;
+        timer.prev = null;
+        timer.next = slots[index];
+        if(timer.next != null) {
+            timer.next.prev = timer;
+        }
+        
+        slots[index] = timer;
+    }
+    
+    private void unlink(Timer timer) {
+        if(timer.slots == null) {
+            return;
+        }
+        
+        if(timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            timer.slots[timer.slot] = timer.next;
+        }
+        
+        if(timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        
+        timer.slots = null;
+        timer.prev = null;
+        timer.next = null;
+    }
+    
+    private long toTicks(float seconds) {
+        return Math.max(1, Math.round(seconds / tickDuration));
+    }
+}
@@ -27,13 +27,19 @@ package me.scarlet.undertailor.environment.ui;
 import com.badlogic.gdx.math.Vector2;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
+import me.scarlet.undertailor.gfx.ParticleEmitter;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.Positionable;
 import me.scarlet.undertailor.util.Renderable;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * A component of a {@link UIObject}, which may display something on-screen.
  */
-public abstract class UIComponent implements Renderable, Positionable {
+public abstract class UIComponent implements Renderable, Positionable, LuaObjectHolder {
     
     /** Holding the parent {@link UIObject} that owns this UIComponent. */
     protected UIObject parent;
@@ -45,6 +51,8 @@ public abstract class UIComponent implements Renderable, Positionable {
     private boolean destroying;
     private boolean isAlwaysActive;
     private boolean renderWhenInactive;
+    private LuaObjectValue<?> luaValue;
+    private Map<String, ParticleEmitter> emitters;
     
     public UIComponent() {
         this(new Vector2(0, 0));
@@ -63,6 +71,7 @@ public abstract class UIComponent implements Renderable, Positionable {
         this.isAlwaysActive = isAlwaysActive;
         this.renderWhenInactive = renderWhenInactive;
         this.destroying = false;
+        this.emitters = new HashMap<>();
     }
     
     /**
@@ -184,4 +193,58 @@ public abstract class UIComponent implements Renderable, Positionable {
     public void render(float parentAlpha) {}
     
     public abstract String getComponentTypeName();
+    
+    public ParticleEmitter getEmitter(String id) {
+        return this.emitters.get(id);
+    }
+    
+    public void setEmitter(String id, ParticleEmitter emitter) {
+        ParticleEmitter previous = emitter == null ? this.emitters.remove(id) : this.emitters.put(id, emitter);
+        if(previous != null && previous != emitter) {
+            previous.clear();
+        }
+    }
+    
+    /**
+     * Updates the particle emitters attached to this
+     * {@link UIComponent}, emitting from its real position.
+     * 
+     * <p>Called by the parent {@link UIObject} after
+     * {@link #process(float, InputData)}.</p>
+     * 
+     * @param delta the time, in seconds, since the last frame
+     */
+    public final void processEmitters(float delta) {
+        if(!this.emitters.isEmpty()) {
+            Vector2 position = this.getRealPosition();
+            for(ParticleEmitter emitter : this.emitters.values()) {
+                emitter.update(delta, position.x, position.y);
+            }
+        }
+    }
+    
+    /**
+     * Draws the particle emitters attached to this
+     * {@link UIComponent}.
+     * 
+     * <p>Called by the parent {@link UIObject} after
+     * {@link #render(float)}.</p>
+     * 
+     * @param parentAlpha the alpha of the parent UIObject
+     */
+    public final void renderEmitters(float parentAlpha) {
+        for(ParticleEmitter emitter : this.emitters.values()) {
+            emitter.draw(parentAlpha);
+        }
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
@@ -27,13 +27,13 @@ package me.scarlet.undertailor.environment.ui;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptIndex;
 import me.scarlet.undertailor.lua.impl.UIComponentImplementable;
 import me.scarlet.undertailor.manager.ScriptManager;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Varargs;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -66,15 +66,6 @@ public class UIComponentLoader {
     }
     
     public void loadComponents(File directory) {
-        loadComponents(directory, null);
-        Undertailor.instance.log(MANAGER_TAG, map.entrySet().size() + " component(s) currently loaded");
-    }
-    
-    public void loadComponents(File directory, String heading) {
-        if(heading == null) {
-            heading = "";
-        }
-        
         String dirPath = directory.getAbsolutePath();
         if(!directory.exists()) {
             directory.mkdirs();
@@ -86,17 +77,8 @@ public class UIComponentLoader {
         }
         
         Undertailor.instance.log(MANAGER_TAG, "loading uicomponent scripts from directory " + dirPath);
-        for(File file : directory.listFiles((FileFilter) (File file) -> {
-            return file.getName().endsWith(".lua") || file.isDirectory();
-        })) {
-            if(file.isDirectory()) {
-                loadComponents(file, heading.isEmpty() ? file.getName() : heading + "." + file.getName());
-                continue;
-            }
-            
-            String name = heading + (heading.isEmpty() ? "" : ".") + file.getName().split("\\.")[0];
-            Undertailor.instance.debug(MANAGER_TAG, "registered component " + name);
-            map.put(name, file);
-        }
+        map.putAll(ScriptIndex.getScripts(directory));
+        ScriptIndex.warmUp(map, ScriptIndex.getWarmupNames(directory));
+        Undertailor.instance.log(MANAGER_TAG, map.entrySet().size() + " component(s) currently loaded");
     }
 }
@@ -29,6 +29,8 @@ import com.badlogic.gdx.utils.TimeUtils;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.UIController;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.Positionable;
 import me.scarlet.undertailor.util.Renderable;
@@ -39,7 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
-public class UIObject implements Renderable, Positionable {
+public class UIObject implements Renderable, Positionable, LuaObjectHolder {
     
     private int id;
     private float alpha;
@@ -53,6 +55,7 @@ public class UIObject implements Renderable, Positionable {
     private List<UIComponent> components;
     
     private UIController controller;
+    private LuaObjectValue<?> luaValue;
     
     public UIObject(boolean headless) {
         this(headless, 0);
@@ -135,6 +138,7 @@ public class UIObject implements Renderable, Positionable {
         this.components.forEach(component -> {
             if(this.isComponentActive(component)) {
                 component.process(delta, input);
+                component.processEmitters(delta);
             }
         });
         
@@ -149,8 +153,12 @@ public class UIObject implements Renderable, Positionable {
         this.components.forEach(component -> {
             if(this.isComponentActive(component)) {
                 component.render(alpha);
+                component.renderEmitters(alpha);
             } else {
-                if(component.renderWhenInactive()) component.render(alpha);
+                if(component.renderWhenInactive()) {
+                    component.render(alpha);
+                    component.renderEmitters(alpha);
+                }
             }
         });
     }
@@ -235,4 +243,14 @@ public class UIObject implements Renderable, Positionable {
         
         return sb.toString().trim();
     }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
@@ -2,9 +2,13 @@ package me.scarlet.undertailor.gfx;
 
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.TimeUtils;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.wrappers.AnimationSetWrapper;
+import me.scarlet.undertailor.wrappers.DisposableWrapper;
+import me.scarlet.undertailor.wrappers.DisposableWrapper.ReloadListener;
 
-public class AnimationData {
+public class AnimationData implements LuaObjectHolder, ReloadListener {
     
     private long pauseTime;
     private long startTime;
@@ -12,10 +16,13 @@ public class AnimationData {
     private boolean looping;
     private String spriteset;
     private Animation<KeyFrame> anim;
+    private LuaObjectValue<?> luaValue;
+    private AnimationSetWrapper wrapper;
     
     @SuppressWarnings("unchecked")
     public AnimationData(AnimationSetWrapper wrapper, Animation<? extends KeyFrame> animation) {
         wrapper.getReference(this);
+        this.wrapper = wrapper;
         this.anim = (Animation<KeyFrame>) animation;
         this.looping = animation.isLooping();
         this.startTime = -1;
@@ -24,6 +31,15 @@ public class AnimationData {
         this.spriteset = AnimationSet.DEFAULT_SPRITESET;
     }
     
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onReload(DisposableWrapper<?> wrapper) {
+        Animation<?> reloaded = this.wrapper.getReference().getAnimation(anim.getName());
+        if(reloaded != null) {
+            this.anim = (Animation<KeyFrame>) reloaded;
+        }
+    }
+    
     public Animation<KeyFrame> getReferenceAnimation() {
         return this.anim;
     }
@@ -136,4 +152,31 @@ public class AnimationData {
         
         this.anim.drawFrame(this.getRuntime(), this.isLooping(), spriteset, posX, posY, offset.x, offset.y, scale, rotation);
     }
+    
+    /**
+     * Draws the current frame at each of the provided
+     * positions, sharing one frame lookup between them.
+     * 
+     * @param positions x and y pairs to draw at
+     * @param count the amount of positions to draw at
+     * @param scale the scale to draw with
+     * @param rotation the rotation to draw with
+     */
+    public void drawCurrentFrames(float[] positions, int count, float scale, float rotation) {
+        long runtime = this.getRuntime();
+        boolean looping = this.isLooping();
+        for(int i = 0; i < count * 2; i += 2) {
+            this.anim.drawFrame(runtime, looping, spriteset, positions[i], positions[i + 1], offset.x, offset.y, scale, rotation);
+        }
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
 }
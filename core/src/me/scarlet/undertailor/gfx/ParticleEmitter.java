@@ -0,0 +1,472 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.gfx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Emits and simulates particles drawn from a single sprite.
+ * 
+ * <p>Particles are plain entries within parallel float arrays, integrated and
+ * drawn in one loop each without any per-particle objects. The arrays are
+ * pooled by capacity and only held while the emitter has live particles, so
+ * idle emitters cost next to nothing and finished ones hand their arrays to the
+ * next emitter needing them.</p>
+ * 
+ * <p>Emitters are updated and drawn by their owner, such as a
+ * {@link me.scarlet.undertailor.environment.overworld.WorldObject}, with the
+ * owner's position as the origin of new particles.</p>
+ */
+public class ParticleEmitter implements LuaObjectHolder {
+    
+    /**
+     * Parallel arrays holding the state of every particle of
+     * an emitter.
+     */
+    private static class ParticleStorage {
+        
+        private final int capacity;
+        private final float[] x, y, vx, vy;
+        private final float[] age, life, rotation, spin;
+        private final float[] scale, alpha;
+        
+        private ParticleStorage(int capacity) {
+            this.capacity = capacity;
+            this.x = new float[capacity];
+            this.y = new float[capacity];
+            this.vx = new float[capacity];
+            this.vy = new float[capacity];
+            this.age = new float[capacity];
+            this.life = new float[capacity];
+            this.rotation = new float[capacity];
+            this.spin = new float[capacity];
+            this.scale = new float[capacity];
+            this.alpha = new float[capacity];
+        }
+        
+        private void move(int from, int to) {
+            x[to] = x[from];
+            y[to] = y[from];
+            vx[to] = vx[from];
+            vy[to] = vy[from];
+            age[to] = age[from];
+            life[to] = life[from];
+            rotation[to] = rotation[from];
+            spin[to] = spin[from];
+            scale[to] = scale[from];
+            alpha[to] = alpha[from];
+        }
+    }
+    
+    private static final Map<Integer, Array<ParticleStorage>> POOL = new HashMap<>();
+    
+    private static ParticleStorage obtainStorage(int capacity) {
+        capacity = MathUtils.nextPowerOfTwo(Math.max(capacity, 16));
+        synchronized(POOL) {
+            Array<ParticleStorage> free = POOL.get(capacity);
+            if(free != null && free.size > 0) {
+                return free.pop();
+            }
+        }
+        
+        return new ParticleStorage(capacity);
+    }
+    
+    private static void freeStorage(ParticleStorage storage) {
+        synchronized(POOL) {
+            Array<ParticleStorage> free = POOL.get(storage.capacity);
+            if(free == null) {
+                POOL.put(storage.capacity, free = new Array<>(false, 4));
+            }
+            
+            free.add(storage);
+        }
+    }
+    
+    private SpriteSheetWrapper sheet;
+    private int spriteIndex;
+    private Color tint;
+    
+    private float rate;
+    private int maxParticles;
+    private float duration;
+    private float lifeMin, lifeMax;
+    private float speedMin, speedMax;
+    private float angleMin, angleMax;
+    private float spinMin, spinMax;
+    private float scaleStart, scaleEnd;
+    private float alphaStart, alphaEnd;
+    private float gravityX, gravityY;
+    private float offsetX, offsetY;
+    private float drag;
+    
+    private boolean emitting;
+    private float elapsed;
+    private float pending;
+    private float originX, originY;
+    private ParticleStorage storage;
+    private int count;
+    private LuaObjectValue<?> luaValue;
+    
+    public ParticleEmitter() {
+        this.tint = new Color(Color.WHITE);
+        this.rate = 10F;
+        this.maxParticles = 100;
+        this.duration = 0F;
+        this.lifeMin = this.lifeMax = 1F;
+        this.speedMin = this.speedMax = 0F;
+        this.angleMin = 0F;
+        this.angleMax = 360F;
+        this.spinMin = this.spinMax = 0F;
+        this.scaleStart = this.scaleEnd = 1F;
+        this.alphaStart = 1F;
+        this.alphaEnd = 0F;
+        this.emitting = false;
+        this.count = 0;
+    }
+    
+    public SpriteSheetWrapper getSpriteSheet() {
+        return sheet;
+    }
+    
+    public int getSpriteIndex() {
+        return spriteIndex;
+    }
+    
+    public void setSprite(SpriteSheetWrapper sheet, int spriteIndex) {
+        if(this.sheet != null && this.sheet != sheet) {
+            this.sheet.removeReference(this);
+        }
+        
+        this.sheet = sheet;
+        this.spriteIndex = spriteIndex;
+    }
+    
+    public Color getTint() {
+        return tint;
+    }
+    
+    public void setTint(Color tint) {
+        this.tint.set(tint);
+    }
+    
+    /**
+     * Sets the amount of particles emitted per second while
+     * emitting.
+     */
+    public void setRate(float rate) {
+        this.rate = Math.max(rate, 0F);
+    }
+    
+    public int getMaxParticles() {
+        return maxParticles;
+    }
+    
+    public void setMaxParticles(int maxParticles) {
+        this.maxParticles = Math.max(maxParticles, 0);
+        if(this.count > this.maxParticles) {
+            this.count = this.maxParticles;
+        }
+    }
+    
+    /**
+     * Sets how long, in seconds, the emitter emits for once
+     * started. A duration of 0 or less emits until stopped.
+     */
+    public void setDuration(float duration) {
+        this.duration = duration;
+    }
+    
+    /**
+     * Sets the range of lifetimes, in seconds, of new particles.
+     */
+    public void setLife(float min, float max) {
+        this.lifeMin = Math.max(min, 0F);
+        this.lifeMax = Math.max(max, this.lifeMin);
+    }
+    
+    /**
+     * Sets the range of speeds, in units per second, of new
+     * particles.
+     */
+    public void setSpeed(float min, float max) {
+        this.speedMin = min;
+        this.speedMax = max;
+    }
+    
+    /**
+     * Sets the range of directions, in degrees, new particles
+     * are emitted towards.
+     */
+    public void setAngle(float min, float max) {
+        this.angleMin = min;
+        this.angleMax = max;
+    }
+    
+    /**
+     * Sets the range of rotation speeds, in degrees per second,
+     * of new particles.
+     */
+    public void setSpin(float min, float max) {
+        this.spinMin = min;
+        this.spinMax = max;
+    }
+    
+    /**
+     * Sets the scale particles have when emitted and when
+     * expiring, interpolated linearly in between.
+     */
+    public void setScale(float start, float end) {
+        this.scaleStart = start;
+        this.scaleEnd = end;
+    }
+    
+    /**
+     * Sets the alpha particles have when emitted and when
+     * expiring, interpolated linearly in between.
+     */
+    public void setAlpha(float start, float end) {
+        this.alphaStart = start;
+        this.alphaEnd = end;
+    }
+    
+    /**
+     * Sets the acceleration, in units per second squared,
+     * applied to every particle.
+     */
+    public void setGravity(float x, float y) {
+        this.gravityX = x;
+        this.gravityY = y;
+    }
+    
+    /**
+     * Sets the fraction of their velocity particles lose per
+     * second.
+     */
+    public void setDrag(float drag) {
+        this.drag = Math.max(drag, 0F);
+    }
+    
+    /**
+     * Sets the offset of the emission point from the origin
+     * given by the emitter's owner.
+     */
+    public void setOffset(float x, float y) {
+        this.offsetX = x;
+        this.offsetY = y;
+    }
+    
+    public boolean isEmitting() {
+        return emitting;
+    }
+    
+    /**
+     * Returns whether or not the emitter has stopped emitting
+     * and all of its particles have expired.
+     */
+    public boolean isFinished() {
+        return !emitting && count == 0;
+    }
+    
+    public int getParticleCount() {
+        return count;
+    }
+    
+    public void start() {
+        this.emitting = true;
+        this.elapsed = 0F;
+        this.pending = 0F;
+    }
+    
+    public void stop() {
+        this.emitting = false;
+    }
+    
+    /**
+     * Emits the provided amount of particles at once, from the
+     * last origin the emitter was updated with.
+     */
+    public void burst(int amount) {
+        this.emit(amount);
+    }
+    
+    /**
+     * Removes every live particle, handing the emitter's
+     * particle storage back to the pool.
+     */
+    public void clear() {
+        this.count = 0;
+        if(storage != null) {
+            freeStorage(storage);
+            storage = null;
+        }
+    }
+    
+    /**
+     * Emits new particles and advances every live particle.
+     * 
+     * @param delta the time passed, in seconds
+     * @param originX the x position of the emitter's owner
+     * @param originY the y position of the emitter's owner
+     */
+    public void update(float delta, float originX, float originY) {
+        this.originX = originX;
+        this.originY = originY;
+        if(emitting) {
+            elapsed += delta;
+            pending += rate * delta;
+            int amount = (int) pending;
+            pending -= amount;
+            this.emit(amount);
+            
+            if(duration > 0 && elapsed >= duration) {
+                emitting = false;
+            }
+        }
+        
+        if(count == 0) {
+            if(!emitting) {
+                this.clear();
+            }
+            
+            return;
+        }
+        
+        ParticleStorage s = this.storage;
+        float dragFactor = Math.max(1F - drag * delta, 0F);
+        float scaleRange = scaleEnd - scaleStart;
+        float alphaRange = alphaEnd - alphaStart;
+        for(int i = count - 1; i >= 0; i--) {
+            float age = s.age[i] += delta;
+            if(age >= s.life[i]) {
+                s.move(--count, i); // swap the last particle in
+                continue;
+            }
+            
+            s.vx[i] = (s.vx[i] + gravityX * delta) * dragFactor;
+            s.vy[i] = (s.vy[i] + gravityY * delta) * dragFactor;
+            s.x[i] += s.vx[i] * delta;
+            s.y[i] += s.vy[i] * delta;
+            s.rotation[i] += s.spin[i] * delta;
+            
+            float progress = age / s.life[i];
+            s.scale[i] = scaleStart + scaleRange * progress;
+            s.alpha[i] = alphaStart + alphaRange * progress;
+        }
+    }
+    
+    /**
+     * Draws every live particle.
+     * 
+     * @param alpha the alpha to multiply the alpha of each
+     *        particle with
+     */
+    public void draw(float alpha) {
+        if(count == 0 || sheet == null) {
+            return;
+        }
+        
+        SpriteSheet spriteSheet = sheet.getReference(this);
+        if(spriteSheet == null) {
+            return;
+        }
+        
+        Sprite sprite = spriteSheet.getSprite(spriteIndex);
+        ParticleStorage s = this.storage;
+        Undertailor.getRenderer().drawParticles(sprite.getTextureRegion(), s.x, s.y, s.scale, s.rotation, s.alpha, count, tint, alpha);
+    }
+    
+    private void emit(int amount) {
+        amount = Math.min(amount, maxParticles - count);
+        if(amount <= 0) {
+            return;
+        }
+        
+        if(storage == null || storage.capacity < count + amount) {
+            ParticleStorage grown = obtainStorage(maxParticles);
+            if(storage != null) {
+                for(int i = 0; i < count; i++) {
+                    copy(storage, i, grown);
+                }
+                
+                freeStorage(storage);
+            }
+            
+            storage = grown;
+        }
+        
+        ParticleStorage s = this.storage;
+        float x = originX + offsetX;
+        float y = originY + offsetY;
+        for(int i = count; i < count + amount; i++) {
+            float angle = MathUtils.random(angleMin, angleMax);
+            float speed = MathUtils.random(speedMin, speedMax);
+            s.x[i] = x;
+            s.y[i] = y;
+            s.vx[i] = MathUtils.cosDeg(angle) * speed;
+            s.vy[i] = MathUtils.sinDeg(angle) * speed;
+            s.age[i] = 0F;
+            s.life[i] = MathUtils.random(lifeMin, lifeMax);
+            s.rotation[i] = 0F;
+            s.spin[i] = MathUtils.random(spinMin, spinMax);
+            s.scale[i] = scaleStart;
+            s.alpha[i] = alphaStart;
+        }
+        
+        count += amount;
+    }
+    
+    private static void copy(ParticleStorage from, int index, ParticleStorage to) {
+        to.x[index] = from.x[index];
+        to.y[index] = from.y[index];
+        to.vx[index] = from.vx[index];
+        to.vy[index] = from.vy[index];
+        to.age[index] = from.age[index];
+        to.life[index] = from.life[index];
+        to.rotation[index] = from.rotation[index];
+        to.spin[index] = from.spin[index];
+        to.scale[index] = from.scale[index];
+        to.alpha[index] = from.alpha[index];
+    }
+    
+    @Override
+    public LuaObjectValue<?> getCachedObjectValue() {
+        return luaValue;
+    }
+    
+    @Override
+    public void setCachedObjectValue(LuaObjectValue<?> value) {
+        this.luaValue = value;
+    }
+}
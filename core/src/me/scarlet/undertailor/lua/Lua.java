@@ -35,6 +35,8 @@ import me.scarlet.undertailor.lua.lib.game.AudioLib;
 import me.scarlet.undertailor.lua.lib.game.EnvironmentLib;
 import me.scarlet.undertailor.lua.lib.game.GraphicsLib;
 import me.scarlet.undertailor.lua.lib.game.LoggerLib;
+import me.scarlet.undertailor.lua.lib.game.ParticlesLib;
+import me.scarlet.undertailor.lua.lib.game.ProjectilesLib;
 import me.scarlet.undertailor.lua.lib.meta.LuaBoundingCircleMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaBoundingRectangleMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaEntrypointMeta;
@@ -73,6 +75,8 @@ public class Lua {
     public static final String TYPENAME_SOUND = "tailor-audio-sound";
     public static final String TYPENAME_MUSIC = "tailor-audio-music";
     public static final String TYPENAME_ENVIRONMENT = "tailor-environment";
+    public static final String TYPENAME_PARTICLEEMITTER = "tailor-particleemitter";
+    public static final String TYPENAME_PROJECTILEPATTERN = "tailor-projectilepattern";
     
     // typenames of objects with normal metatables
     public static final String TYPENAME_WORLDOBJECT = "tailor-worldobj";
@@ -89,6 +93,32 @@ public class Lua {
     public static final String TYPENAME_OVERWORLDCONTROLLER = "tailor-ovwcontroller";
     public static final String TYPENAME_UICONTROLLER = "tailor-uicontroller";
     public static final String TYPENAME_SCHEDULER = "tailor-scheduler";
+
+    // type ids, for identity type checks against LuaObjectValues
+    public static final int TYPEID_TEXTCOMPONENT = LuaObjectValue.getTypeId(TYPENAME_TEXTCOMPONENT);
+    public static final int TYPEID_DISPLAYMETA = LuaObjectValue.getTypeId(TYPENAME_DISPLAYMETA);
+    public static final int TYPEID_ANIMATION = LuaObjectValue.getTypeId(TYPENAME_ANIMATION);
+    public static final int TYPEID_TEXT = LuaObjectValue.getTypeId(TYPENAME_TEXT);
+    public static final int TYPEID_COLOR = LuaObjectValue.getTypeId(TYPENAME_COLOR);
+    public static final int TYPEID_SOUND = LuaObjectValue.getTypeId(TYPENAME_SOUND);
+    public static final int TYPEID_MUSIC = LuaObjectValue.getTypeId(TYPENAME_MUSIC);
+    public static final int TYPEID_ENVIRONMENT = LuaObjectValue.getTypeId(TYPENAME_ENVIRONMENT);
+    public static final int TYPEID_PARTICLEEMITTER = LuaObjectValue.getTypeId(TYPENAME_PARTICLEEMITTER);
+    public static final int TYPEID_PROJECTILEPATTERN = LuaObjectValue.getTypeId(TYPENAME_PROJECTILEPATTERN);
+    public static final int TYPEID_WORLDOBJECT = LuaObjectValue.getTypeId(TYPENAME_WORLDOBJECT);
+    public static final int TYPEID_WORLDROOM = LuaObjectValue.getTypeId(TYPENAME_WORLDROOM);
+    public static final int TYPEID_UICOMPONENT = LuaObjectValue.getTypeId(TYPENAME_UICOMPONENT);
+    public static final int TYPEID_BOUNDINGBOX_CIRCLE = LuaObjectValue.getTypeId(TYPENAME_BOUNDINGBOX_CIRCLE);
+    public static final int TYPEID_BOUNDINGBOX_RECTANGLE = LuaObjectValue.getTypeId(TYPENAME_BOUNDINGBOX_RECTANGLE);
+    public static final int TYPEID_ENTRYPOINT = LuaObjectValue.getTypeId(TYPENAME_ENTRYPOINT);
+    public static final int TYPEID_PRESSDATA = LuaObjectValue.getTypeId(TYPENAME_PRESSDATA);
+    public static final int TYPEID_INPUTDATA = LuaObjectValue.getTypeId(TYPENAME_INPUTDATA);
+    public static final int TYPEID_STYLE = LuaObjectValue.getTypeId(TYPENAME_STYLE);
+    public static final int TYPEID_UIOBJECT = LuaObjectValue.getTypeId(TYPENAME_UIOBJECT);
+    public static final int TYPEID_WORLDMAP = LuaObjectValue.getTypeId(TYPENAME_WORLDMAP);
+    public static final int TYPEID_OVERWORLDCONTROLLER = LuaObjectValue.getTypeId(TYPENAME_OVERWORLDCONTROLLER);
+    public static final int TYPEID_UICONTROLLER = LuaObjectValue.getTypeId(TYPENAME_UICONTROLLER);
+    public static final int TYPEID_SCHEDULER = LuaObjectValue.getTypeId(TYPENAME_SCHEDULER);
     
     // metatables
     public static final LuaValue META_WORLDOBJECT = LuaLibrary.asMetatable(new LuaWorldObjectMeta());
@@ -118,6 +148,8 @@ public class Lua {
     public static final AudioLib LIB_AUDIO = new AudioLib();
     public static final AnimationLib LIB_ANIMATION = new AnimationLib();
     public static final GraphicsLib LIB_GRAPHICS = new GraphicsLib();
+    public static final ParticlesLib LIB_PARTICLES = new ParticlesLib();
+    public static final ProjectilesLib LIB_PROJECTILES = new ProjectilesLib();
     public static final LoggerLib LIB_LOGGER = new LoggerLib();
     public static final StoreLib LIB_STORE = new StoreLib();
     public static final EnvironmentLib LIB_ENVIRONMENT = new EnvironmentLib();
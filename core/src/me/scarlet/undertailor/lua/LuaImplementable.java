@@ -36,8 +36,12 @@ import org.luaj.vm2.Varargs;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Base class for any objects that could be implemented by a lua script.
@@ -99,6 +103,55 @@ public interface LuaImplementable<R, T extends LuaImplementation> {
         return setFunctions;
     }
     
+    /**
+     * Returns the IDs, within the provided mapping of script
+     * IDs to their files, that were loaded from the provided
+     * script file.
+     * 
+     * @param loadedFiles the mapping of script IDs to script files
+     * @param scriptFile the script file to look for
+     */
+    public static List<String> getScriptIds(Map<String, File> loadedFiles, File scriptFile) {
+        List<String> ids = new ArrayList<>();
+        File target = scriptFile.getAbsoluteFile();
+        for(Entry<String, File> entry : loadedFiles.entrySet()) {
+            if(entry.getValue().getAbsoluteFile().equals(target)) {
+                ids.add(entry.getKey());
+            }
+        }
+        
+        return ids;
+    }
+    
+    /**
+     * Swaps the provided functions into live implementations,
+     * replacing the functions they were created with.
+     * 
+     * <p>Functions are set upon each implementation's object
+     * value as well, overwriting any function the script had
+     * assigned under the same name since. Functions the new
+     * set no longer has are removed.</p>
+     * 
+     * @param implementable the implementable the implementations
+     *            were loaded by
+     * @param implementations the implementations to update
+     * @param functions the new set of functions
+     */
+    public static void swapFunctions(LuaImplementable<?, ?> implementable, Collection<? extends LuaImplementation> implementations, Map<String, LuaFunction> functions) {
+        for(LuaImplementation impl : new ArrayList<>(implementations)) {
+            impl.setFunctions(functions);
+            LuaObjectValue<?> value = impl.getObjectValue();
+            if(value == null) {
+                continue;
+            }
+            
+            for(String func : implementable.getFunctions()) {
+                LuaFunction function = functions.get(func);
+                value.rawset(func, function == null ? LuaValue.NIL : function);
+            }
+        }
+    }
+    
     /**
      * Returns the required functions for an implementation of this Lua object.
      * 
@@ -193,6 +246,22 @@ public interface LuaImplementable<R, T extends LuaImplementation> {
      */
     public void loadFunctions(String scriptId, R loaded, Globals globals, boolean replace) throws LuaScriptException;
     
+    /**
+     * Reloads every set of functions that was loaded from the
+     * provided script file, swapping the new functions into
+     * live implementations created from them.
+     * 
+     * <p>Implementables that do not support reloading simply
+     * ignore this call. Functions previously loaded stay in
+     * place if the script fails to load.</p>
+     * 
+     * @param scriptFile the script file that changed
+     * 
+     * @throws LuaScriptException if an error occurs loading the
+     *             functions from the changed file
+     */
+    public default void reloadFile(File scriptFile) throws LuaScriptException {}
+    
     /**
      * Loads function data tagged with the given ID into a
      * {@link LuaImplementation} generated by this {@link LuaImplementable}.
@@ -242,7 +311,12 @@ public interface LuaImplementable<R, T extends LuaImplementation> {
     }
     
     public default T load(String scriptId, R loaded, Varargs args) throws LuaScriptException {
-        this.loadFunctions(scriptId, loaded);
-        return load(scriptId, args);
+        T returned = load(scriptId, args);
+        if(returned == null) { // only prepare an environment if nothing's loaded under the id yet
+            this.loadFunctions(scriptId, loaded);
+            returned = load(scriptId, args);
+        }
+        
+        return returned;
     }
 }
@@ -25,6 +25,7 @@
 package me.scarlet.undertailor.lua;
 
 import me.scarlet.undertailor.manager.ScriptManager;
+import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
@@ -118,6 +119,43 @@ public class LuaLibrary extends TwoArgFunction implements LuaLibraryComponent {
         public abstract Varargs execute(Varargs args);
     }
     
+    /**
+     * {@link LibraryFunction} taking exactly one argument.
+     * 
+     * <p>Calls passing a single argument, such as method calls without
+     * parameters, go straight to {@link #call(LuaValue)} without packing their
+     * arguments into a {@link Varargs}. Any other call goes through
+     * {@link #execute(Varargs)}, and fails the argument count check.</p>
+     */
+    public static abstract class OneArgLibraryFunction extends LibraryFunction {
+        
+        @Override
+        public abstract LuaValue call(LuaValue arg);
+        
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            return this.call(args.arg1());
+        }
+    }
+    
+    /**
+     * {@link LibraryFunction} taking exactly two arguments.
+     * 
+     * @see OneArgLibraryFunction
+     */
+    public static abstract class TwoArgLibraryFunction extends LibraryFunction {
+        
+        @Override
+        public abstract LuaValue call(LuaValue arg1, LuaValue arg2);
+        
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 2);
+            return this.call(args.arg1(), args.arg(2));
+        }
+    }
+    
     private String libName;
     private Set<LuaLibraryComponent> values;
     
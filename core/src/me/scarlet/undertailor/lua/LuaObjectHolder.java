@@ -0,0 +1,48 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+/**
+ * An object holding onto its own {@link LuaObjectValue}.
+ * 
+ * <p>Objects handed to Lua often enough to matter should implement this, so
+ * that {@link LuaObjectValue#of(Object, String, org.luaj.vm2.LuaValue)} reads the wrapper
+ * from the object itself instead of searching the shared wrapper cache.</p>
+ */
+public interface LuaObjectHolder {
+    
+    /**
+     * Returns the {@link LuaObjectValue} cached by this object, or null if
+     * one has yet to be made.
+     */
+    public LuaObjectValue<?> getCachedObjectValue();
+    
+    /**
+     * Sets the {@link LuaObjectValue} cached by this object.
+     * 
+     * @param value the object value to cache, or null to clear it
+     */
+    public void setCachedObjectValue(LuaObjectValue<?> value);
+}
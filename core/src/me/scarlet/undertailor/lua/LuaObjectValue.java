@@ -29,6 +29,9 @@ import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -46,6 +49,42 @@ import java.util.WeakHashMap;
 public class LuaObjectValue<T> extends LuaTable {
     
     private static Map<Object, LuaObjectValue<?>> objects = new WeakHashMap<>();
+    private static Map<String, Integer> typeIds = new HashMap<>();
+    private static List<String> typeNames = new ArrayList<>();
+    
+    /**
+     * Returns the integer type id assigned to the given Lua typename,
+     * assigning a new one if the typename hasn't been seen before.
+     * 
+     * <p>Type ids allow type checks against {@link LuaObjectValue}s to be a
+     * single integer comparison; see
+     * {@link me.scarlet.undertailor.util.LuaUtil#checkType(LuaValue, int)}.</p>
+     * 
+     * @param typename the typename to get the id of
+     */
+    public static synchronized int getTypeId(String typename) {
+        Integer id = typeIds.get(typename);
+        if(id == null) {
+            id = typeNames.size();
+            typeNames.add(typename);
+            typeIds.put(typename, id);
+        }
+        
+        return id;
+    }
+    
+    /**
+     * Returns the typename assigned the given type id, or null if none was.
+     * 
+     * @param typeId the type id
+     */
+    public static synchronized String getTypeName(int typeId) {
+        if(typeId < 0 || typeId >= typeNames.size()) {
+            return null;
+        }
+        
+        return typeNames.get(typeId);
+    }
     
     /**
      * Instantiates a new {@link LuaObjectValue} containing the given object,
@@ -73,6 +112,9 @@ public class LuaObjectValue<T> extends LuaTable {
      * the use of {@link #destroyObjectValue(Object)}, allowing a new instance
      * to be made and stored through this method.</p>
      * 
+     * <p>Objects implementing {@link LuaObjectHolder} store their object value
+     * themselves; only other types go through the shared cache.</p>
+     * 
      * @param object the object to contain
      * @param typename the typename for Lua to recognize this object as
      * @param metatable the metatable to assign to this object, or null to not
@@ -80,11 +122,24 @@ public class LuaObjectValue<T> extends LuaTable {
      */
     @SuppressWarnings("unchecked")
     public static <T> LuaObjectValue<T> of(T object, String typename, LuaValue metatable) {
-        if(!objects.containsKey(object)) {
-            objects.put(object, new LuaObjectValue<T>(object, typename, metatable));
+        if(object instanceof LuaObjectHolder) {
+            LuaObjectHolder holder = (LuaObjectHolder) object;
+            LuaObjectValue<?> cached = holder.getCachedObjectValue();
+            if(cached == null) {
+                cached = new LuaObjectValue<T>(object, typename, metatable);
+                holder.setCachedObjectValue(cached);
+            }
+            
+            return (LuaObjectValue<T>) cached;
+        }
+        
+        LuaObjectValue<?> stored = objects.get(object);
+        if(stored == null) {
+            stored = new LuaObjectValue<T>(object, typename, metatable);
+            objects.put(object, stored);
         }
         
-        return (LuaObjectValue<T>) objects.get(object);
+        return (LuaObjectValue<T>) stored;
     }
     
     /**
@@ -100,10 +155,15 @@ public class LuaObjectValue<T> extends LuaTable {
      *            {@link LuaObjectValue}
      */
     public static void destroyObjectValue(Object object) {
-        objects.remove(object);
+        if(object instanceof LuaObjectHolder) {
+            ((LuaObjectHolder) object).setCachedObjectValue(null);
+        } else {
+            objects.remove(object);
+        }
     }
     
     private T object;
+    private int typeId;
     private String typename;
     private LuaValue metatable;
     
@@ -119,6 +179,7 @@ public class LuaObjectValue<T> extends LuaTable {
         }
         
         this.object = object;
+        this.typeId = getTypeId(typename);
         this.typename = typename;
         this.metatable = metatable;
         this.setmetatable(metatable);
@@ -131,6 +192,15 @@ public class LuaObjectValue<T> extends LuaTable {
         return object;
     }
     
+    /**
+     * Returns the type id of this {@link LuaObjectValue}.
+     * 
+     * @see #getTypeId(String)
+     */
+    public int getTypeId() {
+        return typeId;
+    }
+    
     /**
      * Overrides the default rawset method in order to detect changes to visible
      * properties of the contained script.
@@ -0,0 +1,122 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.LuaC;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of compiled script {@link Prototype}s, keyed by script file and
+ * validated against the file's modification time and size.
+ * 
+ * <p>Prototypes hold no state of their own and may back any number of closures
+ * bound to different environments, so a script is only ever parsed again once
+ * its file has changed.</p>
+ */
+public class PrototypeCache {
+    
+    private static class CachedPrototype {
+        
+        private long modified;
+        private long length;
+        private Prototype prototype;
+        
+    }
+    
+    private static Map<String, CachedPrototype> prototypes = new HashMap<>();
+    
+    /**
+     * Returns the compiled main chunk of the provided script,
+     * compiling it if it wasn't cached or had changed since it
+     * was.
+     * 
+     * @param scriptFile the script to get the prototype of
+     * 
+     * @return the script's prototype
+     * 
+     * @throws FileNotFoundException if the script file does not
+     *         exist
+     * @throws IOException if the script file could not be read
+     */
+    public static Prototype getPrototype(File scriptFile) throws IOException {
+        if(!scriptFile.isFile()) {
+            throw new FileNotFoundException(scriptFile.getAbsolutePath());
+        }
+        
+        String key = scriptFile.getAbsolutePath();
+        long modified = scriptFile.lastModified();
+        long length = scriptFile.length();
+        synchronized(prototypes) {
+            CachedPrototype cached = prototypes.get(key);
+            if(cached != null && cached.modified == modified && cached.length == length) {
+                return cached.prototype;
+            }
+        }
+        
+        Prototype prototype;
+        try(InputStream stream = new FileInputStream(scriptFile)) {
+            prototype = LuaC.instance.compile(stream, "@" + scriptFile.getName());
+        }
+        
+        CachedPrototype cached = new CachedPrototype();
+        cached.modified = modified;
+        cached.length = length;
+        cached.prototype = prototype;
+        synchronized(prototypes) {
+            prototypes.put(key, cached);
+        }
+        
+        return prototype;
+    }
+    
+    /**
+     * Drops the cached prototype of the provided script, if
+     * any.
+     * 
+     * @param scriptFile the script to forget
+     */
+    public static void invalidate(File scriptFile) {
+        synchronized(prototypes) {
+            prototypes.remove(scriptFile.getAbsolutePath());
+        }
+    }
+    
+    /**
+     * Drops every cached prototype.
+     */
+    public static void clear() {
+        synchronized(prototypes) {
+            prototypes.clear();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * {@link LuaTable} that can no longer be modified once built.
+ * 
+ * <p>Used to hold library tables shared by every script environment, so that
+ * no script can change what another one sees. Assignments that would not
+ * change the table, such as setting a key to the value it already has, are
+ * allowed.</p>
+ */
+public class ReadOnlyTable extends LuaTable {
+    
+    /**
+     * Returns a read-only copy of the provided table. Plain
+     * tables held within it are copied as read-only tables
+     * as well; every other value is shared as it is.
+     * 
+     * @param table the table to copy
+     * 
+     * @return a read-only copy of the table
+     */
+    public static ReadOnlyTable copyOf(LuaTable table) {
+        return copyOf(table, new IdentityHashMap<>());
+    }
+    
+    private static ReadOnlyTable copyOf(LuaTable table, Map<LuaValue, ReadOnlyTable> copies) {
+        ReadOnlyTable copy = copies.get(table);
+        if(copy != null) {
+            return copy;
+        }
+        
+        copy = new ReadOnlyTable();
+        copies.put(table, copy);
+        
+        LuaValue key = LuaValue.NIL;
+        while(true) {
+            Varargs pair = table.next(key);
+            if((key = pair.arg1()).isnil()) {
+                break;
+            }
+            
+            LuaValue value = pair.arg(2);
+            if(value.getClass() == LuaTable.class) {
+                value = copyOf((LuaTable) value, copies);
+            }
+            
+            copy.rawset(key, value);
+        }
+        
+        copy.setmetatable(table.getmetatable());
+        copy.frozen = true;
+        return copy;
+    }
+    
+    private boolean frozen;
+    
+    private ReadOnlyTable() {
+        this.frozen = false;
+    }
+    
+    @Override
+    public LuaValue setmetatable(LuaValue metatable) {
+        checkWritable();
+        return super.setmetatable(metatable);
+    }
+    
+    @Override
+    public void rawset(int key, LuaValue value) {
+        if(!frozen || !rawget(key).raweq(value)) {
+            checkWritable();
+            super.rawset(key, value);
+        }
+    }
+    
+    @Override
+    public void rawset(LuaValue key, LuaValue value) {
+        if(!frozen || !rawget(key).raweq(value)) {
+            checkWritable();
+            super.rawset(key, value);
+        }
+    }
+    
+    @Override
+    public LuaValue remove(int pos) {
+        checkWritable();
+        return super.remove(pos);
+    }
+    
+    @Override
+    public void insert(int pos, LuaValue value) {
+        checkWritable();
+        super.insert(pos, value);
+    }
+    
+    @Override
+    public void sort(LuaValue comparator) {
+        checkWritable();
+        super.sort(comparator);
+    }
+    
+    private void checkWritable() {
+        if(frozen) {
+            throw new LuaError("attempt to modify a read-only library table");
+        }
+    }
+}
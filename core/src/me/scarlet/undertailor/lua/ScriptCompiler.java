@@ -0,0 +1,328 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.Undertailor;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.luajc.LuaJC;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Optional compiler turning Lua scripts into JVM bytecode through LuaJ's
+ * {@link LuaJC}, so that the JIT may optimise them like any other Java code.
+ * 
+ * <p>Compilation is opt-in, either by starting the engine with the
+ * <code>-Dundertailor.luajc=true</code> system property or through
+ * {@link #setEnabled(boolean)}. Generated classes are kept in memory and
+ * written under {@link #getCacheDirectory()}, keyed by the hash of the script
+ * they were generated from, and are loaded straight from there on later runs
+ * instead of being regenerated. Once a script changes, the classes
+ * generated from its previous source are dropped.</p>
+ * 
+ * <p>Compiled scripts bypass the {@link PrototypeCache} and never call the
+ * debug hook; the {@link ScriptWatchdog} cannot stop them, and the script
+ * warm-up list only applies to the interpreter. A warning is logged the
+ * first time a script is loaded with compilation enabled.</p>
+ * 
+ * <p>LuaJC requires BCEL on the classpath and does not support every script.
+ * Scripts that fail to compile for any reason are remembered and left to the
+ * interpreter; {@link #load(Globals, File)} simply returns null for them.</p>
+ */
+public class ScriptCompiler {
+    
+    public static final String COMPILER_TAG = "luajc";
+    public static final String PROPERTY_ENABLED = "undertailor.luajc";
+    
+    private static final String CLASS_EXTENSION = ".class";
+    
+    private static volatile boolean enabled;
+    private static volatile boolean warned;
+    private static File cacheDirectory;
+    private static Map<String, Class<?>> compiled;
+    private static Map<String, String> current;
+    private static Set<String> failed;
+    
+    static {
+        enabled = Boolean.getBoolean(PROPERTY_ENABLED);
+        warned = false;
+        compiled = new HashMap<>();
+        current = new HashMap<>();
+        failed = new HashSet<>();
+    }
+    
+    /**
+     * Returns whether or not scripts are compiled to bytecode when loaded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Sets whether or not scripts are compiled to bytecode when loaded. Scripts
+     * already loaded are unaffected.
+     * 
+     * @param flag whether or not to compile scripts
+     */
+    public static void setEnabled(boolean flag) {
+        enabled = flag;
+    }
+    
+    /**
+     * Returns the directory generated classes are cached in.
+     * 
+     * <p>Defaults to <code>.cache/luajc/</code> within the assets
+     * directory.</p>
+     */
+    public static synchronized File getCacheDirectory() {
+        if(cacheDirectory == null) {
+            cacheDirectory = new File(Undertailor.ASSETS_DIRECTORY, ".cache/luajc/");
+        }
+        
+        return cacheDirectory;
+    }
+    
+    /**
+     * Sets the directory generated classes are cached in.
+     * 
+     * @param directory the new cache directory
+     */
+    public static synchronized void setCacheDirectory(File directory) {
+        cacheDirectory = directory;
+    }
+    
+    /**
+     * Returns whether or not the provided value is a function generated by this
+     * compiler.
+     * 
+     * @param value the value to check
+     */
+    public static boolean isCompiledFunction(LuaValue value) {
+        return value instanceof LuaFunction && value.getClass().getClassLoader() instanceof CompiledScriptLoader;
+    }
+    
+    /**
+     * Returns the compiled main chunk of the provided script, bound to the
+     * provided {@link Globals}.
+     * 
+     * <p>Returns null if compilation is disabled or the script could not be
+     * compiled, in which case the caller should load the script through the
+     * interpreter.</p>
+     * 
+     * @param globals the environment to bind the chunk to
+     * @param scriptFile the script to load
+     * 
+     * @return the compiled chunk, or null
+     * 
+     * @throws IOException if the script could not be read
+     */
+    public static LuaFunction load(Globals globals, File scriptFile) throws IOException {
+        if(!enabled) {
+            return null;
+        }
+        
+        if(!warned) {
+            warned = true;
+            Undertailor.instance.warn(COMPILER_TAG, "scripts are compiled to bytecode; the script watchdog cannot interrupt them and the warm-up list is ignored");
+        }
+        
+        byte[] source = Files.readAllBytes(scriptFile.toPath());
+        String key = hash(scriptFile.getName(), source);
+        Class<?> mainClass;
+        synchronized(ScriptCompiler.class) {
+            String previous = current.put(scriptFile.getAbsolutePath(), key);
+            if(previous != null && !previous.equals(key)) { // the script changed since; its old classes are stale
+                compiled.remove(previous);
+                failed.remove(previous);
+            }
+            
+            if(failed.contains(key)) {
+                return null;
+            }
+            
+            mainClass = compiled.get(key);
+            if(mainClass == null) {
+                try {
+                    mainClass = readCache(key);
+                    if(mainClass == null) {
+                        mainClass = compile(key, scriptFile, source, globals);
+                    }
+                } catch(Exception | LinkageError e) {
+                    failed.add(key);
+                    Undertailor.instance.warn(COMPILER_TAG, "could not compile " + scriptFile.getName() + ", falling back to the interpreter (" + e.getClass().getSimpleName() + ": " + e.getMessage() + ")");
+                    return null;
+                }
+                
+                compiled.put(key, mainClass);
+            }
+        }
+        
+        try {
+            LuaFunction chunk = (LuaFunction) mainClass.getDeclaredConstructor().newInstance();
+            chunk.initupvalue1(globals);
+            return chunk;
+        } catch(ReflectiveOperationException e) {
+            synchronized(ScriptCompiler.class) {
+                compiled.remove(key);
+                failed.add(key);
+            }
+            
+            return null;
+        }
+    }
+    
+    /**
+     * Compiles the provided script, storing its classes in the cache directory.
+     */
+    private static Class<?> compile(String key, File scriptFile, byte[] source, Globals globals) throws IOException, ClassNotFoundException {
+        @SuppressWarnings("unchecked")
+        Hashtable<String, byte[]> classes = LuaJC.instance.compileAll(new ByteArrayInputStream(source), scriptFile.getName(), scriptFile.getName(), globals, false);
+        Class<?> mainClass = define(classes);
+        
+        try {
+            writeCache(key, classes);
+        } catch(IOException e) {
+            Undertailor.instance.warn(COMPILER_TAG, "could not cache compiled classes of " + scriptFile.getName() + ": " + e.getMessage());
+        }
+        
+        Undertailor.instance.debug(COMPILER_TAG, "compiled " + scriptFile.getName() + " into " + classes.size() + " class(es)");
+        return mainClass;
+    }
+    
+    /**
+     * Returns the main class of a previously cached script, or null if nothing
+     * was cached under the provided key.
+     */
+    private static Class<?> readCache(String key) throws IOException, ClassNotFoundException {
+        File directory = new File(getCacheDirectory(), key);
+        File[] files = directory.listFiles();
+        if(files == null || files.length == 0) {
+            return null;
+        }
+        
+        Map<String, byte[]> classes = new HashMap<>();
+        for(File file : files) {
+            String name = file.getName();
+            if(name.endsWith(CLASS_EXTENSION)) {
+                classes.put(name.substring(0, name.length() - CLASS_EXTENSION.length()), Files.readAllBytes(file.toPath()));
+            }
+        }
+        
+        return classes.isEmpty() ? null : define(classes);
+    }
+    
+    private static void writeCache(String key, Map<String, byte[]> classes) throws IOException {
+        File target = new File(getCacheDirectory(), key);
+        if(target.isDirectory()) {
+            return;
+        }
+        
+        // write everything aside first so a partial cache entry is never read
+        File temp = new File(getCacheDirectory(), key + ".tmp");
+        temp.mkdirs();
+        for(Entry<String, byte[]> entry : classes.entrySet()) {
+            Files.write(new File(temp, entry.getKey() + CLASS_EXTENSION).toPath(), entry.getValue());
+        }
+        
+        if(!temp.renameTo(target)) {
+            for(File file : temp.listFiles()) {
+                file.delete();
+            }
+            
+            temp.delete();
+        }
+    }
+    
+    private static Class<?> define(Map<String, byte[]> classes) throws ClassNotFoundException {
+        String mainName = null;
+        for(String name : classes.keySet()) {
+            if(name.indexOf('$') == -1) { // nested prototypes are generated as Main$1, Main$2, ...
+                mainName = name;
+                break;
+            }
+        }
+        
+        if(mainName == null) {
+            throw new ClassNotFoundException("no main chunk class was generated");
+        }
+        
+        return new CompiledScriptLoader(classes).loadClass(mainName);
+    }
+    
+    private static String hash(String name, byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(name.getBytes());
+            digest.update((byte) 0);
+            digest.update(source);
+            
+            StringBuilder builder = new StringBuilder();
+            for(byte b : digest.digest()) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            
+            return builder.toString();
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM is required to provide SHA-1
+        }
+    }
+    
+    /**
+     * ClassLoader holding the classes generated from a single script.
+     */
+    private static class CompiledScriptLoader extends ClassLoader {
+        
+        private Map<String, byte[]> classes;
+        
+        public CompiledScriptLoader(Map<String, byte[]> classes) {
+            super(LuaValue.class.getClassLoader());
+            this.classes = new HashMap<>(classes);
+        }
+        
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.remove(name);
+            if(bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.Undertailor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Index of the scripts held within a directory tree, mapping script names to
+ * their files.
+ * 
+ * <p>Script names are the dot-separated path of the script relative to the
+ * indexed directory, without the <code>.lua</code> extension; the script at
+ * <code>objects/npc/toriel.lua</code> indexed from <code>objects/</code> is
+ * named <code>npc.toriel</code>. Hidden directories are skipped.</p>
+ * 
+ * <p>Trees are walked in parallel and the result is written as a manifest
+ * under {@link #getCacheDirectory()}, along with the modification time of
+ * every directory walked. Adding, removing or renaming a script changes the
+ * modification time of its directory, so later runs reuse the manifest
+ * without listing anything as long as all of those times still match.
+ * Nothing is compiled while indexing; owners of an index load scripts on
+ * first use, optionally warming up the ones named in a {@link #WARMUP_FILE}
+ * placed at the root of the tree.</p>
+ */
+public class ScriptIndex {
+    
+    public static final String INDEX_TAG = "scriptindex";
+    public static final String WARMUP_FILE = ".warmup";
+    
+    private static final String SCRIPT_EXTENSION = ".lua";
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final String MANIFEST_HEADER = "# undertailor script manifest v1";
+    
+    private static File cacheDirectory;
+    
+    /**
+     * Returns the directory manifests are cached in.
+     * 
+     * <p>Defaults to <code>.cache/scripts/</code> within the
+     * assets directory.</p>
+     */
+    public static synchronized File getCacheDirectory() {
+        if(cacheDirectory == null) {
+            cacheDirectory = new File(Undertailor.ASSETS_DIRECTORY, ".cache/scripts/");
+        }
+        
+        return cacheDirectory;
+    }
+    
+    /**
+     * Sets the directory manifests are cached in.
+     * 
+     * @param directory the new cache directory
+     */
+    public static synchronized void setCacheDirectory(File directory) {
+        cacheDirectory = directory;
+    }
+    
+    /**
+     * Returns the scripts held within the provided directory
+     * tree, keyed by script name.
+     * 
+     * <p>The cached manifest of the tree is used if it is still
+     * up to date; otherwise the tree is walked and the manifest
+     * rewritten.</p>
+     * 
+     * @param root the directory to index
+     * 
+     * @return a mapping of script names to script files
+     */
+    public static Map<String, File> getScripts(File root) {
+        root = root.getAbsoluteFile();
+        if(!root.isDirectory()) {
+            return new HashMap<>();
+        }
+        
+        File manifest = new File(getCacheDirectory(), hash(root.getPath()) + MANIFEST_EXTENSION);
+        Map<String, File> scripts = readManifest(root, manifest);
+        if(scripts != null) {
+            Undertailor.instance.debug(INDEX_TAG, "using cached script manifest for " + root.getPath());
+            return scripts;
+        }
+        
+        Map<String, File> found = new ConcurrentHashMap<>();
+        Map<String, Long> directories = new ConcurrentHashMap<>();
+        ForkJoinPool.commonPool().invoke(new IndexTask(root, "", "", found, directories));
+        
+        scripts = new HashMap<>(found);
+        try {
+            writeManifest(manifest, scripts, directories, root);
+        } catch(IOException e) {
+            Undertailor.instance.warn(INDEX_TAG, "could not cache script manifest for " + root.getPath() + ": " + e.getMessage());
+        }
+        
+        Undertailor.instance.debug(INDEX_TAG, "indexed " + scripts.size() + " script(s) in " + root.getPath());
+        return scripts;
+    }
+    
+    /**
+     * Returns the names listed in the {@link #WARMUP_FILE} of
+     * the provided directory, one per line, or an empty list if
+     * it has none.
+     * 
+     * @param root the indexed directory
+     */
+    public static List<String> getWarmupNames(File root) {
+        List<String> names = new ArrayList<>();
+        File warmup = new File(root, WARMUP_FILE);
+        if(warmup.isFile()) {
+            try {
+                for(String line : Files.readAllLines(warmup.toPath(), StandardCharsets.UTF_8)) {
+                    line = line.trim();
+                    if(!line.isEmpty() && !line.startsWith("#")) {
+                        names.add(line);
+                    }
+                }
+            } catch(IOException e) {
+                Undertailor.instance.warn(INDEX_TAG, "could not read warm-up list " + warmup.getPath() + ": " + e.getMessage());
+            }
+        }
+        
+        return names;
+    }
+    
+    /**
+     * Compiles the named scripts into the {@link PrototypeCache}
+     * on a background thread, so that their first use does not
+     * have to.
+     * 
+     * @param scripts the index to take the scripts from
+     * @param names the names of the scripts to compile
+     */
+    public static void warmUp(Map<String, File> scripts, Collection<String> names) {
+        List<File> files = new ArrayList<>();
+        for(String name : names) {
+            File file = scripts.get(name);
+            if(file == null) {
+                Undertailor.instance.warn(INDEX_TAG, "warm-up list named non-existing script " + name);
+            } else {
+                files.add(file);
+            }
+        }
+        
+        if(files.isEmpty()) {
+            return;
+        }
+        
+        Thread thread = new Thread(() -> {
+            for(File file : files) {
+                try {
+                    PrototypeCache.getPrototype(file);
+                } catch(Exception e) {
+                    // reported properly once the script is actually loaded
+                    Undertailor.instance.debug(INDEX_TAG, "could not warm up " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        });
+        
+        thread.setName("Tailor Warmup Thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private static Map<String, File> readManifest(File root, File manifest) {
+        if(!manifest.isFile()) {
+            return null;
+        }
+        
+        Map<String, File> scripts = new HashMap<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+            if(!MANIFEST_HEADER.equals(reader.readLine()) || !root.getPath().equals(reader.readLine())) {
+                return null;
+            }
+            
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] entry = line.split("\t", 3);
+                if(entry.length != 3) {
+                    return null;
+                }
+                
+                File file = entry[2].isEmpty() ? root : new File(root, entry[2]);
+                if(entry[0].equals("d")) {
+                    // a changed directory means scripts may have come or gone
+                    if(file.lastModified() != Long.parseLong(entry[1])) {
+                        return null;
+                    }
+                } else if(entry[0].equals("s")) {
+                    scripts.put(entry[1], file);
+                } else {
+                    return null;
+                }
+            }
+        } catch(IOException | NumberFormatException e) {
+            return null;
+        }
+        
+        return scripts;
+    }
+    
+    private static void writeManifest(File manifest, Map<String, File> scripts, Map<String, Long> directories, File root) throws IOException {
+        manifest.getParentFile().mkdirs();
+        File temp = new File(manifest.getPath() + ".tmp");
+        int rootLength = root.getPath().length() + 1;
+        try(BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+            writer.write(root.getPath());
+            writer.newLine();
+            for(Entry<String, Long> entry : directories.entrySet()) {
+                writer.write("d\t" + entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+            
+            for(Entry<String, File> entry : scripts.entrySet()) {
+                writer.write("s\t" + entry.getKey() + "\t" + entry.getValue().getPath().substring(rootLength));
+                writer.newLine();
+            }
+        }
+        
+        Files.move(temp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static String hash(String path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder builder = new StringBuilder();
+            for(byte b : digest.digest(path.getBytes(StandardCharsets.UTF_8))) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            
+            return builder.toString();
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM is required to provide SHA-1
+        }
+    }
+    
+    /**
+     * Lists a single directory, forking a task for each of its
+     * subdirectories.
+     */
+    private static class IndexTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private File directory;
+        private String heading;
+        private String path;
+        private Map<String, File> scripts;
+        private Map<String, Long> directories;
+        
+        public IndexTask(File directory, String heading, String path, Map<String, File> scripts, Map<String, Long> directories) {
+            this.directory = directory;
+            this.heading = heading;
+            this.path = path;
+            this.scripts = scripts;
+            this.directories = directories;
+        }
+        
+        @Override
+        protected void compute() {
+            // read the time first, so a change made while listing invalidates the manifest
+            directories.put(path, directory.lastModified());
+            File[] files = directory.listFiles();
+            if(files == null) {
+                return;
+            }
+            
+            List<IndexTask> subtasks = new ArrayList<>();
+            for(File file : files) {
+                String name = file.getName();
+                if(file.isDirectory()) {
+                    if(!name.startsWith(".")) {
+                        subtasks.add(new IndexTask(file, heading + name + ".", path + name + File.separator, scripts, directories));
+                    }
+                } else if(name.endsWith(SCRIPT_EXTENSION)) {
+                    scripts.put(heading + name.substring(0, name.length() - SCRIPT_EXTENSION.length()), file);
+                }
+            }
+            
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.manager.ScriptManager;
+import me.scarlet.undertailor.util.DirectoryWatcher;
+import org.luaj.vm2.LuaError;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reloads changed scripts into the {@link LuaImplementable}s of a
+ * {@link ScriptManager} while the engine is running.
+ * 
+ * <p>Changed script files are reported by the shared {@link DirectoryWatcher}
+ * and compiled on the watcher thread through the {@link PrototypeCache}, so
+ * scripts with syntax errors are rejected before anything is touched. Scripts
+ * that compiled are swapped into their implementables, and into the live
+ * implementations made from them, on the next call to {@link #process()},
+ * which the engine makes at the start of every frame.</p>
+ */
+public class ScriptReloader {
+    
+    public static final String RELOADER_TAG = "reloader";
+    
+    private ScriptManager manager;
+    private Queue<File> pending;
+    
+    public ScriptReloader(ScriptManager manager) {
+        this.manager = manager;
+        this.pending = new ConcurrentLinkedQueue<>();
+    }
+    
+    /**
+     * Starts reloading scripts changed within the provided
+     * directory tree.
+     * 
+     * @param directory the directory to watch
+     */
+    public void watch(File directory) {
+        DirectoryWatcher watcher = DirectoryWatcher.getShared();
+        if(watcher != null) {
+            watcher.watch(directory, this::onFileChanged);
+        }
+    }
+    
+    /**
+     * Swaps in every script that changed since the last call.
+     * 
+     * <p>Must be called from the engine thread, between
+     * frames.</p>
+     */
+    public void process() {
+        if(pending.isEmpty()) {
+            return;
+        }
+        
+        Set<File> changed = new LinkedHashSet<>();
+        File file;
+        while((file = pending.poll()) != null) {
+            changed.add(file);
+        }
+        
+        for(File scriptFile : changed) {
+            long start = System.nanoTime();
+            for(LuaImplementable<?, ?> impl : manager.getImplementables()) {
+                try {
+                    impl.reloadFile(scriptFile);
+                } catch(LuaScriptException | LuaError e) {
+                    Undertailor.instance.warn(RELOADER_TAG, "could not reload " + scriptFile.getName() + ", keeping the previous version: " + e.getMessage());
+                }
+            }
+            
+            Undertailor.instance.debug(RELOADER_TAG, "reloaded " + scriptFile.getName() + " in " + ((System.nanoTime() - start) / 1000000.0) + "ms");
+        }
+    }
+    
+    private void onFileChanged(File file) {
+        if(!file.getName().endsWith(".lua")) {
+            return;
+        }
+        
+        try {
+            PrototypeCache.getPrototype(file); // compile here, off the engine thread
+            pending.add(file);
+        } catch(LuaError e) {
+            Undertailor.instance.warn(RELOADER_TAG, "not reloading " + file.getName() + ": " + e.getMessage());
+        } catch(IOException e) {
+            Undertailor.instance.warn(RELOADER_TAG, "could not read changed script " + file.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.DebugLib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Debug library metering the instructions executed by scripts.
+ * 
+ * <p>Installed in place of LuaJ's {@link DebugLib} by the
+ * {@link me.scarlet.undertailor.manager.ScriptManager}, this library is told of
+ * every Lua instruction executed by closures bound to its environment. Calls
+ * made into scripts through {@link #invoke(String, LuaValue, Varargs)} or
+ * {@link #run(String, Supplier)} are counted against the instruction budget,
+ * and aborted with a {@link LuaError} once they exceed it, so a runaway loop
+ * cannot freeze the engine.</p>
+ * 
+ * <p>Every metered call also records the time and instructions it took under
+ * the name of its script, readable through {@link #getTopScripts(int)}.</p>
+ * 
+ * <p>Metering is confined to the thread set through {@link #setOwner(Thread)},
+ * the one running the game loop. LuaJ runs coroutines on Java threads of their
+ * own, so coroutines resumed through {@link #resume(LuaThread, Varargs)} take
+ * the meter over for as long as the metered thread waits on them. Calls made
+ * from any other thread run unmetered and are not recorded.</p>
+ * 
+ * <p>Scripts compiled to bytecode by the {@link ScriptCompiler} do not report
+ * their instructions and are therefore only timed.</p>
+ */
+public class ScriptWatchdog extends DebugLib {
+    
+    public static final String WATCHDOG_TAG = "watchdog";
+    public static final long DEFAULT_INSTRUCTION_BUDGET = 10000000L;
+    public static final int MAX_TRACKED_SCRIPTS = 512;
+    public static final String MAIN_CHUNK = "main";
+    
+    /**
+     * Accumulated counters of a single script function.
+     */
+    public static class ScriptStats {
+        
+        private String name;
+        private long calls;
+        private long instructions;
+        private long nanos;
+        private long maxNanos;
+        
+        private ScriptStats(String name) {
+            this.name = name;
+        }
+        
+        private synchronized void record(long nanos, long instructions) {
+            this.calls++;
+            this.nanos += nanos;
+            this.instructions += instructions;
+            if(nanos > this.maxNanos) {
+                this.maxNanos = nanos;
+            }
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public synchronized long getCalls() {
+            return calls;
+        }
+        
+        public synchronized long getInstructions() {
+            return instructions;
+        }
+        
+        /**
+         * Returns the total CPU time spent in this script, in
+         * nanoseconds.
+         */
+        public synchronized long getTime() {
+            return nanos;
+        }
+        
+        /**
+         * Returns the longest single call into this script, in
+         * nanoseconds.
+         */
+        public synchronized long getMaxTime() {
+            return maxNanos;
+        }
+    }
+    
+    /**
+     * Metered name of a function, cached against its
+     * prototype.
+     */
+    private static class MeterName {
+        
+        private String function;
+        private String name;
+        
+        private MeterName(String function, String name) {
+            this.function = function;
+            this.name = name;
+        }
+    }
+    
+    private static volatile Thread metered;
+    private static volatile boolean handoff;
+    private static long budget = DEFAULT_INSTRUCTION_BUDGET;
+    private static long instructions;
+    private static long invocationStart;
+    private static int depth;
+    private static String invocationName;
+    private static Map<String, ScriptStats> stats = new ConcurrentHashMap<>();
+    private static Map<Prototype, MeterName> names = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    /**
+     * Sets the thread whose calls into scripts are metered.
+     * 
+     * @param thread the thread running the game loop
+     */
+    public static void setOwner(Thread thread) {
+        metered = thread;
+    }
+    
+    /**
+     * Returns the amount of instructions a single call into
+     * a script may execute before being aborted. A value of 0
+     * or less disables the limit.
+     */
+    public static long getInstructionBudget() {
+        return budget;
+    }
+    
+    /**
+     * Sets the amount of instructions a single call into a
+     * script may execute before being aborted. A value of 0 or
+     * less disables the limit.
+     * 
+     * @param instructions the new budget
+     */
+    public static void setInstructionBudget(long instructions) {
+        budget = instructions;
+    }
+    
+    /**
+     * Returns the name scripts calls into the provided
+     * function are recorded under, in the format
+     * <code>script.lua:function</code>.
+     * 
+     * <p>Names are cached against the prototype of the
+     * function, so repeated calls into the same script do not
+     * build new strings.</p>
+     * 
+     * @param function the function being called
+     * @param functionName the name of the called function
+     */
+    public static String getScriptName(LuaValue function, String functionName) {
+        if(function instanceof LuaClosure) {
+            Prototype p = ((LuaClosure) function).p;
+            MeterName cached = names.get(p);
+            if(cached == null || !cached.function.equals(functionName)) {
+                String source = p.source.tojstring();
+                cached = new MeterName(functionName, (source.startsWith("@") ? source.substring(1) : source) + ":" + functionName);
+                names.put(p, cached);
+            }
+            
+            return cached.name;
+        }
+        
+        return functionName;
+    }
+    
+    /**
+     * Invokes the provided function as a metered call.
+     * 
+     * @param name the name to record the call under
+     * @param function the function to invoke
+     * @param args the arguments to invoke with
+     * 
+     * @return the function's return values
+     */
+    public static Varargs invoke(String name, LuaValue function, Varargs args) {
+        return run(name, () -> function.invoke(args));
+    }
+    
+    /**
+     * Resumes the provided coroutine, handing the meter over
+     * to it if called from the metered thread.
+     * 
+     * <p>The coroutine's instructions then count towards the
+     * budget of the metered call it was resumed from, and the
+     * meter returns to the calling thread once the coroutine
+     * yields or dies.</p>
+     * 
+     * @param thread the coroutine to resume
+     * @param args the arguments to resume with
+     * 
+     * @return the results of the resume
+     */
+    public static Varargs resume(LuaThread thread, Varargs args) {
+        Thread current = Thread.currentThread();
+        if(current != metered) {
+            return thread.resume(args);
+        }
+        
+        handoff = true;
+        try {
+            return thread.resume(args);
+        } finally {
+            handoff = false;
+            metered = current;
+        }
+    }
+    
+    /**
+     * Runs the provided action as a metered call.
+     * 
+     * <p>Calls made while another metered call is running
+     * count towards the budget of the outermost one, but are
+     * still recorded under their own name. Only the first
+     * {@link #MAX_TRACKED_SCRIPTS} names are recorded until
+     * the counters are {@link #resetStats() reset}.</p>
+     * 
+     * @param name the name to record the call under
+     * @param action the action calling into Lua
+     * 
+     * @return the action's result
+     */
+    public static <T> T run(String name, Supplier<T> action) {
+        if(Thread.currentThread() != metered) {
+            return action.get();
+        }
+        
+        long startTime = System.nanoTime();
+        long startInstructions = instructions;
+        if(depth++ == 0) {
+            invocationStart = startInstructions;
+            invocationName = name;
+        }
+        
+        try {
+            return action.get();
+        } finally {
+            depth--;
+            
+            ScriptStats entry = stats.get(name);
+            if(entry == null && stats.size() < MAX_TRACKED_SCRIPTS) {
+                entry = new ScriptStats(name);
+                stats.put(name, entry);
+            }
+            
+            if(entry != null) {
+                entry.record(System.nanoTime() - startTime, instructions - startInstructions);
+            }
+        }
+    }
+    
+    /**
+     * Returns the counters of the scripts that took the most
+     * CPU time, most expensive first.
+     * 
+     * @param count the maximum amount of scripts to return
+     */
+    public static List<ScriptStats> getTopScripts(int count) {
+        List<ScriptStats> sorted = new ArrayList<>(stats.values());
+        Collections.sort(sorted, (a, b) -> Long.compare(b.getTime(), a.getTime()));
+        return sorted.size() > count ? sorted.subList(0, count) : sorted;
+    }
+    
+    /**
+     * Clears the counters of every script.
+     */
+    public static void resetStats() {
+        stats.clear();
+    }
+    
+    @Override
+    public void onInstruction(int pc, Varargs v, int top) {
+        super.onInstruction(pc, v, top);
+        Thread current = Thread.currentThread();
+        if(current != metered) {
+            if(!handoff) {
+                return;
+            }
+            
+            // the metered thread is blocked resuming a coroutine; its thread takes over
+            metered = current;
+            handoff = false;
+        }
+        
+        if(++instructions - invocationStart > budget && budget > 0 && depth > 0) {
+            // keeps firing until the call unwinds, so pcall can't be used to swallow it
+            throw new LuaError("script " + invocationName + " exceeded its instruction budget of " + budget);
+        }
+    }
+}
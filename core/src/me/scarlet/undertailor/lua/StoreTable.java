@@ -0,0 +1,136 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+/**
+ * {@link LuaTable} that remembers whether it was modified since
+ * it was last saved.
+ * 
+ * <p>Store tables are made when loading a store, and mark
+ * themselves and every store table above them as dirty whenever
+ * they are modified, letting a save skip re-encoding the parts of
+ * a store that were left untouched. A store table only knows of
+ * the last table it was placed into, so one held in two places at
+ * once is flagged as shared and never trusted to be clean.</p>
+ */
+public class StoreTable extends LuaTable {
+    
+    private StoreTable parent;
+    private boolean dirty;
+    private boolean shared;
+    
+    public StoreTable() {
+        this.parent = null;
+        this.dirty = true;
+        this.shared = false;
+    }
+    
+    /**
+     * Returns whether this table, or any table within it, was
+     * modified since it was last marked clean.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+    
+    /**
+     * Returns whether this table was placed within more than one
+     * store table, in which case modifications to it may not reach
+     * every table holding it.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+    
+    /**
+     * Marks this table as clean. Tables within it are left as
+     * they are.
+     */
+    public void markClean() {
+        this.dirty = false;
+    }
+    
+    public void markDirty() {
+        for(StoreTable table = this; table != null && !table.dirty; table = table.parent) {
+            table.dirty = true;
+        }
+    }
+    
+    @Override
+    public void rawset(int key, LuaValue value) {
+        adopt(value);
+        super.rawset(key, value);
+        markDirty();
+    }
+    
+    @Override
+    public void rawset(LuaValue key, LuaValue value) {
+        adopt(value);
+        super.rawset(key, value);
+        markDirty();
+    }
+    
+    @Override
+    public void hashset(LuaValue key, LuaValue value) {
+        adopt(value);
+        super.hashset(key, value);
+        markDirty();
+    }
+    
+    @Override
+    public LuaValue remove(int pos) {
+        LuaValue removed = super.remove(pos);
+        markDirty();
+        return removed;
+    }
+    
+    @Override
+    public void insert(int pos, LuaValue value) {
+        adopt(value);
+        super.insert(pos, value);
+        markDirty();
+    }
+    
+    @Override
+    public void sort(LuaValue comparator) {
+        super.sort(comparator);
+        markDirty();
+    }
+    
+    private void adopt(LuaValue value) {
+        if(value instanceof StoreTable) {
+            StoreTable child = (StoreTable) value;
+            if(child.parent != null && child.parent != this) {
+                child.shared = true;
+                child.parent.markDirty(); // so its last save is not trusted either
+            }
+            
+            child.parent = this;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.impl.StyleImplementable.StyleImplementation;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable.WorldRoomImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaStyleMeta;
@@ -44,8 +45,11 @@ import org.luaj.vm2.Varargs;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class StyleImplementable implements LuaImplementable<File, StyleImplementation>{
 
@@ -85,6 +89,7 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
             }
         }
         
+        private String scriptId;
         private File sourceFile;
         
         @SuppressWarnings("unchecked")
@@ -92,7 +97,7 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
         public DisplayMeta applyCharacter(int charIndex, int textLength) {
             LuaValue returned = (LuaValue) LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_APPLYCHARACTER, obj.get(), LuaValue.valueOf(charIndex), LuaValue.valueOf(textLength));
             if(returned != null) {
-                return ((LuaObjectValue<DisplayMeta>) LuaUtil.checkType(returned, Lua.TYPENAME_DISPLAYMETA)).getObject();
+                return ((LuaObjectValue<DisplayMeta>) LuaUtil.checkType(returned, Lua.TYPEID_DISPLAYMETA)).getObject();
             } else {
                 return null;
             }
@@ -107,7 +112,7 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
         public Style duplicate() {
             try {
                 StyleImplementable impl = Undertailor.getScriptManager().getImplementable(StyleImplementable.class);
-                return impl.load(sourceFile.getName().split("\\.")[0], sourceFile);
+                return impl.load(scriptId, sourceFile);
             } catch(Exception e) {
                 RuntimeException thrown = new RuntimeException();
                 thrown.initCause(e);
@@ -118,10 +123,12 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
 
     private Map<String, File> loadedFiles;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
+    private Map<String, Set<StyleImplementation>> liveMapping;
     
     public StyleImplementable() {
         this.loadedFiles = new HashMap<String, File>();
         this.loadedMapping = new HashMap<String, Map<String, LuaFunction>>();
+        this.liveMapping = new HashMap<>();
     }
     
     @Override
@@ -159,11 +166,24 @@ public class StyleImplementable implements LuaImplementable<File, StyleImplement
             impl.setObjectValue(LuaStyleMeta.create(impl));
             
             File loadData = loadedFiles.get(scriptId);
+            impl.scriptId = scriptId;
             impl.sourceFile = loadData;
-            impl.getFunctions().get(IMPLFUNCTION_CREATE).call(impl.getObjectValue());
+            liveMapping.computeIfAbsent(scriptId, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(impl);
+            LuaFunction create = impl.getFunctions().get(IMPLFUNCTION_CREATE);
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(create, IMPLFUNCTION_CREATE), create, impl.getObjectValue());
             return impl;
         }
         
         return null;
     }
+    
+    @Override
+    public void reloadFile(File scriptFile) throws LuaScriptException {
+        for(String scriptId : LuaImplementable.getScriptIds(loadedFiles, scriptFile)) {
+            this.loadFunctions(scriptId, scriptFile, Undertailor.getScriptManager().generateGlobals(), true);
+            if(liveMapping.containsKey(scriptId)) {
+                LuaImplementable.swapFunctions(this, liveMapping.get(scriptId), loadedMapping.get(scriptId));
+            }
+        }
+    }
 }
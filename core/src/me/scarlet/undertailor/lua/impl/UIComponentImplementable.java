@@ -24,12 +24,14 @@
 
 package me.scarlet.undertailor.lua.impl;
 
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.ui.UIComponent;
 import me.scarlet.undertailor.environment.ui.event.UIEvent;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.impl.UIComponentImplementable.UIComponentImplementation;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable.WorldRoomImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
@@ -44,8 +46,11 @@ import org.luaj.vm2.Varargs;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class UIComponentImplementable implements LuaImplementable<File, UIComponentImplementation> {
 
@@ -115,10 +120,12 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
     
     private Map<String, File> loadedFiles;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
+    private Map<String, Set<UIComponentImplementation>> liveMapping;
     
     public UIComponentImplementable() {
         this.loadedFiles = new HashMap<>();
         this.loadedMapping = new HashMap<>();
+        this.liveMapping = new HashMap<>();
     }
 
     @Override
@@ -157,10 +164,22 @@ public class UIComponentImplementable implements LuaImplementable<File, UICompon
             
             File loadData = loadedFiles.get(scriptId);
             impl.objName = loadData.getName().split("\\.")[0];
-            impl.getFunctions().get(IMPLFUNCTION_CREATE).invoke(impl.getObjectValue(), args);
+            liveMapping.computeIfAbsent(scriptId, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(impl);
+            LuaFunction create = impl.getFunctions().get(IMPLFUNCTION_CREATE);
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(create, IMPLFUNCTION_CREATE), create, LuaValue.varargsOf(impl.getObjectValue(), args));
             return impl;
         }
         
         return null;
     }
+    
+    @Override
+    public void reloadFile(File scriptFile) throws LuaScriptException {
+        for(String scriptId : LuaImplementable.getScriptIds(loadedFiles, scriptFile)) {
+            this.loadFunctions(scriptId, scriptFile, Undertailor.getScriptManager().generateGlobals(), true);
+            if(liveMapping.containsKey(scriptId)) {
+                LuaImplementable.swapFunctions(this, liveMapping.get(scriptId), loadedMapping.get(scriptId));
+            }
+        }
+    }
 }
@@ -24,7 +24,9 @@
 
 package me.scarlet.undertailor.lua.impl;
 
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.collision.Collider;
+import me.scarlet.undertailor.environment.overworld.ProjectilePattern;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.environment.overworld.WorldRoom.Entrypoint;
@@ -32,8 +34,10 @@ import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.impl.WorldObjectImplementable.WorldObjectImplementation;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable.WorldRoomImplementation;
+import me.scarlet.undertailor.lua.lib.game.ProjectilesLib;
 import me.scarlet.undertailor.lua.lib.meta.LuaEntrypointMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaWorldObjectMeta;
@@ -48,8 +52,11 @@ import org.luaj.vm2.Varargs;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class WorldObjectImplementable implements LuaImplementable<File, WorldObjectImplementation> {
     
@@ -62,9 +69,10 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
     public static final String IMPLFUNCTION_ONCOLLIDE = "onCollide";   // onCollide(self, object)
     public static final String IMPLFUNCTION_ONINTERACT = "onInteract"; // onInteract(self, object)
     public static final String IMPLFUNCTION_ONREGISTER = "onRegister"; // onRegister(self, id, room)
+    public static final String IMPLFUNCTION_ONPROJECTILEHIT = "onProjectileHit"; // onProjectileHit(self, pattern, x, y)
     
     public static final String[] REQUIRED_FUNCTIONS = {IMPLFUNCTION_CREATE};
-    public static final String[] FUNCTIONS = {IMPLFUNCTION_CREATE, IMPLFUNCTION_PROCESS, IMPLFUNCTION_ONRENDER, IMPLFUNCTION_ONCOLLIDE, IMPLFUNCTION_ONINTERACT, IMPLFUNCTION_ONPERSIST, IMPLFUNCTION_ONPAUSE, IMPLFUNCTION_ONRESUME};
+    public static final String[] FUNCTIONS = {IMPLFUNCTION_CREATE, IMPLFUNCTION_PROCESS, IMPLFUNCTION_ONRENDER, IMPLFUNCTION_ONCOLLIDE, IMPLFUNCTION_ONINTERACT, IMPLFUNCTION_ONPERSIST, IMPLFUNCTION_ONPAUSE, IMPLFUNCTION_ONRESUME, IMPLFUNCTION_ONPROJECTILEHIT};
     
     public static class WorldObjectImplementation extends WorldObject implements LuaImplementation {
         
@@ -124,6 +132,11 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
             LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONPERSIST, obj.get(), LuaWorldRoomMeta.create(newRoom), entrypoint == null ? LuaValue.NIL : LuaEntrypointMeta.create(entrypoint));
         }
         
+        @Override
+        public void onProjectileHit(ProjectilePattern pattern, float x, float y) {
+            LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONPROJECTILEHIT, obj.get(), ProjectilesLib.create(pattern), LuaValue.valueOf(x), LuaValue.valueOf(y));
+        }
+        
         @Override
         public void onPause() {
             LuaUtil.invokeNonNull(obj.get(), IMPLFUNCTION_ONPAUSE, obj.get());
@@ -142,10 +155,12 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
     
     private Map<String, File> loadedFiles;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
+    private Map<String, Set<WorldObjectImplementation>> liveMapping;
     
     public WorldObjectImplementable() {
         this.loadedFiles = new HashMap<>();
         this.loadedMapping = new HashMap<>();
+        this.liveMapping = new HashMap<>();
     }
     
     @Override
@@ -183,10 +198,22 @@ public class WorldObjectImplementable implements LuaImplementable<File, WorldObj
             impl.setObjectValue(LuaWorldObjectMeta.create(impl));
             
             impl.objName = loadedFiles.get(scriptId).getName().split("\\.")[0];
-            impl.getFunctions().get(IMPLFUNCTION_CREATE).call(impl.getObjectValue());
+            liveMapping.computeIfAbsent(scriptId, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(impl);
+            LuaFunction create = impl.getFunctions().get(IMPLFUNCTION_CREATE);
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(create, IMPLFUNCTION_CREATE), create, impl.getObjectValue());
             return impl;
         }
         
         return null;
     }
+    
+    @Override
+    public void reloadFile(File scriptFile) throws LuaScriptException {
+        for(String scriptId : LuaImplementable.getScriptIds(loadedFiles, scriptFile)) {
+            this.loadFunctions(scriptId, scriptFile, Undertailor.getScriptManager().generateGlobals(), true);
+            if(liveMapping.containsKey(scriptId)) {
+                LuaImplementable.swapFunctions(this, liveMapping.get(scriptId), loadedMapping.get(scriptId));
+            }
+        }
+    }
 }
@@ -24,11 +24,13 @@
 
 package me.scarlet.undertailor.lua.impl;
 
+import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
 import me.scarlet.undertailor.exception.LuaScriptException;
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaImplementation;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.lua.impl.WorldRoomImplementable.WorldRoomImplementation;
 import me.scarlet.undertailor.lua.lib.meta.LuaEntrypointMeta;
 import me.scarlet.undertailor.lua.lib.meta.LuaInputDataMeta;
@@ -43,8 +45,11 @@ import org.luaj.vm2.Varargs;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class WorldRoomImplementable implements LuaImplementable<File, WorldRoomImplementation> {
     
@@ -64,6 +69,14 @@ public class WorldRoomImplementable implements LuaImplementable<File, WorldRoomI
         private Map<String, LuaFunction> functions;
         private WeakReference<LuaObjectValue<?>> obj;
         
+        public WorldRoomImplementation() {
+            this(null);
+        }
+        
+        public WorldRoomImplementation(String roomName) {
+            this.roomName = roomName;
+        }
+        
         // generic impl of LuaImplementation; screw readability they're one-liners
         @Override public LuaImplementable<?, ?> getImplementable() { return impl; }
         @Override public void setImplementable(LuaImplementable<?, ?> impl) { this.impl = impl; }
@@ -110,9 +123,11 @@ public class WorldRoomImplementable implements LuaImplementable<File, WorldRoomI
     
     private Map<String, File> loadedFiles;
     private Map<String, Map<String, LuaFunction>> loadedMapping;
+    private Map<String, Set<WorldRoomImplementation>> liveMapping;
     
     public WorldRoomImplementable() {
         this.loadedMapping = new HashMap<>();
+        this.liveMapping = new HashMap<>();
         this.loadedFiles = new HashMap<>();
     }
 
@@ -146,15 +161,27 @@ public class WorldRoomImplementable implements LuaImplementable<File, WorldRoomI
     @Override
     public WorldRoomImplementation load(String scriptId, Varargs args) throws LuaScriptException {
         if(loadedFiles.containsKey(scriptId) && loadedMapping.containsKey(scriptId)) {
-            WorldRoomImplementation impl = new WorldRoomImplementation();
+            WorldRoomImplementation impl = new WorldRoomImplementation(scriptId);
             impl.setImplementable(this);
             impl.setFunctions(loadedMapping.get(scriptId));
             impl.setObjectValue(LuaWorldRoomMeta.create(impl));
             
-            impl.getFunctions().get(IMPLFUNCTION_CREATE).call(impl.getObjectValue());
+            liveMapping.computeIfAbsent(scriptId, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(impl);
+            LuaFunction create = impl.getFunctions().get(IMPLFUNCTION_CREATE);
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(create, IMPLFUNCTION_CREATE), create, impl.getObjectValue());
             return impl;
         }
         
         return null;
     }
+    
+    @Override
+    public void reloadFile(File scriptFile) throws LuaScriptException {
+        for(String scriptId : LuaImplementable.getScriptIds(loadedFiles, scriptFile)) {
+            this.loadFunctions(scriptId, scriptFile, Undertailor.getScriptManager().generateGlobals(), true);
+            if(liveMapping.containsKey(scriptId)) {
+                LuaImplementable.swapFunctions(this, liveMapping.get(scriptId), loadedMapping.get(scriptId));
+            }
+        }
+    }
 }
@@ -25,11 +25,14 @@
 package me.scarlet.undertailor.lua.lib;
 
 import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.scheduler.CoroutineTask;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
@@ -66,7 +69,11 @@ public class BaseLib extends LuaLibrary {
         super(null,
                 new loadscript(),
                 new execute(),
-                new print());
+                new print(),
+                new wait(),
+                new waitFrames(),
+                new waitFor(),
+                new waitForTask());
     }
     
     /**
@@ -78,7 +85,9 @@ public class BaseLib extends LuaLibrary {
     @Override
     public LuaValue call(LuaValue modname, LuaValue env) {
         globals = env.checkglobals();
-        globals.package_.setLuaPath(System.getProperty("user.dir") + File.separatorChar);
+        if(globals.package_ != null) {
+            globals.package_.setLuaPath(System.getProperty("user.dir") + File.separatorChar);
+        }
         
         // removals
         globals.set("load", LuaValue.NIL);
@@ -141,6 +150,59 @@ public class BaseLib extends LuaLibrary {
         }
     }
     
+    static final class wait extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            double seconds = args.checkdouble(1);
+            checkCoroutine().waitSeconds(seconds);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static final class waitFrames extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 0, 1);
+            
+            long frames = args.optlong(1, 1);
+            checkCoroutine().waitFrames(frames);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static final class waitFor extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            LuaFunction predicate = args.checkfunction(1);
+            checkCoroutine().waitFor(predicate);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static final class waitForTask extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            long id = args.checklong(1);
+            checkCoroutine().waitForTask(id);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static CoroutineTask checkCoroutine() {
+        CoroutineTask task = CoroutineTask.getRunning();
+        if(task == null) {
+            throw new LuaError("can only wait from within a coroutine task");
+        }
+        
+        return task;
+    }
+    
     /*static final class error extends LibraryFunction {
         public Varargs execute(Varargs args) {
             LuaUtil.checkArguments(args, 1, 2);
@@ -178,7 +240,8 @@ public class BaseLib extends LuaLibrary {
             throw new LuaError("file at " + file.getAbsolutePath() + " was not found");
         try {
             Globals table = Undertailor.getScriptManager().generateGlobals();
-            globals.load(input, "@" + file.getName(), "bt", table).invoke();
+            LuaValue chunk = globals.load(input, "@" + file.getName(), "bt", table);
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(chunk, ScriptWatchdog.MAIN_CHUNK), chunk, LuaValue.NONE);
             table.set(PARENT_GLOBAL_KEY, this.globals);
             
             Map<String, LuaValue> replaceQueue = new HashMap<>();
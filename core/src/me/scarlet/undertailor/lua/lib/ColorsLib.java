@@ -39,7 +39,7 @@ import org.luaj.vm2.Varargs;
 public class ColorsLib extends LuaLibrary {
     
     public static final LuaObjectValue<Color> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_COLOR);
+        return LuaUtil.checkType(value, Lua.TYPEID_COLOR);
     }
     
     public static final LuaObjectValue<Color> create(Color color) {
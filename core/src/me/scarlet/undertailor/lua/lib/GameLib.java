@@ -46,6 +46,8 @@ public class GameLib extends LuaLibrary {
             Lua.LIB_LOGGER,
             Lua.LIB_GRAPHICS,
             Lua.LIB_ANIMATION,
+            Lua.LIB_PARTICLES,
+            Lua.LIB_PROJECTILES,
             Lua.LIB_ENVIRONMENT
     };
     
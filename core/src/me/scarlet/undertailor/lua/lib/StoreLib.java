@@ -27,15 +27,18 @@ package me.scarlet.undertailor.lua.lib;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
+import me.scarlet.undertailor.lua.StoreTable;
 import me.scarlet.undertailor.util.LuaUtil;
+import me.scarlet.undertailor.util.StoreCodec;
+import me.scarlet.undertailor.util.StoreWriter;
 import ninja.leaping.configurate.ConfigurationNode;
-import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.json.JSONConfigurationLoader;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -44,8 +47,25 @@ import java.util.Map.Entry;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * Library for persisting tables across sessions.
+ * 
+ * <p>Stores are saved in the binary format of {@link StoreCodec} by
+ * a background {@link StoreWriter}, only re-encoding the parts of a
+ * store changed since it was last loaded or saved. A save appends
+ * those parts to the store's journal; once the journal outgrows
+ * {@link #COMPACT_THRESHOLD} and the snapshot itself, the next save
+ * writes a fresh snapshot instead. Stores saved as JSON by older
+ * versions are still read, and are rewritten in the binary format
+ * the next time they are saved.</p>
+ * 
+ * <p>Loading a store whose saves are still being written does not
+ * wait on the writer; the table last saved to it is returned
+ * instead, as the files would only hold it once written.</p>
+ */
 public class StoreLib extends LuaLibrary {
     
+    // legacy json stores:
     // key/value as per usual, but all values are strings
     // conversion occurs using the first character of the string
     // 
@@ -171,13 +191,22 @@ public class StoreLib extends LuaLibrary {
     };
     
     private static Map<String, LuaTable> tables;
+    private static Map<String, StoreCodec> codecs;
+    private static Map<String, LuaTable> saved;
+    private static StoreWriter writer;
     public static final File STORE_LOCATION;
     public static final String SAVE_FILE_EXT;
+    public static final String JOURNAL_FILE_EXT;
+    public static final long COMPACT_THRESHOLD;
     
     static {
         tables = new HashMap<>();
+        codecs = new HashMap<>();
+        saved = new HashMap<>();
         STORE_LOCATION = new File(Undertailor.ASSETS_DIRECTORY, "save/");
         SAVE_FILE_EXT = ".save";
+        JOURNAL_FILE_EXT = ".journal";
+        COMPACT_THRESHOLD = 64 * 1024;
     }
     
     public StoreLib() {
@@ -187,6 +216,64 @@ public class StoreLib extends LuaLibrary {
         }
     }
     
+    private static synchronized StoreWriter getWriter() {
+        if(writer == null) {
+            writer = new StoreWriter();
+            writer.start();
+        }
+        
+        return writer;
+    }
+    
+    /**
+     * Blocks until every saved store has been written to
+     * disk, then stops the thread writing them.
+     */
+    public static synchronized void killWriter() {
+        if(writer != null) {
+            writer.kill();
+            writer = null;
+        }
+    }
+    
+    /**
+     * Reads the provided store, replaying its journal over its
+     * snapshot, or returns the table last saved to it if that
+     * save has yet to be written.
+     * 
+     * @return the store's table, or null if it has no save
+     */
+    private static LuaTable readStore(String key) throws Exception {
+        File storeFile = new File(STORE_LOCATION, key + SAVE_FILE_EXT);
+        File journalFile = new File(STORE_LOCATION, key + JOURNAL_FILE_EXT);
+        if(saved.containsKey(key) && getWriter().isPending(journalFile)) { // its codec already matches the save
+            return saved.get(key);
+        }
+        
+        saved.remove(key);
+        byte[] data = storeFile.exists() ? Files.readAllBytes(storeFile.toPath()) : null;
+        
+        StoreCodec codec = new StoreCodec(key);
+        codecs.put(key, codec);
+        if(data != null && !StoreCodec.isEncoded(data)) {
+            JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setFile(storeFile).build();
+            return StoreLib.load(loader.load());
+        }
+        
+        if(data == null) { // a journal without its snapshot is left over from a deletion
+            return null;
+        }
+        
+        StoreTable table = codec.decode(data);
+        if(journalFile.exists()) {
+            if(!codec.replay(table, Files.readAllBytes(journalFile.toPath()))) {
+                Undertailor.instance.warn("store", "journal of store " + key + " ends with an incomplete save; it was dropped");
+            }
+        }
+        
+        return table.next(LuaValue.NIL).arg1().isnil() ? null : table;
+    }
+    
     static class loadStore extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
@@ -195,17 +282,14 @@ public class StoreLib extends LuaLibrary {
             String key = args.checkjstring(1);
             LuaTable defaultt = args.opttable(2, null);
             
-            File storeFile = new File(STORE_LOCATION, args.checkjstring(1) + SAVE_FILE_EXT);
             LuaTable table = null;
             
-            if(storeFile.exists()) {
-                JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setFile(storeFile).build();
-                try {
-                    table = StoreLib.load(loader.load());
-                } catch(Exception e) {
-                    e.printStackTrace();
-                    table = null;
-                }
+            try {
+                table = StoreLib.readStore(key);
+            } catch(Exception e) {
+                Undertailor.instance.warn("store", "could not read store file " + key + ": " + LuaUtil.formatJavaException(e));
+                codecs.remove(key); // next save starts over with a snapshot
+                table = null;
             }
             
             if(table == null && defaultt != null) {
@@ -263,22 +347,30 @@ public class StoreLib extends LuaLibrary {
             String key = args.checkjstring(1);
             LuaTable table = args.opttable(2, tables.get(key));
             File file = new File(STORE_LOCATION, key + SAVE_FILE_EXT);
+            File journal = new File(STORE_LOCATION, key + JOURNAL_FILE_EXT);
             
-            if(file.exists() && (table == null || table.keyCount() == 0)) {
-                try {
-                    file.delete();
-                    return LuaValue.valueOf(true);
-                } catch(Exception e) {
-                    Undertailor.instance.warn("store", "could not delete store file " + key + ": " + LuaUtil.formatJavaException(e));
-                    return LuaValue.valueOf(false);
-                }
+            if(table == null || table.keyCount() == 0) {
+                codecs.remove(key);
+                saved.put(key, null);
+                getWriter().clear(file, journal, StoreCodec.emptySnapshot());
+                return LuaValue.valueOf(true);
             } else {
                 try {
-                    JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setFile(file).build();
-                    loader.save(StoreLib.convert(loader.createEmptyNode(ConfigurationOptions.defaults()), table, true));
+                    // encoding has to happen here, while no script can touch the table
+                    StoreCodec codec = codecs.computeIfAbsent(key, StoreCodec::new);
+                    if(!codec.isAppendable() || getWriter().isBroken(journal) || codec.getJournalLength() > Math.max(COMPACT_THRESHOLD, codec.getSnapshotLength())) {
+                        getWriter().snapshot(file, journal, codec.encode(table));
+                    } else {
+                        byte[] record = codec.encodeRecord(table);
+                        if(record != null) {
+                            getWriter().append(journal, record);
+                        }
+                    }
+                    
+                    saved.put(key, table);
                     return LuaValue.valueOf(true);
                 } catch(Exception e) {
-                    Undertailor.instance.warn("store", "could save store file " + key + ": " + LuaUtil.formatJavaException(e));
+                    Undertailor.instance.warn("store", "could not save store file " + key + ": " + LuaUtil.formatJavaException(e));
                     return LuaValue.valueOf(false);
                 }
             }
@@ -48,7 +48,7 @@ import org.luaj.vm2.Varargs;
 public class TextLib extends LuaLibrary {
     
     public static LuaObjectValue<Text> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_TEXT);
+        return LuaUtil.checkType(value, Lua.TYPEID_TEXT);
     }
     
     public static LuaObjectValue<Text> create(Text text) {
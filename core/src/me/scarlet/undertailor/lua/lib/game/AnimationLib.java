@@ -34,13 +34,14 @@ import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.AnimationSetWrapper;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
 public class AnimationLib extends LuaLibrary {
     
     public static LuaObjectValue<AnimationData> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_ANIMATION);
+        return LuaUtil.checkType(value, Lua.TYPEID_ANIMATION);
     }
     
     public static LuaObjectValue<AnimationData> create(AnimationData value) {
@@ -62,9 +63,12 @@ public class AnimationLib extends LuaLibrary {
             new pause(),
             new stop(),
             new resume(),
-            new drawCurrentFrame()
+            new drawCurrentFrame(),
+            new drawCurrentFrames()
     };
     
+    private static float[] positionBuffer;
+    
     public AnimationLib() {
         super("animation", COMPONENTS);
     }
@@ -262,4 +266,24 @@ public class AnimationLib extends LuaLibrary {
             return LuaValue.NIL;
         }
     }
+    
+    static class drawCurrentFrames extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 4);
+            
+            AnimationData animation = check(args.arg(1)).getObject();
+            positionBuffer = LuaUtil.toFloatArray(args.arg(2), positionBuffer);
+            int length = args.arg(2).rawlen();
+            if(length % 2 != 0) {
+                throw new LuaError("positions must be given as x and y pairs");
+            }
+            
+            float scale = args.isnil(3) ? 2F : new Float(args.checkdouble(3));
+            float rotation = args.isnil(4) ? 0F : new Float(args.checkdouble(4));
+            
+            animation.drawCurrentFrames(positionBuffer, length / 2, scale, rotation);
+            return LuaValue.NIL;
+        }
+    }
 }
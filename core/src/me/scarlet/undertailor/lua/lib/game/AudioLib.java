@@ -51,11 +51,11 @@ public class AudioLib extends LuaLibrary {
     }
     
     public static LuaObjectValue<Audio<Long>> checkSound(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_SOUND);
+        return LuaUtil.checkType(value, Lua.TYPEID_SOUND);
     }
     
     public static LuaObjectValue<Audio<String>> checkMusic(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_MUSIC);
+        return LuaUtil.checkType(value, Lua.TYPEID_MUSIC);
     }
     
     public static LuaObjectValue<Audio<Long>> createSound(Audio<Long> value) {
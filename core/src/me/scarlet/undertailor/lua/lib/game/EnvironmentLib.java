@@ -35,7 +35,7 @@ public class EnvironmentLib extends LuaLibrary {
     }
     
     public static LuaObjectValue<Environment> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_ENVIRONMENT);
+        return LuaUtil.checkType(value, Lua.TYPEID_ENVIRONMENT);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = {
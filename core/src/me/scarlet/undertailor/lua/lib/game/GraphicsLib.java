@@ -32,6 +32,8 @@ import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.lib.ColorsLib;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.util.NumberUtil;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -50,9 +52,57 @@ public class GraphicsLib extends LuaLibrary {
             new drawCircle(),
             new drawFilledCircle(),
             new drawTriangle(),
-            new drawFilledTriangle()
+            new drawFilledTriangle(),
+            new drawLines(),
+            new drawFilledRectangles(),
+            new drawCircles(),
+            new drawFilledCircles()
     };
     
+    private static float[] batchBuffer;
+    
+    /**
+     * Reads the records of a batched draw call into the batch
+     * buffer, turning their palette indices, if a palette was
+     * given, into array indices.
+     * 
+     * @return the amount of records read
+     */
+    static int readBatch(LuaValue data, int stride, Color[] palette) {
+        batchBuffer = LuaUtil.toFloatArray(data, batchBuffer);
+        int length = data.rawlen();
+        if(length % stride != 0) {
+            throw new LuaError("batch of " + length + " values does not hold whole records of " + stride + " values");
+        }
+        
+        if(palette != null) {
+            for(int i = stride - 1; i < length; i += stride) {
+                int index = (int) batchBuffer[i] - 1;
+                if(index < 0 || index >= palette.length) {
+                    throw new LuaError("batch record " + (i / stride + 1) + " used palette index " + (index + 1) + " out of " + palette.length + " colors");
+                }
+                
+                batchBuffer[i] = index;
+            }
+        }
+        
+        return length / stride;
+    }
+    
+    static Color[] checkPalette(LuaValue value) {
+        if(value.isnil()) {
+            return null;
+        }
+        
+        LuaTable table = value.checktable();
+        Color[] palette = new Color[table.rawlen()];
+        for(int i = 0; i < palette.length; i++) {
+            palette[i] = ColorsLib.check(table.rawget(i + 1)).getObject();
+        }
+        
+        return palette;
+    }
+    
     public GraphicsLib() {
         super("graphics", COMPONENTS);
     }
@@ -252,4 +302,58 @@ public class GraphicsLib extends LuaLibrary {
             return LuaValue.NIL;
         }
     }
+    
+    // batched draws: a flat table of records, each optionally ending with the index of its color within a palette table
+    
+    static class drawLines extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Color[] palette = checkPalette(args.arg(2));
+            int stride = palette == null ? 5 : 6; // x1, y1, x2, y2, thickness[, color]
+            int count = readBatch(args.arg1(), stride, palette);
+            Undertailor.getRenderer().drawLines(batchBuffer, count, stride, palette);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class drawFilledRectangles extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Color[] palette = checkPalette(args.arg(2));
+            int stride = palette == null ? 4 : 5; // x, y, width, height[, color]
+            int count = readBatch(args.arg1(), stride, palette);
+            Undertailor.getRenderer().drawFilledRectangles(batchBuffer, count, stride, palette);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class drawCircles extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Color[] palette = checkPalette(args.arg(2));
+            int stride = palette == null ? 3 : 4; // x, y, radius[, color]
+            int count = readBatch(args.arg1(), stride, palette);
+            Undertailor.getRenderer().drawCircles(batchBuffer, count, stride, palette, false);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class drawFilledCircles extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 2);
+            
+            Color[] palette = checkPalette(args.arg(2));
+            int stride = palette == null ? 3 : 4; // x, y, radius[, color]
+            int count = readBatch(args.arg1(), stride, palette);
+            Undertailor.getRenderer().drawCircles(batchBuffer, count, stride, palette, true);
+            return LuaValue.NIL;
+        }
+    }
 }
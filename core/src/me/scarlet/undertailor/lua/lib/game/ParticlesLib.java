@@ -0,0 +1,204 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua.lib.game;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.gfx.ParticleEmitter;
+import me.scarlet.undertailor.lua.Lua;
+import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.LuaLibraryComponent;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.lib.ColorsLib;
+import me.scarlet.undertailor.util.LuaUtil;
+import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+public class ParticlesLib extends LuaLibrary {
+    
+    public static LuaObjectValue<ParticleEmitter> check(LuaValue value) {
+        return LuaUtil.checkType(value, Lua.TYPEID_PARTICLEEMITTER);
+    }
+    
+    public static LuaObjectValue<ParticleEmitter> create(ParticleEmitter value) {
+        return LuaObjectValue.of(value, Lua.TYPENAME_PARTICLEEMITTER, LuaLibrary.asMetatable(Lua.LIB_PARTICLES));
+    }
+    
+    public static final LuaLibraryComponent[] COMPONENTS = {
+            new createEmitter(),
+            
+            new configure(),
+            new start(),
+            new stop(),
+            new burst(),
+            new clear(),
+            new isEmitting(),
+            new isFinished(),
+            new getParticleCount()
+    };
+    
+    public ParticlesLib() {
+        super("particles", COMPONENTS);
+    }
+    
+    /**
+     * Applies the values set within the provided configuration
+     * table to the provided emitter. Values missing from the
+     * table are left as they were.
+     * 
+     * <p>Ranges (<code>life</code>, <code>speed</code>,
+     * <code>angle</code>, <code>spin</code>) and start/end
+     * pairs (<code>scale</code>, <code>alpha</code>) may be
+     * given as a single number or a table of two numbers;
+     * <code>gravity</code> and <code>offset</code> as a table of
+     * x and y.</p>
+     */
+    public static void configure(ParticleEmitter emitter, LuaTable config) {
+        LuaValue value = config.get("sheet");
+        if(!value.isnil()) {
+            String sheetName = value.checkjstring();
+            SpriteSheetWrapper sheet = Undertailor.getSheetManager().getSheet(sheetName);
+            if(sheet == null) {
+                throw new LuaError("spritesheet " + sheetName + " does not exist");
+            }
+            
+            emitter.setSprite(sheet, config.get("sprite").optint(0));
+        } else if(!(value = config.get("sprite")).isnil()) {
+            emitter.setSprite(emitter.getSpriteSheet(), value.checkint());
+        }
+        
+        float[] pair;
+        if(!(value = config.get("tint")).isnil()) emitter.setTint(ColorsLib.check(value).getObject());
+        if(!(value = config.get("rate")).isnil()) emitter.setRate(new Float(value.checkdouble()));
+        if(!(value = config.get("max")).isnil()) emitter.setMaxParticles(value.checkint());
+        if(!(value = config.get("duration")).isnil()) emitter.setDuration(new Float(value.checkdouble()));
+        if(!(value = config.get("drag")).isnil()) emitter.setDrag(new Float(value.checkdouble()));
+        if((pair = checkPair(config.get("life"))) != null) emitter.setLife(pair[0], pair[1]);
+        if((pair = checkPair(config.get("speed"))) != null) emitter.setSpeed(pair[0], pair[1]);
+        if((pair = checkPair(config.get("angle"))) != null) emitter.setAngle(pair[0], pair[1]);
+        if((pair = checkPair(config.get("spin"))) != null) emitter.setSpin(pair[0], pair[1]);
+        if((pair = checkPair(config.get("scale"))) != null) emitter.setScale(pair[0], pair[1]);
+        if((pair = checkPair(config.get("alpha"))) != null) emitter.setAlpha(pair[0], pair[1]);
+        if((pair = checkPair(config.get("gravity"))) != null) emitter.setGravity(pair[0], pair[1]);
+        if((pair = checkPair(config.get("offset"))) != null) emitter.setOffset(pair[0], pair[1]);
+    }
+    
+    // a number n as {n, n}, or a table {a[, b]} as {a, b or a}; null if nil
+    private static float[] checkPair(LuaValue value) {
+        if(value.isnil()) {
+            return null;
+        }
+        
+        if(value.isnumber()) {
+            float number = new Float(value.checkdouble());
+            return new float[] {number, number};
+        }
+        
+        LuaTable table = value.checktable();
+        float first = new Float(table.get(1).checkdouble());
+        float second = table.get(2).isnil() ? first : new Float(table.get(2).checkdouble());
+        return new float[] {first, second};
+    }
+    
+    static class createEmitter extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 0, 1);
+            
+            ParticleEmitter emitter = new ParticleEmitter();
+            if(!args.isnil(1)) {
+                configure(emitter, args.checktable(1));
+            }
+            
+            return create(emitter);
+        }
+    }
+    
+    // object methods / metatable
+    
+    static class configure extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            ParticleEmitter emitter = check(arg1).getObject();
+            configure(emitter, arg2.checktable());
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class start extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            check(arg).getObject().start();
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class stop extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            check(arg).getObject().stop();
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class burst extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            check(arg1).getObject().burst(arg2.checkint());
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class clear extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            check(arg).getObject().clear();
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class isEmitting extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            return LuaValue.valueOf(check(arg).getObject().isEmitting());
+        }
+    }
+    
+    static class isFinished extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            return LuaValue.valueOf(check(arg).getObject().isFinished());
+        }
+    }
+    
+    static class getParticleCount extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            return LuaValue.valueOf(check(arg).getObject().getParticleCount());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.lua.lib.game;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.environment.overworld.ProjectilePattern;
+import me.scarlet.undertailor.environment.overworld.WorldRoom;
+import me.scarlet.undertailor.lua.Lua;
+import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.LuaLibraryComponent;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.lib.meta.LuaWorldRoomMeta;
+import me.scarlet.undertailor.util.LuaUtil;
+import me.scarlet.undertailor.wrappers.SpriteSheetWrapper;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+public class ProjectilesLib extends LuaLibrary {
+    
+    public static LuaObjectValue<ProjectilePattern> check(LuaValue value) {
+        return LuaUtil.checkType(value, Lua.TYPEID_PROJECTILEPATTERN);
+    }
+    
+    public static LuaObjectValue<ProjectilePattern> create(ProjectilePattern value) {
+        return LuaObjectValue.of(value, Lua.TYPENAME_PROJECTILEPATTERN, LuaLibrary.asMetatable(Lua.LIB_PROJECTILES));
+    }
+    
+    public static final LuaLibraryComponent[] COMPONENTS = {
+            new createPattern(),
+            
+            new configure(),
+            new spawn()
+    };
+    
+    public ProjectilesLib() {
+        super("projectiles", COMPONENTS);
+    }
+    
+    /**
+     * Applies the values set within the provided configuration
+     * table to the provided pattern. Values missing from the
+     * table are left as they were.
+     * 
+     * <p><code>speedLimits</code> and <code>wave</code> are given
+     * as tables of two numbers, and <code>size</code> as a table
+     * of width and height; setting <code>size</code> makes the
+     * pattern hit with a rectangle, setting <code>radius</code>
+     * with a circle.</p>
+     */
+    public static void configure(ProjectilePattern pattern, LuaTable config) {
+        LuaValue value = config.get("sheet");
+        if(!value.isnil()) {
+            String sheetName = value.checkjstring();
+            SpriteSheetWrapper sheet = Undertailor.getSheetManager().getSheet(sheetName);
+            if(sheet == null) {
+                throw new LuaError("spritesheet " + sheetName + " does not exist");
+            }
+            
+            pattern.setSprite(sheet, config.get("sprite").optint(0));
+        } else if(!(value = config.get("sprite")).isnil()) {
+            pattern.setSprite(pattern.getSpriteSheet(), value.checkint());
+        }
+        
+        if(!(value = config.get("count")).isnil()) pattern.setCount(value.checkint());
+        if(!(value = config.get("spread")).isnil()) pattern.setSpread(new Float(value.checkdouble()));
+        if(!(value = config.get("volleys")).isnil()) pattern.setVolleys(value.checkint());
+        if(!(value = config.get("interval")).isnil()) pattern.setInterval(new Float(value.checkdouble()));
+        if(!(value = config.get("rotate")).isnil()) pattern.setRotate(new Float(value.checkdouble()));
+        if(!(value = config.get("distance")).isnil()) pattern.setDistance(new Float(value.checkdouble()));
+        if(!(value = config.get("aimed")).isnil()) pattern.setAimed(value.checkboolean());
+        
+        if(!(value = config.get("life")).isnil()) pattern.setLife(new Float(value.checkdouble()));
+        if(!(value = config.get("speed")).isnil()) pattern.setSpeed(new Float(value.checkdouble()));
+        if(!(value = config.get("acceleration")).isnil()) pattern.setAcceleration(new Float(value.checkdouble()));
+        if(!(value = config.get("turn")).isnil()) pattern.setTurn(new Float(value.checkdouble()));
+        if(!(value = config.get("speedLimits")).isnil()) {
+            LuaTable limits = value.checktable();
+            pattern.setSpeedLimits(new Float(limits.get(1).checkdouble()), new Float(limits.get(2).checkdouble()));
+        }
+        
+        if(!(value = config.get("wave")).isnil()) {
+            LuaTable wave = value.checktable();
+            pattern.setWave(new Float(wave.get(1).checkdouble()), new Float(wave.get(2).checkdouble()));
+        }
+        
+        if(!(value = config.get("radius")).isnil()) pattern.setRadius(new Float(value.checkdouble()));
+        if(!(value = config.get("size")).isnil()) {
+            LuaTable size = value.checktable();
+            pattern.setDimensions(new Float(size.get(1).checkdouble()), new Float(size.get(2).checkdouble()));
+        }
+        
+        if(!(value = config.get("piercing")).isnil()) pattern.setPiercing(value.checkboolean());
+        if(!(value = config.get("oriented")).isnil()) pattern.setOriented(value.checkboolean());
+    }
+    
+    static class createPattern extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 0, 1);
+            
+            ProjectilePattern pattern = new ProjectilePattern();
+            if(!args.isnil(1)) {
+                configure(pattern, args.checktable(1));
+            }
+            
+            return create(pattern);
+        }
+    }
+    
+    // object methods / metatable
+    
+    static class configure extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            ProjectilePattern pattern = check(arg1).getObject();
+            configure(pattern, arg2.checktable());
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class spawn extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 4, 5);
+            
+            ProjectilePattern pattern = check(args.arg(1)).getObject();
+            WorldRoom room = LuaWorldRoomMeta.check(args.arg(2)).getObject();
+            float x = new Float(args.checkdouble(3));
+            float y = new Float(args.checkdouble(4));
+            float angle = new Float(args.optdouble(5, 0F));
+            room.getProjectiles().spawn(pattern, x, y, angle);
+            return LuaValue.NIL;
+        }
+    }
+}
@@ -25,6 +25,7 @@
 package me.scarlet.undertailor.lua.lib.meta;
 
 import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.collision.CollisionLayer;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.collision.bbshapes.BoundingCircle;
 import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
@@ -33,6 +34,7 @@ import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
@@ -47,7 +49,26 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
     }
     
     public static LuaObjectValue<? extends BoundingBox> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_BOUNDINGBOX_RECTANGLE, Lua.TYPENAME_BOUNDINGBOX_CIRCLE);
+        return LuaUtil.checkType(value, Lua.TYPEID_BOUNDINGBOX_RECTANGLE, Lua.TYPEID_BOUNDINGBOX_CIRCLE);
+    }
+    
+    static short checkMask(Varargs args, int start) {
+        String[] names = new String[Math.max(0, args.narg() - start + 1)];
+        for(int i = 0; i < names.length; i++) {
+            names[i] = args.checkjstring(start + i);
+        }
+        
+        return CollisionLayer.getMask(names);
+    }
+    
+    static Varargs asLayerNames(short mask) {
+        String[] names = CollisionLayer.getLayerNames(mask);
+        LuaValue[] values = new LuaValue[names.length];
+        for(int i = 0; i < names.length; i++) {
+            values[i] = LuaValue.valueOf(names[i]);
+        }
+        
+        return LuaUtil.asVarargs(values);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = new LibraryFunction[] {
@@ -58,30 +79,30 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
             new getOffset(),
             new setOffset(),
             new isSensor(),
-            new setSensor()
+            new setSensor(),
+            new getCollisionLayer(),
+            new setCollisionLayer(),
+            new getCollidesWith(),
+            new setCollidesWith()
     };
     
     public LuaBoundingBoxMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getRotation extends LibraryFunction {
+    static class getRotation extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            BoundingBox box = check(args.arg(1)).getObject();
+        public LuaValue call(LuaValue arg) {
+            BoundingBox box = check(arg).getObject();
             return LuaValue.valueOf(box.getRotation());
         }
     }
     
-    static class setRotation extends LibraryFunction {
+    static class setRotation extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            BoundingBox box = check(args.arg(1)).getObject();
-            box.setRotation(new Float(args.checkdouble(2)));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            BoundingBox box = check(arg1).getObject();
+            box.setRotation(new Float(arg2.checkdouble()));
             return LuaValue.NIL;
         }
     }
@@ -124,13 +145,11 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
         }
     }
     
-    static class setCanCollide extends LibraryFunction {
+    static class setCanCollide extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            BoundingBox box = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            BoundingBox box = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             box.setCanCollide(flag);
             
             return LuaValue.NIL;
@@ -147,14 +166,62 @@ public class LuaBoundingBoxMeta extends LuaLibrary {
         }
     }
     
-    static class setSensor extends LibraryFunction {
+    static class setSensor extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            BoundingBox box = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
+            box.setSensor(flag);
+            
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollisionLayer extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            BoundingBox box = check(arg).getObject();
+            String layer = CollisionLayer.getLayerName(box.getCategory());
+            return layer == null ? LuaValue.NIL : LuaValue.valueOf(layer);
+        }
+    }
+    
+    static class setCollisionLayer extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            BoundingBox box = check(arg1).getObject();
+            String layer = arg2.checkjstring();
+            try {
+                box.setCategory(CollisionLayer.getCategory(layer));
+            } catch(IllegalStateException e) {
+                throw new LuaError(e.getMessage());
+            }
+            
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollidesWith extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
+            LuaUtil.checkArguments(args, 1, 1);
             
             BoundingBox box = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
-            box.setSensor(flag);
+            return asLayerNames(box.getMask());
+        }
+    }
+    
+    static class setCollidesWith extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, -1);
+            
+            BoundingBox box = check(args.arg1()).getObject();
+            try {
+                box.setMask(checkMask(args, 2));
+            } catch(IllegalStateException e) {
+                throw new LuaError(e.getMessage());
+            }
             
             return LuaValue.NIL;
         }
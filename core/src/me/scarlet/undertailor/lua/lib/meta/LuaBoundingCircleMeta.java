@@ -30,7 +30,6 @@ import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.Varargs;
 
 public class LuaBoundingCircleMeta extends LuaBoundingBoxMeta {
     
@@ -39,7 +38,7 @@ public class LuaBoundingCircleMeta extends LuaBoundingBoxMeta {
     }
     
     public static LuaObjectValue<BoundingCircle> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_BOUNDINGBOX_CIRCLE);
+        return LuaUtil.checkType(value, Lua.TYPEID_BOUNDINGBOX_CIRCLE);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = new LibraryFunction[] {
@@ -53,23 +52,19 @@ public class LuaBoundingCircleMeta extends LuaBoundingBoxMeta {
         this.addComponents(COMPONENTS);
     }
     
-    static class getRadius extends LibraryFunction {
+    static class getRadius extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            BoundingCircle circle = check(args.arg(1)).getObject();
+        public LuaValue call(LuaValue arg) {
+            BoundingCircle circle = check(arg).getObject();
             return LuaValue.valueOf(circle.getRadius());
         }
     }
     
-    static class setRadius extends LibraryFunction {
+    static class setRadius extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            BoundingCircle circle = check(args.arg(1)).getObject();
-            circle.setRadius(new Float(args.checkdouble(2)));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            BoundingCircle circle = check(arg1).getObject();
+            circle.setRadius(new Float(arg2.checkdouble()));
             return LuaValue.NIL;
         }
     }
@@ -40,7 +40,7 @@ public class LuaBoundingRectangleMeta extends LuaBoundingBoxMeta {
     }
     
     public static LuaObjectValue<BoundingRectangle> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_BOUNDINGBOX_RECTANGLE);
+        return LuaUtil.checkType(value, Lua.TYPEID_BOUNDINGBOX_RECTANGLE);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = new LibraryFunction[] {
@@ -74,7 +74,7 @@ public class LuaBoundingRectangleMeta extends LuaBoundingBoxMeta {
         public Varargs execute(Varargs args) {
             LuaUtil.checkArguments(args, 2, 3);
             
-            BoundingRectangle box = check(args.arg1()).getObject();
+            BoundingRectangle box = check(args.arg(1)).getObject();
             Vector2 dimensions = box.getDimensions();
             float width = new Float(args.optdouble(2, dimensions.x));
             float height = new Float(args.optdouble(3, dimensions.y));
@@ -38,7 +38,7 @@ import org.luaj.vm2.Varargs;
 public class LuaEntrypointMeta extends LuaLibrary {
     
     public static LuaObjectValue<Entrypoint> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_ENTRYPOINT);
+        return LuaUtil.checkType(value, Lua.TYPEID_ENTRYPOINT);
     }
     
     public static LuaObjectValue<Entrypoint> create(Entrypoint value) {
@@ -117,35 +117,29 @@ public class LuaEntrypointMeta extends LuaLibrary {
         }
     }
     
-    static class getRoomTarget extends LibraryFunction {
+    static class getRoomTarget extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            Entrypoint entrypoint = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            Entrypoint entrypoint = check(arg).getObject();
             return LuaValue.valueOf(entrypoint.getRoomTarget());
         }
     }
     
-    static class setRoomTarget extends LibraryFunction {
+    static class setRoomTarget extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            Entrypoint entrypoint = check(args.arg1()).getObject();
-            String target = args.checkjstring(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Entrypoint entrypoint = check(arg1).getObject();
+            String target = arg2.checkjstring();
             
             entrypoint.setRoomTarget(target);
             return LuaValue.NIL;
         }
     }
     
-    static class getBoundingBox extends LibraryFunction {
+    static class getBoundingBox extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            Entrypoint entrypoint = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            Entrypoint entrypoint = check(arg).getObject();
             return LuaBoundingBoxMeta.create((BoundingRectangle) entrypoint.getBoundingBox(null)); // tempfix
         }
     }
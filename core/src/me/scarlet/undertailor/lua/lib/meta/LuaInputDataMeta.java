@@ -31,12 +31,11 @@ import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.InputRetriever.InputData;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.Varargs;
 
 public class LuaInputDataMeta extends LuaLibrary {
     
     public static LuaObjectValue<InputData> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_INPUTDATA);
+        return LuaUtil.checkType(value, Lua.TYPEID_INPUTDATA);
     }
     
     public static LuaObjectValue<InputData> create(InputData value) {
@@ -53,32 +52,26 @@ public class LuaInputDataMeta extends LuaLibrary {
         super(null, COMPONENTS);
     }
     
-    static class getPressData extends LibraryFunction {
+    static class getPressData extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            InputData data = check(args.arg1()).getObject();
-            return LuaPressDataMeta.create(data.getPressData(args.checkint(2)));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            InputData data = check(arg1).getObject();
+            return LuaPressDataMeta.create(data.getPressData(arg2.checkint()));
         }
     }
     
-    static class isConsumed extends LibraryFunction {
+    static class isConsumed extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            InputData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            InputData data = check(arg).getObject();
             return LuaValue.valueOf(data.isConsumed());
         }
     }
     
-    static class consume extends LibraryFunction {
+    static class consume extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            InputData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            InputData data = check(arg).getObject();
             data.consume();
             return LuaValue.NIL;
         }
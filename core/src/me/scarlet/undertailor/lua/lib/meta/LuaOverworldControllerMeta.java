@@ -45,7 +45,7 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
     }
     
     public static LuaObjectValue<OverworldController> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_OVERWORLDCONTROLLER);
+        return LuaUtil.checkType(value, Lua.TYPEID_OVERWORLDCONTROLLER);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = {
@@ -67,114 +67,98 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
             new setEntryTransition(),
             new setExitTransition(),
             new isCameraFixing(),
-            new setCameraFixing()
+            new setCameraFixing(),
+            new getPrefetchDistance(),
+            new setPrefetchDistance()
     };
     
     public LuaOverworldControllerMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getOwningEnvironment extends LibraryFunction {
+    static class getOwningEnvironment extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return EnvironmentLib.create(controller.getEnvironment());
         }
     }
     
-    static class isRendering extends LibraryFunction {
+    static class isRendering extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return LuaValue.valueOf(controller.isRendering());
         }
     }
     
-    static class setRendering extends LibraryFunction {
+    static class setRendering extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-
-            OverworldController controller = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             controller.setRendering(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class isProcessing extends LibraryFunction {
+    static class isProcessing extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return LuaValue.valueOf(controller.isProcessing());
         }
     }
     
-    static class setProcessing extends LibraryFunction {
+    static class setProcessing extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             controller.setProcessing(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class isRenderingHitboxes extends LibraryFunction {
+    static class isRenderingHitboxes extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return LuaValue.valueOf(controller.isRenderingHitboxes());
         }
     }
     
-    static class setRenderingHitboxes extends LibraryFunction {
+    static class setRenderingHitboxes extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-
-            OverworldController controller = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             controller.setRenderingHitboxes(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class isCameraFixing extends LibraryFunction {
+    static class isCameraFixing extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return LuaValue.valueOf(controller.isCameraFixing());
         }
     }
     
-    static class setCameraFixing extends LibraryFunction {
+    static class setCameraFixing extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             controller.setCameraFixing(flag);
             return LuaValue.NIL;
@@ -185,7 +169,7 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
         @Override
         public Varargs execute(Varargs args) {
             LuaUtil.checkArguments(args, 1, 1);
-
+            
             OverworldController controller = check(args.arg1()).getObject();
             Vector2 position = controller.getCameraPosition();
             
@@ -209,35 +193,29 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
         }
     }
     
-    static class getCameraZoom extends LibraryFunction {
+    static class getCameraZoom extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             
             return LuaValue.valueOf(controller.getCameraZoom());
         }
     }
     
-    static class setCameraZoom extends LibraryFunction {
+    static class setCameraZoom extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            float zoom = new Float(args.checkdouble(2));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            float zoom = new Float(arg2.checkdouble());
             controller.setCameraZoom(zoom);
             return LuaValue.NIL;
         }
     }
     
-    static class getCurrentRoom extends LibraryFunction {
+    static class getCurrentRoom extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             return LuaWorldRoomMeta.create(controller.getCurrentRoom());
         }
     }
@@ -258,50 +236,62 @@ public class LuaOverworldControllerMeta extends LuaLibrary {
         }
     }
     
-    static class getCharacterID extends LibraryFunction {
+    static class getCharacterID extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            OverworldController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
             return LuaValue.valueOf(controller.getCharacterID());
         }
     }
     
-    static class setCharacterID extends LibraryFunction {
+    static class setCharacterID extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            long id = args.checklong(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            long id = arg2.checklong();
             controller.setCharacterID(id);
             return LuaValue.NIL;
         }
     }
     
-    static class setEntryTransition extends LibraryFunction {
+    static class setEntryTransition extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            LuaTable task = args.checktable(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            LuaTable task = arg2.checktable();
             
             controller.setEntryTransition(new LuaTask(task));
             return LuaValue.NIL;
         }
     }
     
-    static class setExitTransition extends LibraryFunction {
+    static class setExitTransition extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            OverworldController controller = check(args.arg1()).getObject();
-            LuaTable task = args.checktable(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            LuaTable task = arg2.checktable();
             controller.setExitTransition(new LuaTask(task));
             return LuaValue.NIL;
         }
     }
+    
+    static class getPrefetchDistance extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            OverworldController controller = check(arg).getObject();
+            
+            return LuaValue.valueOf(controller.getPrefetchDistance());
+        }
+    }
+    
+    static class setPrefetchDistance extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            OverworldController controller = check(arg1).getObject();
+            float distance = new Float(arg2.checkdouble());
+            
+            controller.setPrefetchDistance(distance);
+            return LuaValue.NIL;
+        }
+    }
 }
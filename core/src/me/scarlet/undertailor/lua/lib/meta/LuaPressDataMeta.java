@@ -36,7 +36,7 @@ import org.luaj.vm2.Varargs;
 public class LuaPressDataMeta extends LuaLibrary {
     
     public static LuaObjectValue<PressData> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_PRESSDATA);
+        return LuaUtil.checkType(value, Lua.TYPEID_PRESSDATA);
     }
     
     public static LuaObjectValue<PressData> create(PressData data) {
@@ -78,42 +78,34 @@ public class LuaPressDataMeta extends LuaLibrary {
         }
     }
     
-    static class isPressed extends LibraryFunction {
+    static class isPressed extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.isPressed());
         }
     }
     
-    static class getHoldTime extends LibraryFunction {
+    static class getHoldTime extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.getHoldTime() / 1000.0);
         }
     }
     
-    static class getLastPressTime extends LibraryFunction {
+    static class getLastPressTime extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.getLastPressTime() / 1000.0);
         }
     }
     
-    static class getLastReleaseTime extends LibraryFunction {
+    static class getLastReleaseTime extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            PressData data = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            PressData data = check(arg).getObject();
             return LuaValue.valueOf(data.getLastReleaseTime() / 1000.0);
         }
     }
@@ -11,7 +11,7 @@ import org.luaj.vm2.LuaValue;
 public class LuaRoomMapMeta extends LuaLibrary {
 
     public static LuaObjectValue<RoomDataWrapper> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_WORLDMAP);
+        return LuaUtil.checkType(value, Lua.TYPEID_WORLDMAP);
     }
     
     public static LuaObjectValue<RoomDataWrapper> create(RoomDataWrapper room) {
@@ -25,6 +25,8 @@
 package me.scarlet.undertailor.lua.lib.meta;
 
 import me.scarlet.undertailor.environment.Scheduler;
+import me.scarlet.undertailor.environment.scheduler.CoroutineTask;
+import me.scarlet.undertailor.environment.scheduler.LuaAsyncTask;
 import me.scarlet.undertailor.environment.scheduler.LuaTask;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
@@ -32,6 +34,7 @@ import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.lua.lib.game.EnvironmentLib;
 import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
@@ -44,7 +47,7 @@ public class LuaSchedulerMeta extends LuaLibrary {
     }
     
     public static LuaObjectValue<Scheduler> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_SCHEDULER);
+        return LuaUtil.checkType(value, Lua.TYPEID_SCHEDULER);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = {
@@ -52,19 +55,25 @@ public class LuaSchedulerMeta extends LuaLibrary {
             new registerTask(),
             new cancelTask(),
             new hasTask(),
-            new generateTask()
+            new generateTask(),
+            new getFrameBudget(),
+            new setFrameBudget(),
+            new getTime(),
+            new runLater(),
+            new runRepeating(),
+            new cancel(),
+            new runCoroutine(),
+            new runAsync()
     }; 
     
     public LuaSchedulerMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getOwningEnvironment extends LibraryFunction {
+    static class getOwningEnvironment extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            Scheduler scheduler = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            Scheduler scheduler = check(arg).getObject();
             return EnvironmentLib.create(scheduler.getEnvironment());
         }
     }
@@ -72,37 +81,34 @@ public class LuaSchedulerMeta extends LuaLibrary {
     static class registerTask extends LibraryFunction { // TODO add task creation for consistency with other creation methods
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 3);
+            LuaUtil.checkArguments(args, 2, 4);
             
             Scheduler scheduler = check(args.arg1()).getObject();
             LuaTable impl = args.checktable(2);
             boolean active = args.optboolean(3, true);
+            float delay = new Float(args.optdouble(4, 0F));
             
             LuaTask task = new LuaTask(impl);
-            return LuaValue.valueOf(scheduler.registerTask(task, active));
+            return LuaValue.valueOf(scheduler.registerTask(task, active, task.getPriority(), delay));
         }
     }
     
-    static class cancelTask extends LibraryFunction {
+    static class cancelTask extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            Scheduler scheduler = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Scheduler scheduler = check(arg1).getObject();
+            int id = arg2.checkint();
             
             scheduler.cancelTask(id);
             return LuaValue.NIL;
         }
     }
     
-    static class hasTask extends LibraryFunction {
+    static class hasTask extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            Scheduler scheduler = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Scheduler scheduler = check(arg1).getObject();
+            int id = arg2.checkint();
             
             return LuaValue.valueOf(scheduler.hasTask(id));
         }
@@ -131,4 +137,106 @@ public class LuaSchedulerMeta extends LuaLibrary {
             return LuaValue.valueOf(scheduler.registerTask(new LuaTask(compile), active));
         }
     }
+    
+    static class getFrameBudget extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            Scheduler scheduler = check(arg).getObject();
+            return LuaValue.valueOf(scheduler.getFrameBudget());
+        }
+    }
+    
+    static class setFrameBudget extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Scheduler scheduler = check(arg1).getObject();
+            float budget = new Float(arg2.checkdouble());
+            
+            scheduler.setFrameBudget(budget);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getTime extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            Scheduler scheduler = check(arg).getObject();
+            return LuaValue.valueOf(scheduler.getTime());
+        }
+    }
+    
+    static class runLater extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 3);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            float delay = new Float(args.checkdouble(2));
+            LuaFunction func = args.checkfunction(3);
+            
+            return LuaValue.valueOf(scheduler.runLater(delay, () -> func.call()));
+        }
+    }
+    
+    static class runRepeating extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 3, 4);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            float interval = new Float(args.checkdouble(2));
+            LuaFunction func = args.checkfunction(3);
+            float delay = new Float(args.optdouble(4, interval));
+            
+            if(interval <= 0F) {
+                throw new LuaError("interval must be above 0");
+            }
+            
+            return LuaValue.valueOf(scheduler.runRepeating(delay, interval, () -> func.call()));
+        }
+    }
+    
+    static class cancel extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Scheduler scheduler = check(arg1).getObject();
+            long id = arg2.checklong();
+            
+            scheduler.cancel(id);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class runCoroutine extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 5);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            LuaFunction func = args.checkfunction(2);
+            String name = args.optjstring(3, null);
+            boolean active = args.optboolean(4, true);
+            int priority = args.optint(5, Scheduler.PRIORITY_NORMAL);
+            
+            CoroutineTask task = new CoroutineTask(scheduler, name, priority, func);
+            return LuaValue.valueOf(scheduler.registerTask(task, active));
+        }
+    }
+    
+    static class runAsync extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 4, 6);
+            
+            Scheduler scheduler = check(args.arg1()).getObject();
+            LuaFunction func = args.checkfunction(2);
+            LuaValue data = args.arg(3);
+            LuaFunction onComplete = args.checkfunction(4);
+            LuaFunction onError = args.isnil(5) ? null : args.checkfunction(5);
+            String name = args.optjstring(6, null);
+            
+            LuaAsyncTask task = new LuaAsyncTask(name, func, data, onComplete, onError);
+            return LuaValue.valueOf(scheduler.runAsync(task));
+        }
+    }
 }
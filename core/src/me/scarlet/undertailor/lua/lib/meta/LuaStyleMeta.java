@@ -37,7 +37,7 @@ import org.luaj.vm2.Varargs;
 public class LuaStyleMeta extends LuaLibrary {
     
     public static LuaObjectValue<Style> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_STYLE);
+        return LuaUtil.checkType(value, Lua.TYPEID_STYLE);
     }
     
     public static LuaObjectValue<Style> create(Style style) {
@@ -70,13 +70,11 @@ public class LuaStyleMeta extends LuaLibrary {
         }
     }
     
-    static class onNextTextRender extends LibraryFunction {
+    static class onNextTextRender extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            Style style = check(args.arg1()).getObject();
-            float delta = new Float(args.checkdouble(2));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            Style style = check(arg1).getObject();
+            float delta = new Float(arg2.checkdouble());
             
             style.onNextTextRender(delta);
             return LuaValue.NIL;
@@ -26,10 +26,12 @@ package me.scarlet.undertailor.lua.lib.meta;
 
 import com.badlogic.gdx.math.Vector2;
 import me.scarlet.undertailor.environment.ui.UIComponent;
+import me.scarlet.undertailor.gfx.ParticleEmitter;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.lib.game.ParticlesLib;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
@@ -38,7 +40,7 @@ import org.luaj.vm2.Varargs;
 public class LuaUIComponentMeta extends LuaLibrary {
     
     public static LuaObjectValue<UIComponent> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_UICOMPONENT);
+        return LuaUtil.checkType(value, Lua.TYPEID_UICOMPONENT);
     }
     
     public static LuaObjectValue<UIComponent> create(UIComponent value) {
@@ -54,19 +56,19 @@ public class LuaUIComponentMeta extends LuaLibrary {
             new setRenderWhenInactive(),
             new destroy(),
             new destroyParent(),
-            new getComponentTypeName()
+            new getComponentTypeName(),
+            new getEmitter(),
+            new setEmitter()
     };
     
     public LuaUIComponentMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getParent extends LibraryFunction {
+    static class getParent extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIComponent component = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIComponent component = check(arg).getObject();
             if(component.getParent() == null) {
                 return LuaValue.NIL;
             } else {
@@ -114,38 +116,32 @@ public class LuaUIComponentMeta extends LuaLibrary {
         }
     }
     
-    static class setAlwaysActive extends LibraryFunction {
+    static class setAlwaysActive extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            UIComponent component = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIComponent component = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             component.setAlwaysActive(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class setRenderWhenInactive extends LibraryFunction {
+    static class setRenderWhenInactive extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            UIComponent component = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIComponent component = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             
             component.setRenderWhenInactive(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class destroy extends LibraryFunction {
+    static class destroy extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIComponent component = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIComponent component = check(arg).getObject();
             
             try {
                 component.destroy();
@@ -157,13 +153,11 @@ public class LuaUIComponentMeta extends LuaLibrary {
         }
     }
     
-    static class destroyParent extends LibraryFunction {
+    static class destroyParent extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
+        public LuaValue call(LuaValue arg) {
             try {
-                UIComponent component = check(args.arg1()).getObject();
+                UIComponent component = check(arg).getObject();
                 component.destroyObject();
             } catch(IllegalArgumentException e) {
                 throw new LuaError(e.getMessage());
@@ -173,13 +167,33 @@ public class LuaUIComponentMeta extends LuaLibrary {
         }
     }
     
-    static class getComponentTypeName extends LibraryFunction {
+    static class getComponentTypeName extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            UIComponent component = check(arg).getObject();
+            return LuaValue.valueOf(component.getComponentTypeName());
+        }
+    }
+    
+    static class getEmitter extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIComponent component = check(arg1).getObject();
+            ParticleEmitter emitter = component.getEmitter(arg2.checkjstring());
+            return emitter == null ? LuaValue.NIL : ParticlesLib.create(emitter);
+        }
+    }
+    
+    static class setEmitter extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
+            LuaUtil.checkArguments(args, 3, 3);
             
-            UIComponent component = check(args.arg1()).getObject();
-            return LuaValue.valueOf(component.getComponentTypeName());
+            UIComponent component = check(args.arg(1)).getObject();
+            String emitterId = args.checkjstring(2);
+            ParticleEmitter emitter = args.isnil(3) ? null : ParticlesLib.check(args.arg(3)).getObject();
+            component.setEmitter(emitterId, emitter);
+            return LuaValue.NIL;
         }
     }
 }
@@ -33,7 +33,6 @@ import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.lua.lib.game.EnvironmentLib;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.Varargs;
 
 public class LuaUIControllerMeta extends LuaLibrary {
     
@@ -42,7 +41,7 @@ public class LuaUIControllerMeta extends LuaLibrary {
     }
     
     public static LuaObjectValue<UIController> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_UICONTROLLER);
+        return LuaUtil.checkType(value, Lua.TYPEID_UICONTROLLER);
     }
     
     public static final LuaLibraryComponent[] COMPONENTS = {
@@ -56,35 +55,29 @@ public class LuaUIControllerMeta extends LuaLibrary {
         super(null, COMPONENTS);
     }
     
-    static class getOwningEnvironment extends LibraryFunction {
+    static class getOwningEnvironment extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIController controller = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIController controller = check(arg).getObject();
             
             return EnvironmentLib.create(controller.getEnvironment());
         }
     }
     
-    static class registerObject extends LibraryFunction {
+    static class registerObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            UIController controller = check(args.arg1()).getObject();
-            UIObject obj = LuaUIObjectMeta.check(args.arg(2)).getObject();
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIController controller = check(arg1).getObject();
+            UIObject obj = LuaUIObjectMeta.check(arg2).getObject();
             return LuaValue.valueOf(controller.registerObject(obj));
         }
     }
     
-    static class getObject extends LibraryFunction {
+    static class getObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            UIController controller = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIController controller = check(arg1).getObject();
+            int id = arg2.checkint();
             UIObject obj = controller.getUIObject(id);
             if(obj == null) {
                 return LuaValue.NIL;
@@ -94,13 +87,11 @@ public class LuaUIControllerMeta extends LuaLibrary {
         }
     }
     
-    static class destroyObject extends LibraryFunction {
+    static class destroyObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-
-            UIController controller = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIController controller = check(arg1).getObject();
+            int id = arg2.checkint();
             return LuaValue.valueOf(controller.destroyObject(id));
         }
     }
@@ -39,7 +39,7 @@ import org.luaj.vm2.Varargs;
 public class LuaUIObjectMeta extends LuaLibrary {
     
     public static LuaObjectValue<UIObject> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_UIOBJECT);
+        return LuaUtil.checkType(value, Lua.TYPEID_UIOBJECT);
     }
     
     public static LuaObjectValue<UIObject> create(UIObject value) {
@@ -63,12 +63,10 @@ public class LuaUIObjectMeta extends LuaLibrary {
         super(null, COMPONENTS);
     }
     
-    static class getOwningController extends LibraryFunction {
+    static class getOwningController extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             UIController controller = obj.getOwningController();
             
             if(controller != null) {
@@ -79,53 +77,43 @@ public class LuaUIObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getID extends LibraryFunction {
+    static class getID extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             return LuaValue.valueOf(obj.getId());
         }
     }
     
-    static class isHeadless extends LibraryFunction {
+    static class isHeadless extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             return LuaValue.valueOf(obj.isHeadless());
         }
     }
     
-    static class getLifetime extends LibraryFunction {
+    static class getLifetime extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             return LuaValue.valueOf(obj.getLifetime());
         }
     }
     
-    static class isVisible extends LibraryFunction {
+    static class isVisible extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             return LuaValue.valueOf(obj.isVisible());
         }
     }
     
-    static class setVisible extends LibraryFunction {
+    static class setVisible extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            UIObject obj = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            UIObject obj = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             obj.setVisible(flag);
             return LuaValue.NIL;
         }
@@ -159,12 +147,10 @@ public class LuaUIObjectMeta extends LuaLibrary {
         }
     }
     
-    static class destroy extends LibraryFunction {
+    static class destroy extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            UIObject obj = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            UIObject obj = check(arg).getObject();
             obj.destroy();
             return LuaValue.NIL;
         }
@@ -25,17 +25,21 @@
 package me.scarlet.undertailor.lua.lib.meta;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import me.scarlet.undertailor.collision.CollisionLayer;
 import me.scarlet.undertailor.collision.bbshapes.BoundingBox;
 import me.scarlet.undertailor.collision.bbshapes.BoundingCircle;
 import me.scarlet.undertailor.collision.bbshapes.BoundingRectangle;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.gfx.AnimationData;
+import me.scarlet.undertailor.gfx.ParticleEmitter;
 import me.scarlet.undertailor.lua.Lua;
 import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.lua.lib.game.AnimationLib;
+import me.scarlet.undertailor.lua.lib.game.ParticlesLib;
 import me.scarlet.undertailor.util.LuaUtil;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
@@ -44,7 +48,7 @@ import org.luaj.vm2.Varargs;
 public class LuaWorldObjectMeta extends LuaLibrary {
     
     public static LuaObjectValue<WorldObject> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_WORLDOBJECT);
+        return LuaUtil.checkType(value, Lua.TYPEID_WORLDOBJECT);
     }
     
     public static LuaObjectValue<WorldObject> create(WorldObject value) {
@@ -72,6 +76,8 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             new setPosition(),
             new getAnimation(),
             new setAnimation(),
+            new getEmitter(),
+            new setEmitter(),
             new createBoundingBox(),
             new removeBoundingBox(),
             new getBoundingBox(),
@@ -84,52 +90,48 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             new getRoom(),
             new destroy(),
             new isPersisting(),
-            new setPersisting()
+            new setPersisting(),
+            new getCollisionLayer(),
+            new setCollisionLayer(),
+            new getCollidesWith(),
+            new setCollidesWith()
     };
     
     public LuaWorldObjectMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getID extends LibraryFunction {
+    static class getID extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getId());
         }
     }
     
-    static class getRotation extends LibraryFunction {
+    static class getRotation extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getRotation());
         }
     }
     
-    static class setRotation extends LibraryFunction {
+    static class setRotation extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            float rotation = new Float(args.checkdouble(2));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            float rotation = new Float(arg2.checkdouble());
             object.setRotation(rotation);
             return LuaValue.NIL;
         }
     }
     
-    static class isIgnoringCollisionWith extends LibraryFunction {
+    static class isIgnoringCollisionWith extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-
-            WorldObject object = check(args.arg1()).getObject();
-            WorldObject collider = check(args.arg(2)).getObject();
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            WorldObject collider = check(arg2).getObject();
             
             return LuaValue.valueOf(object.isCollisionIgnored(collider));
         }
@@ -149,46 +151,38 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class updateCollision extends LibraryFunction {
+    static class updateCollision extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             object.updateCollision();
             
             return LuaValue.NIL;
         }
     }
     
-    static class isOneSidedReaction extends LibraryFunction {
+    static class isOneSidedReaction extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.isOneSidedReaction());
         }
     }
     
-    static class setOneSidedReaction extends LibraryFunction {
+    static class setOneSidedReaction extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             object.setOneSidedReaction(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class getBodyType extends LibraryFunction {
+    static class getBodyType extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             BodyType type = null;
             if(object.getBody() == null) {
                 type = object.getBodyDef().type;
@@ -209,13 +203,11 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class setBodyType extends LibraryFunction {
+    static class setBodyType extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            int typeId = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            int typeId = arg2.checkint();
             
             BodyType type = null;
             switch(typeId) {
@@ -262,13 +254,11 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class removeBoundingBox extends LibraryFunction {
+    static class removeBoundingBox extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            String boxId = args.checkjstring(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            String boxId = arg2.checkjstring();
             
             object.setBoundingBox(boxId, null);
             
@@ -276,44 +266,36 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getHeight extends LibraryFunction {
+    static class getHeight extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getHeight());
         }
     }
     
-    static class setHeight extends LibraryFunction {
+    static class setHeight extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            object.setHeight(new Float(args.checkdouble(2)));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            object.setHeight(new Float(arg2.checkdouble()));
             return LuaValue.NIL;
         }
     }
     
-    static class getZ extends LibraryFunction {
+    static class getZ extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getZ());
         }
     }
     
-    static class setZ extends LibraryFunction {
+    static class setZ extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            int z = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            int z = arg2.checkint();
             object.setZ(z);
             return LuaValue.NIL;
         }
@@ -322,13 +304,15 @@ public class LuaWorldObjectMeta extends LuaLibrary {
     static class getVelocity extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
+            LuaUtil.checkArguments(args, 1, 2);
             
             WorldObject object = check(args.arg1()).getObject();
+            if(object.getBody() == null) {
+                return LuaUtil.asPair(0, 0, args.arg(2));
+            }
+            
             Vector2 vel = object.getBody().getLinearVelocity();
-            return LuaValue.varargsOf(new LuaValue[] {
-                    LuaValue.valueOf(vel.x),
-                    LuaValue.valueOf(vel.y)});
+            return LuaUtil.asPair(vel.x, vel.y, args.arg(2));
         }
     }
     
@@ -338,22 +322,23 @@ public class LuaWorldObjectMeta extends LuaLibrary {
             LuaUtil.checkArguments(args, 2, 4);
             
             WorldObject object = check(args.arg(1)).getObject();
-            Vector2 vel = object.getBody().getLinearVelocity();
+            Body body = object.getBody();
+            Vector2 vel = body.getLinearVelocity();
             float x = new Float(args.optdouble(2, vel.x));
             float y = new Float(args.optdouble(3, vel.y));
             int movetype = args.optint(4, 0);
-            vel.set(x, y);
             
+            // body vectors are shared by box2d; pass components instead of mutating them
             switch(movetype) {
                 case 1: // impulse
-                    Vector2 pos = object.getBody().getPosition();
-                    object.getBody().applyLinearImpulse(vel, pos, true);
+                    Vector2 pos = body.getPosition();
+                    body.applyLinearImpulse(x, y, pos.x, pos.y, true);
                     break;
                 case 2: // force
-                    object.getBody().applyForceToCenter(vel, true);
+                    body.applyForceToCenter(x, y, true);
                     break;
                 default: // direct
-                    object.getBody().setLinearVelocity(vel);
+                    body.setLinearVelocity(x, y);
                     break;
             }
             
@@ -364,13 +349,11 @@ public class LuaWorldObjectMeta extends LuaLibrary {
     static class getPosition extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
+            LuaUtil.checkArguments(args, 1, 2);
             
             WorldObject object = check(args.arg1()).getObject();
             Vector2 pos = object.getPosition();
-            return LuaValue.varargsOf(new LuaValue[] {
-                    LuaValue.valueOf(pos.x),
-                    LuaValue.valueOf(pos.y)});
+            return LuaUtil.asPair(pos.x, pos.y, args.arg(2));
         }
     }
     
@@ -389,13 +372,11 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getAnimation extends LibraryFunction {
+    static class getAnimation extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            String animationId = args.checkjstring(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            String animationId = arg2.checkjstring();
             AnimationData anim = object.getAnimation(animationId);
             if(anim == null) {
                 return LuaValue.NIL;
@@ -418,89 +399,95 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class getBoundingBox extends LibraryFunction {
+    static class getEmitter extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            ParticleEmitter emitter = object.getEmitter(arg2.checkjstring());
+            return emitter == null ? LuaValue.NIL : ParticlesLib.create(emitter);
+        }
+    }
+    
+    static class setEmitter extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
+            LuaUtil.checkArguments(args, 3, 3);
             
-            WorldObject object = check(args.arg1()).getObject();
-            String boxId = args.checkjstring(2);
+            WorldObject object = check(args.arg(1)).getObject();
+            String emitterId = args.checkjstring(2);
+            ParticleEmitter emitter = args.isnil(3) ? null : ParticlesLib.check(args.arg(3)).getObject();
+            object.setEmitter(emitterId, emitter);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getBoundingBox extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            String boxId = arg2.checkjstring();
             return LuaBoundingBoxMeta.create(object.getBoundingBox(boxId));
         }
     }
     
-    static class getScale extends LibraryFunction {
+    static class getScale extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.getScale());
         }
     }
     
-    static class setScale extends LibraryFunction {
+    static class setScale extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            float scale = new Float(args.checkdouble(2));
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            float scale = new Float(arg2.checkdouble());
             object.setScale(scale);
             return LuaValue.NIL;
         }
     }
     
-    static class canCollide extends LibraryFunction {
+    static class canCollide extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.canCollide());
         }
     }
     
-    static class setCanCollide extends LibraryFunction {
+    static class setCanCollide extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             object.setCanCollide(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class isVisible extends LibraryFunction {
+    static class isVisible extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             return LuaValue.valueOf(object.isVisible());
         }
     }
     
-    static class setVisible extends LibraryFunction {
+    static class setVisible extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldObject object = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
             object.setVisible(flag);
             return LuaValue.NIL;
         }
     }
     
-    static class getRoom extends LibraryFunction {
+    static class getRoom extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             if(object.getRoom() != null) {
                 return LuaWorldRoomMeta.create(object.getRoom());
             } else {
@@ -509,35 +496,79 @@ public class LuaWorldObjectMeta extends LuaLibrary {
         }
     }
     
-    static class destroy extends LibraryFunction {
+    static class destroy extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldObject object = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
             object.destroy();
             return LuaValue.NIL;
         }
     }
     
-    static class isPersisting extends LibraryFunction {
+    static class isPersisting extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
+            return LuaValue.valueOf(object.isPersisting());
+        }
+    }
+    
+    static class setPersisting extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            boolean flag = arg2.checkboolean();
+            object.setPersisting(flag);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollisionLayer extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldObject object = check(arg).getObject();
+            String layer = CollisionLayer.getLayerName(object.getCollisionCategory());
+            return layer == null ? LuaValue.NIL : LuaValue.valueOf(layer);
+        }
+    }
+    
+    static class setCollisionLayer extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldObject object = check(arg1).getObject();
+            String layer = arg2.checkjstring();
+            try {
+                object.setCollisionCategory(CollisionLayer.getCategory(layer));
+            } catch(IllegalStateException e) {
+                throw new LuaError(e.getMessage());
+            }
+            
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getCollidesWith extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
             LuaUtil.checkArguments(args, 1, 1);
             
             WorldObject object = check(args.arg1()).getObject();
-            return LuaValue.valueOf(object.isPersisting());
+            return LuaBoundingBoxMeta.asLayerNames(object.getCollisionMask());
         }
     }
     
-    static class setPersisting extends LibraryFunction {
+    static class setCollidesWith extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
+            LuaUtil.checkArguments(args, 1, -1);
             
             WorldObject object = check(args.arg1()).getObject();
-            boolean flag = args.checkboolean(2);
-            object.setPersisting(flag);
+            try {
+                object.setCollisionMask(LuaBoundingBoxMeta.checkMask(args, 2));
+            } catch(IllegalStateException e) {
+                throw new LuaError(e.getMessage());
+            }
+            
             return LuaValue.NIL;
         }
     }
@@ -24,6 +24,8 @@
 
 package me.scarlet.undertailor.lua.lib.meta;
 
+import com.badlogic.gdx.math.Vector2;
+import me.scarlet.undertailor.collision.CollisionHandler;
 import me.scarlet.undertailor.environment.OverworldController;
 import me.scarlet.undertailor.environment.overworld.WorldObject;
 import me.scarlet.undertailor.environment.overworld.WorldRoom;
@@ -33,13 +35,15 @@ import me.scarlet.undertailor.lua.LuaLibrary;
 import me.scarlet.undertailor.lua.LuaLibraryComponent;
 import me.scarlet.undertailor.lua.LuaObjectValue;
 import me.scarlet.undertailor.util.LuaUtil;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 
 public class LuaWorldRoomMeta extends LuaLibrary {
     
     public static LuaObjectValue<WorldRoom> check(LuaValue value) {
-        return LuaUtil.checkType(value, Lua.TYPENAME_WORLDROOM);
+        return LuaUtil.checkType(value, Lua.TYPEID_WORLDROOM);
     }
     
     public static LuaObjectValue<WorldRoom> create(WorldRoom room) {
@@ -51,23 +55,32 @@ public class LuaWorldRoomMeta extends LuaLibrary {
             new getRoomName(),
             new registerObject(),
             new getObject(),
+            new getPositions(),
             new getMap(),
             new setMap(),
             new removeObject(),
             new newEntrypoint(),
-            new registerEntrypoint()
+            new registerEntrypoint(),
+            new getPhysicsStepRate(),
+            new setPhysicsStepRate(),
+            new getSolverIterations(),
+            new setSolverIterations(),
+            new getMaxSubsteps(),
+            new setMaxSubsteps(),
+            new getProjectileCount(),
+            new clearProjectiles(),
+            new isProjectileTarget(),
+            new setProjectileTarget()
     };
     
     public LuaWorldRoomMeta() {
         super(null, COMPONENTS);
     }
     
-    static class getOwningController extends LibraryFunction {
+    static class getOwningController extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldRoom room = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
             OverworldController controller = room.getOwningController();
             
             if(controller != null) {
@@ -78,55 +91,45 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
-    static class getMap extends LibraryFunction {
+    static class getMap extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldRoom room = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
             return LuaRoomMapMeta.create(room.getMap());
         }
     }
     
-    static class setMap extends LibraryFunction {
+    static class setMap extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldRoom room = check(args.arg1()).getObject();
-            room.setMap(LuaRoomMapMeta.check(args.arg(2)).getObject());
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            room.setMap(LuaRoomMapMeta.check(arg2).getObject());
             return LuaValue.NIL;
         }
     }
     
-    static class getRoomName extends LibraryFunction {
+    static class getRoomName extends OneArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 1, 1);
-            
-            WorldRoom room = check(args.arg1()).getObject();
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
             return LuaValue.valueOf(room.getRoomName());
         }
     }
     
-    static class registerObject extends LibraryFunction {
+    static class registerObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldRoom room = check(args.arg1()).getObject();
-            WorldObject object = LuaWorldObjectMeta.check(args.arg(2)).getObject();
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            WorldObject object = LuaWorldObjectMeta.check(arg2).getObject();
             return LuaValue.valueOf(room.registerObject(object));
         }
     }
     
-    static class getObject extends LibraryFunction {
+    static class getObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldRoom room = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            int id = arg2.checkint();
             if(room.getObject(id) != null) {
                 return LuaWorldObjectMeta.create(room.getObject(id));
             } else {
@@ -135,6 +138,44 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
+    static class getPositions extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            WorldRoom room = check(args.arg1()).getObject();
+            LuaTable objects = args.checktable(2);
+            LuaTable out = args.isnil(3) ? new LuaTable(objects.length() * 2, 0) : args.checktable(3);
+            
+            int length = objects.length();
+            for(int i = 1; i <= length; i++) {
+                LuaValue entry = objects.rawget(i);
+                WorldObject object;
+                if(entry.isnumber()) {
+                    object = room.getObject(entry.tolong());
+                } else {
+                    object = LuaWorldObjectMeta.check(entry).getObject();
+                }
+                
+                if(object == null) { // keep the table a sequence; nil would end it here
+                    out.rawset(i * 2 - 1, LuaValue.FALSE);
+                    out.rawset(i * 2, LuaValue.FALSE);
+                } else {
+                    Vector2 pos = object.getPosition();
+                    out.rawset(i * 2 - 1, LuaUtil.valueOf(pos.x));
+                    out.rawset(i * 2, LuaUtil.valueOf(pos.y));
+                }
+            }
+            
+            // a reused table may still hold positions from a longer call
+            for(int i = length * 2 + 1; !out.rawget(i).isnil(); i++) {
+                out.rawset(i, LuaValue.NIL);
+            }
+            
+            return out;
+        }
+    }
+    
     static class registerEntrypoint extends LibraryFunction {
         @Override
         public Varargs execute(Varargs args) {
@@ -149,13 +190,11 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
-    static class removeObject extends LibraryFunction {
+    static class removeObject extends TwoArgLibraryFunction {
         @Override
-        public Varargs execute(Varargs args) {
-            LuaUtil.checkArguments(args, 2, 2);
-            
-            WorldRoom room = check(args.arg1()).getObject();
-            int id = args.checkint(2);
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            int id = arg2.checkint();
             room.removeObject(id);
             return LuaValue.NIL;
         }
@@ -170,5 +209,108 @@ public class LuaWorldRoomMeta extends LuaLibrary {
         }
     }
     
+    static class getPhysicsStepRate extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
+            return LuaValue.valueOf(1F / room.getCollisionHandler().getPhysicsStep());
+        }
+    }
+    
+    static class setPhysicsStepRate extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            double rate = arg2.checkdouble();
+            if(rate <= 0) {
+                throw new LuaError("bad argument #2: step rate must be above 0");
+            }
+            
+            room.getCollisionHandler().setPhysicsStep((float) (1.0 / rate));
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getSolverIterations extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 1, 1);
+            
+            CollisionHandler handler = check(args.arg1()).getObject().getCollisionHandler();
+            return LuaValue.varargsOf(new LuaValue[] {
+                    LuaValue.valueOf(handler.getVelocityIterations()),
+                    LuaValue.valueOf(handler.getPositionIterations())});
+        }
+    }
+    
+    static class setSolverIterations extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            CollisionHandler handler = check(args.arg1()).getObject().getCollisionHandler();
+            int velocity = args.optint(2, handler.getVelocityIterations());
+            int position = args.optint(3, handler.getPositionIterations());
+            handler.setSolverIterations(velocity, position);
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class getMaxSubsteps extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
+            return LuaValue.valueOf(room.getCollisionHandler().getMaxSubsteps());
+        }
+    }
+    
+    static class setMaxSubsteps extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            room.getCollisionHandler().setMaxSubsteps(arg2.checkint());
+            return LuaValue.NIL;
+        }
+    }
+    
     // TODO map data access
+    
+    static class getProjectileCount extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
+            return LuaValue.valueOf(room.getProjectiles().getCount());
+        }
+    }
+    
+    static class clearProjectiles extends OneArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg) {
+            WorldRoom room = check(arg).getObject();
+            room.getProjectiles().clear();
+            return LuaValue.NIL;
+        }
+    }
+    
+    static class isProjectileTarget extends TwoArgLibraryFunction {
+        @Override
+        public LuaValue call(LuaValue arg1, LuaValue arg2) {
+            WorldRoom room = check(arg1).getObject();
+            WorldObject object = LuaWorldObjectMeta.check(arg2).getObject();
+            return LuaValue.valueOf(room.getProjectiles().isTarget(object));
+        }
+    }
+    
+    static class setProjectileTarget extends LibraryFunction {
+        @Override
+        public Varargs execute(Varargs args) {
+            LuaUtil.checkArguments(args, 2, 3);
+            
+            WorldRoom room = check(args.arg(1)).getObject();
+            WorldObject object = LuaWorldObjectMeta.check(args.arg(2)).getObject();
+            boolean flag = args.optboolean(3, true);
+            room.getProjectiles().setTarget(object, flag);
+            return LuaValue.NIL;
+        }
+    }
 }
@@ -24,6 +24,7 @@
 
 package me.scarlet.undertailor.manager;
 
+import com.badlogic.gdx.Gdx;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.util.LuaUtil;
 import me.scarlet.undertailor.wrappers.AnimationSetWrapper;
@@ -40,8 +41,10 @@ public class AnimationManager extends Manager<AnimationSetWrapper> {
     
     // owning object name, animation name, animation
     private Map<String, AnimationSetWrapper> animationMap;
+    private Map<File, AnimationSetWrapper> sources;
     public AnimationManager() {
         this.animationMap = new HashMap<>();
+        this.sources = new HashMap<>();
     }
     
     public void loadObjects(File dir) {
@@ -84,13 +87,39 @@ public class AnimationManager extends Manager<AnimationSetWrapper> {
                 }
                 
                 Undertailor.instance.debug(MANAGER_TAG, "loading animation set " + entryName);
-                animationMap.put(entryName, new AnimationSetWrapper(entryName, node));
+                AnimationSetWrapper wrapper = new AnimationSetWrapper(entryName, node);
+                animationMap.put(entryName, wrapper);
+                sources.put(file.getAbsoluteFile(), wrapper);
             } catch(Exception e) {
                 Undertailor.instance.error(MANAGER_TAG, "could not load animationset " + name + ": " + LuaUtil.formatJavaException(e), e);
             }
         }
     }
     
+    @Override
+    protected void onFileChanged(File file) {
+        AnimationSetWrapper wrapper = sources.get(file.getAbsoluteFile());
+        if(wrapper == null) {
+            return;
+        }
+        
+        try {
+            ConfigurationNode node = JSONConfigurationLoader.builder().setFile(file).build().load();
+            if(node.getNode("meta").isVirtual() || node.getNode("animation").isVirtual()) {
+                Undertailor.instance.warn(MANAGER_TAG, "not reloading animation file " + file.getName() + " containing invalid animation configuration");
+                return;
+            }
+            
+            Gdx.app.postRunnable(() -> {
+                wrapper.setConfig(node);
+                wrapper.reload();
+                Undertailor.instance.log(MANAGER_TAG, "reloaded animation set from " + file.getName());
+            });
+        } catch(Exception e) {
+            Undertailor.instance.error(MANAGER_TAG, "could not reload animationset " + file.getName() + ": " + LuaUtil.formatJavaException(e), e);
+        }
+    }
+    
     public AnimationSetWrapper getAnimation(String name) {
         if(animationMap.containsKey(name)) {
             return animationMap.get(name);
@@ -27,6 +27,7 @@ package me.scarlet.undertailor.manager;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import me.scarlet.undertailor.collision.CollisionLayer;
 import me.scarlet.undertailor.environment.Environment;
 import me.scarlet.undertailor.environment.overworld.WorldObjectLoader;
 import me.scarlet.undertailor.environment.overworld.map.RoomLoader;
@@ -126,6 +127,9 @@ public class EnvironmentManager {
         if(hasEnvironment(name)) {
             environments.get(name).dispose();
             environments.remove(name);
+            if(environments.isEmpty()) {
+                CollisionLayer.reset(); // nothing left holds layer bits
+            }
         }
     }
     
@@ -45,8 +45,10 @@ public class FontManager extends Manager<Font> {
     public static final String MANAGER_TAG = "fontman";
     
     private Map<String, Font> fonts;
+    private Map<File, Font> sources;
     public FontManager() {
         fonts = new HashMap<>();
+        sources = new HashMap<>();
     }
     
     public void loadObjects(File dir) {
@@ -109,12 +111,44 @@ public class FontManager extends Manager<Font> {
             try {
                 font = new Font(spriteSheet, data);
                 fonts.put(font.getFontData().getName(), font);
+                sources.put(file.getAbsoluteFile(), font);
+                sources.put(fontDef.getAbsoluteFile(), font);
             } catch(TextureTilingException e) {
                 Undertailor.instance.error(MANAGER_TAG, "could not load font " + entryName + "; " + e.getMessage());
             }
         }
     }
     
+    @Override
+    protected void onFileChanged(File file) {
+        Font font = sources.get(file.getAbsoluteFile());
+        if(font == null) {
+            return;
+        }
+        
+        String name = file.getName().substring(0, file.getName().lastIndexOf('.'));
+        File textureFile = new File(file.getParentFile(), name + ".png");
+        File fontDef = new File(file.getParentFile(), name + ".underfont");
+        FontData data;
+        try {
+            data = FontData.fromConfig(name, JSONConfigurationLoader.builder().setFile(fontDef).build().load());
+        } catch(IOException e) {
+            Undertailor.instance.error(MANAGER_TAG, "failed to reload .underfont config for font " + name + ": " + LuaUtil.formatJavaException(e), e);
+            return;
+        }
+        
+        Gdx.app.postRunnable(() -> {
+            Texture spriteSheet = new Texture(Gdx.files.absolute(textureFile.getAbsolutePath()));
+            try {
+                font.replace(new Font(spriteSheet, data));
+                Undertailor.instance.log(MANAGER_TAG, "reloaded font " + name);
+            } catch(TextureTilingException e) {
+                spriteSheet.dispose();
+                Undertailor.instance.error(MANAGER_TAG, "could not reload font " + name + "; " + e.getMessage());
+            }
+        });
+    }
+    
     public Font getFont(String name) {
         if(fonts.containsKey(name)) {
             return fonts.get(name);
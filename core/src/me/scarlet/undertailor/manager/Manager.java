@@ -24,10 +24,36 @@
 
 package me.scarlet.undertailor.manager;
 
+import me.scarlet.undertailor.util.DirectoryWatcher;
+
 import java.io.File;
 
 public abstract class Manager<T> {
     
     public abstract void loadObjects(File dir);
     
+    /**
+     * Starts reloading objects of this manager whenever one of the files they
+     * were loaded from, within the provided directory, changes.
+     * 
+     * @param dir the directory to watch
+     */
+    public void watch(File dir) {
+        DirectoryWatcher watcher = DirectoryWatcher.getShared();
+        if(watcher != null) {
+            watcher.watch(dir, this::onFileChanged);
+        }
+    }
+    
+    /**
+     * Called on the watcher thread whenever a file within a
+     * directory watched by this manager changes.
+     * 
+     * <p>Implementations should do their parsing here and
+     * hand anything touching live objects over to the engine
+     * thread.</p>
+     * 
+     * @param file the changed file
+     */
+    protected void onFileChanged(File file) {}
 }
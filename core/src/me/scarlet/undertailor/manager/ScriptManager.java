@@ -26,12 +26,16 @@ package me.scarlet.undertailor.manager;
 
 import me.scarlet.undertailor.lua.LuaImplementable;
 import me.scarlet.undertailor.lua.LuaLibrary;
+import me.scarlet.undertailor.lua.ReadOnlyTable;
+import me.scarlet.undertailor.lua.ScriptReloader;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.compiler.LuaC;
 import org.luaj.vm2.lib.Bit32Lib;
-import org.luaj.vm2.lib.DebugLib;
 import org.luaj.vm2.lib.PackageLib;
 import org.luaj.vm2.lib.StringLib;
 import org.luaj.vm2.lib.TableLib;
@@ -39,15 +43,22 @@ import org.luaj.vm2.lib.jse.JseBaseLib;
 import org.luaj.vm2.lib.jse.JseMathLib;
 import org.luaj.vm2.lib.jse.JseOsLib;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 public class ScriptManager {
     
     private static LuaValue[] SHARED_BASE_LIBS;
+    private static Set<String> BOUND_GLOBALS;
     
     static {
+        BOUND_GLOBALS = new HashSet<>(Arrays.asList("_G", "load", "dofile", "loadfile", "require", "package"));
         SHARED_BASE_LIBS = new LuaValue[] {
                 new Bit32Lib(),
                 new TableLib(),
@@ -60,11 +71,19 @@ public class ScriptManager {
     private Map<Class<? extends LuaLibrary>, LuaValue> metatables;
     private Map<Class<? extends LuaLibrary>, LuaLibrary> libraries;
     private Map<Class<? extends LuaImplementable<?, ?>>, LuaImplementable<?, ?>> implementables;
+    private Globals[] templates;
+    private LuaValue[] environments;
+    private LuaTable[] modules;
+    private ScriptReloader reloader;
     
     public ScriptManager() {
         this.libraries = new HashMap<>();
         this.metatables = new HashMap<>();
         this.implementables = new HashMap<>();
+        this.templates = new Globals[2];
+        this.environments = new LuaValue[2];
+        this.modules = new LuaTable[2];
+        this.reloader = null;
     }
     
     /**
@@ -82,6 +101,10 @@ public class ScriptManager {
         for(LuaLibrary library : libraries) {
             this.libraries.put(library.getClass(), library);
         }
+        
+        synchronized(this) {
+            this.templates[1] = null;
+        }
     }
     
     /**
@@ -142,35 +165,73 @@ public class ScriptManager {
      * Generates a new {@link Globals} instance, with libraries determined by
      * the properties of this {@link ScriptManager}.
      * 
-     * <p>Base Lua libraries are always loaded. These include:</p> <ul>
-     * <li>JseBaseLib</li> <li>PackageLib</li> <li>DebugLib</li>
+     * <p>Base Lua libraries are always available. These include:</p> <ul>
+     * <li>JseBaseLib</li> <li>DebugLib, as a
+     * {@link ScriptWatchdog}</li>
      * <li>Bit32Lib</li> <li>TableLib</li> <li>StringLib</li>
      * <li>JseMathLib</li> <li>JseOsLib</li></ul>
      * 
-     * <p>After base libraries are loaded, extra libraries registered into this
-     * {@link ScriptManager} are loaded, if <code>libs</code> is true.</p>
+     * <p>After base libraries, extra libraries registered into this
+     * {@link ScriptManager} are available, if <code>libs</code> is true.</p>
+     * 
+     * <p>The returned Globals only holds the script's own values. Libraries
+     * are loaded once per library set into a shared environment, frozen into a
+     * {@link ReadOnlyTable} and reached through the <code>__index</code> of the
+     * returned Globals' metatable. Only libraries bound to their owning
+     * environment, those not {@link LuaLibrary#isShareable() shareable}, are
+     * loaded into each Globals.</p>
+     * 
+     * <p>Functions that load code do so into the environment that owns them,
+     * so <code>load</code>, <code>dofile</code>, <code>loadfile</code>,
+     * <code>require</code> and <code>package</code> are not shared. Each
+     * returned Globals gets its own, bound to it, and its own
+     * <code>package.loaded</code> holding the read-only base libraries. Chunks
+     * and modules therefore run against the script that loaded them and never
+     * against the shared environment. The extended base library removes all
+     * but <code>require</code> again when registered libraries are
+     * included.</p>
      * 
      * @param libs whether or not to include registered libraries
      */
     public Globals generateGlobals(boolean libs) {
+        Globals template;
+        LuaValue metatable;
+        LuaTable loaded;
+        synchronized(this) {
+            template = getTemplate(libs);
+            metatable = environments[libs ? 1 : 0];
+            loaded = modules[libs ? 1 : 0];
+        }
+        
         Globals returned = new Globals();
+        returned.STDIN = template.STDIN;
+        returned.STDOUT = template.STDOUT;
+        returned.STDERR = template.STDERR;
+        returned.finder = template.finder;
+        returned.debuglib = template.debuglib;
+        returned.loader = template.loader;
+        returned.compiler = template.compiler;
+        returned.undumper = template.undumper;
+        returned.setmetatable(metatable);
+        returned.rawset("_G", returned);
+        
+        // loaders bind to the Globals they're loaded into; keep only those
         returned.load(new JseBaseLib());
         returned.load(new PackageLib());
-        returned.load(new DebugLib());
-        
-        for(LuaValue lib : SHARED_BASE_LIBS) {
-            returned.load(lib);
+        for(LuaValue key : returned.keys()) {
+            if(!BOUND_GLOBALS.contains(key.tojstring())) {
+                returned.rawset(key, LuaValue.NIL);
+            }
         }
         
-        returned.set("debug", LuaValue.NIL);
-        LoadState.install(returned);
-        LuaC.install(returned);
+        LuaTable packageLoaded = (LuaTable) returned.get("package").get("loaded");
+        for(LuaValue key : loaded.keys()) {
+            packageLoaded.rawset(key, loaded.rawget(key));
+        }
         
         if(libs) {
             for(LuaLibrary lib : libraries.values()) {
-                if(lib.isShareable()) {
-                    returned.load(lib);
-                } else {
+                if(!lib.isShareable()) {
                     returned.load(lib.cleanClone());
                 }
             }
@@ -179,6 +240,67 @@ public class ScriptManager {
         return returned;
     }
     
+    /**
+     * Returns the template environment holding the given
+     * library set, building it and the metatable sharing it
+     * if needed.
+     */
+    private synchronized Globals getTemplate(boolean libs) {
+        int index = libs ? 1 : 0;
+        if(templates[index] == null) {
+            Globals template = new Globals();
+            template.load(new JseBaseLib());
+            template.load(new PackageLib());
+            template.load(new ScriptWatchdog());
+            
+            for(LuaValue lib : SHARED_BASE_LIBS) {
+                template.load(lib);
+            }
+            
+            template.set("debug", LuaValue.NIL);
+            LoadState.install(template);
+            LuaC.install(template);
+            if(libs) {
+                for(LuaLibrary lib : libraries.values()) {
+                    if(lib.isShareable()) {
+                        template.load(lib);
+                    } else {
+                        template.load(lib.cleanClone());
+                    }
+                }
+            }
+            
+            // loaders bind to the template; each environment gets its own, see generateGlobals
+            LuaValue packageLoaded = template.get("package").get("loaded");
+            template.set("require", LuaValue.NIL);
+            template.set("package", LuaValue.NIL);
+            template.set("load", LuaValue.NIL);
+            template.set("dofile", LuaValue.NIL);
+            template.set("loadfile", LuaValue.NIL);
+            
+            LuaTable library = ReadOnlyTable.copyOf(template);
+            LuaTable metatable = new LuaTable();
+            metatable.rawset(LuaValue.INDEX, library);
+            
+            LuaTable loaded = new LuaTable();
+            for(LuaValue key : ((LuaTable) packageLoaded).keys()) {
+                LuaValue module = library.rawget(key);
+                if(!module.isnil() && !key.tojstring().equals("_G")) {
+                    loaded.rawset(key, module);
+                }
+            }
+            
+            // strings index the string library directly, so share the frozen copy
+            LuaString.s_metatable = ReadOnlyTable.copyOf(LuaValue.tableOf(new LuaValue[] {LuaValue.INDEX, library.get("string")}));
+            
+            templates[index] = template;
+            environments[index] = metatable;
+            modules[index] = loaded;
+        }
+        
+        return templates[index];
+    }
+    
     /**
      * Returns the {@link LuaImplementable} found by the given type, or null if
      * not found.
@@ -200,6 +322,40 @@ public class ScriptManager {
         return null;
     }
     
+    /**
+     * Returns all {@link LuaImplementable}s registered into this
+     * {@link ScriptManager}.
+     */
+    public Collection<LuaImplementable<?, ?>> getImplementables() {
+        return Collections.unmodifiableCollection(implementables.values());
+    }
+    
+    /**
+     * Returns the {@link ScriptReloader} reloading changed scripts into the
+     * implementables of this {@link ScriptManager}, or null if reloading was
+     * never {@link #enableReloader() enabled}.
+     */
+    public ScriptReloader getReloader() {
+        return reloader;
+    }
+    
+    /**
+     * Enables reloading of changed scripts, creating the {@link ScriptReloader}
+     * of this {@link ScriptManager} if it did not exist yet.
+     * 
+     * <p>Reloading is meant for development; the engine only enables it when
+     * launched with hot reloading on.</p>
+     * 
+     * @return the ScriptReloader of this ScriptManager
+     */
+    public ScriptReloader enableReloader() {
+        if(reloader == null) {
+            reloader = new ScriptReloader(this);
+        }
+        
+        return reloader;
+    }
+    
     /*
      * A quick shortcut method for accessing a registered
      * {@link LuaImplementable} to generate an implementation.
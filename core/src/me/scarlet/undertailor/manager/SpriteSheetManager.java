@@ -25,7 +25,6 @@
 package me.scarlet.undertailor.manager;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.gfx.SpriteSheet;
@@ -44,9 +43,11 @@ public class SpriteSheetManager extends Manager<SpriteSheetWrapper> {
     public static final String MANAGER_TAG = "sheetman";
     
     private Map<String, SpriteSheetWrapper> sheets;
+    private Map<File, SpriteSheetWrapper> sources;
     
     public SpriteSheetManager() {
         this.sheets = new HashMap<>();
+        this.sources = new HashMap<>();
     }
     
     public void loadObjects(File dir) {
@@ -93,9 +94,10 @@ public class SpriteSheetManager extends Manager<SpriteSheetWrapper> {
             try {
                 ConfigurationLoader<ConfigurationNode> loader = JSONConfigurationLoader.builder().setFile(spriteDef).build();
                 ConfigurationNode root = loader.load();
-                Texture texture = new Texture(Gdx.files.absolute(file.getAbsolutePath()));
-                SpriteSheetWrapper sheet = new SpriteSheetWrapper(entryName, texture, root);
+                SpriteSheetWrapper sheet = new SpriteSheetWrapper(entryName, file.getAbsoluteFile(), root);
                 sheets.put(entryName, sheet);
+                sources.put(file.getAbsoluteFile(), sheet);
+                sources.put(spriteDef.getAbsoluteFile(), sheet);
                 
                 Undertailor.instance.log(MANAGER_TAG, "loading spritesheet " + entryName);
             } catch(Exception e) {
@@ -104,6 +106,34 @@ public class SpriteSheetManager extends Manager<SpriteSheetWrapper> {
         }
     }
     
+    @Override
+    protected void onFileChanged(File file) {
+        SpriteSheetWrapper sheet = sources.get(file.getAbsoluteFile());
+        if(sheet == null) {
+            return;
+        }
+        
+        ConfigurationNode root = null;
+        if(file.getName().endsWith(".spritemeta")) {
+            try {
+                root = JSONConfigurationLoader.builder().setFile(file).build().load();
+            } catch(Exception e) {
+                Undertailor.instance.error(MANAGER_TAG, "failed to reload spritesheet definition " + file.getName() + ": " + LuaUtil.formatJavaException(e), e);
+                return;
+            }
+        }
+        
+        ConfigurationNode config = root;
+        Gdx.app.postRunnable(() -> {
+            if(config != null) {
+                sheet.setConfig(config);
+            }
+            
+            sheet.reload();
+            Undertailor.instance.log(MANAGER_TAG, "reloaded spritesheet from " + file.getName());
+        });
+    }
+    
     public SpriteSheetWrapper getSheet(String sheetName) {
         if(this.sheets.containsKey(sheetName)) {
             return this.sheets.get(sheetName);
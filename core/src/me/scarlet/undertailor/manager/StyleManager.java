@@ -26,12 +26,12 @@ package me.scarlet.undertailor.manager;
 
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.ScriptIndex;
 import me.scarlet.undertailor.lua.impl.StyleImplementable;
 import me.scarlet.undertailor.texts.Style;
 import me.scarlet.undertailor.util.LuaUtil;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -39,18 +39,15 @@ public class StyleManager extends Manager<Style> {
     
     public static final String MANAGER_TAG = "styleman";
     
+    private Map<String, File> scriptFiles;
     private Map<String, Style> styles;
     
     public StyleManager() {
+        this.scriptFiles = new HashMap<>();
         this.styles = new HashMap<>();
     }
     
     public void loadObjects(File directory) {
-        loadStyles(directory, null);
-        Undertailor.instance.log(MANAGER_TAG, styles.keySet().size() + " style(s) currently loaded");
-    }
-    
-    private void loadStyles(File directory, String heading) {
         String dirPath = directory.getAbsolutePath();
         if(!directory.exists()) {
             directory.mkdirs();
@@ -60,38 +57,40 @@ public class StyleManager extends Manager<Style> {
             return;
         }
         
-        if(heading == null) {
-            heading = "";
-        }
-        
+        // styles are only run once first requested
         Undertailor.instance.log(MANAGER_TAG, "loading styles from directory " + dirPath);
-        for(File file : directory.listFiles((FileFilter) (File file) -> {
-            return file.getName().endsWith(".lua") || file.isDirectory();
-        })) {
-            if(file.isDirectory()) {
-                loadStyles(file, heading + (heading.isEmpty() ? "" : ".") + file.getName());
-                continue;
-            }
-            
-            String styleName = heading + (heading.isEmpty() ? "" : ".") + file.getName().substring(0, file.getName().length() - 4);
-            Undertailor.instance.debug("styleman", "loading lua style " + styleName);
-            try {
-                StyleImplementable impl = Undertailor.getScriptManager().getImplementable(StyleImplementable.class);
-                styles.put(styleName, impl.load(styleName, file));
-            } catch(LuaScriptException e) {
-                Undertailor.instance.error("styleman", "failed to load style: lua error: ", e);
-            } catch(Exception e) {
-                Undertailor.instance.error("styleman", "failed to load style: " + LuaUtil.formatJavaException(e), e);
-            }
-        }
+        scriptFiles.putAll(ScriptIndex.getScripts(directory));
+        ScriptIndex.warmUp(scriptFiles, ScriptIndex.getWarmupNames(directory));
+        Undertailor.instance.log(MANAGER_TAG, scriptFiles.keySet().size() + " style(s) currently loaded");
     }
     
     public Style getStyle(String name) {
-        if(styles.containsKey(name)) {
-            return styles.get(name).duplicate();
+        Style style = styles.get(name);
+        if(style == null && scriptFiles.containsKey(name)) {
+            style = loadStyle(name, scriptFiles.get(name));
+        }
+        
+        if(style != null) {
+            return style.duplicate();
         }
         
         Undertailor.instance.error("styleman", "system requested a non-existing style (" + name + ")");
         return null;
     }
+    
+    private Style loadStyle(String styleName, File file) {
+        Undertailor.instance.debug("styleman", "loading lua style " + styleName);
+        try {
+            StyleImplementable impl = Undertailor.getScriptManager().getImplementable(StyleImplementable.class);
+            Style style = impl.load(styleName, file);
+            styles.put(styleName, style);
+            return style;
+        } catch(LuaScriptException e) {
+            Undertailor.instance.error("styleman", "failed to load style: lua error: ", e);
+        } catch(Exception e) {
+            Undertailor.instance.error("styleman", "failed to load style: " + LuaUtil.formatJavaException(e), e);
+        }
+        
+        return null;
+    }
 }
@@ -24,6 +24,7 @@
 
 package me.scarlet.undertailor.manager;
 
+import com.badlogic.gdx.Gdx;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
 import me.scarlet.undertailor.util.LuaUtil;
@@ -38,8 +39,10 @@ public class TilemapManager extends Manager<TilemapWrapper> {
     public static final String MANAGER_TAG = "tileman";
     
     private Map<String, TilemapWrapper> tilemaps;
+    private Map<File, TilemapWrapper> sources;
     public TilemapManager() {
         this.tilemaps = new HashMap<>();
+        this.sources = new HashMap<>();
     }
     
     public void loadObjects(File directory) {
@@ -81,7 +84,10 @@ public class TilemapManager extends Manager<TilemapWrapper> {
             
             try {
                 Undertailor.instance.debug(MANAGER_TAG, "loading tilemap " + entryName);
-                tilemaps.put(entryName, new TilemapWrapper(entryName, file, metaFile));
+                TilemapWrapper tilemap = new TilemapWrapper(entryName, file, metaFile);
+                tilemaps.put(entryName, tilemap);
+                sources.put(file.getAbsoluteFile(), tilemap);
+                sources.put(metaFile.getAbsoluteFile(), tilemap);
             } catch(TextureTilingException e) {
                 Undertailor.instance.error(MANAGER_TAG, "failed to load tilemap: " + LuaUtil.formatJavaException(e), e);
                 continue;
@@ -89,6 +95,18 @@ public class TilemapManager extends Manager<TilemapWrapper> {
         }
     }
     
+    @Override
+    protected void onFileChanged(File file) {
+        TilemapWrapper tilemap = sources.get(file.getAbsoluteFile());
+        if(tilemap != null) {
+            // tilemaps read their files on construction, which needs the gl thread for the texture
+            Gdx.app.postRunnable(() -> {
+                tilemap.reload();
+                Undertailor.instance.log(MANAGER_TAG, "reloaded tilemap from " + file.getName());
+            });
+        }
+    }
+    
     public TilemapWrapper getTilemap(String name) {
         if(tilemaps.containsKey(name)) {
             return tilemaps.get(name);
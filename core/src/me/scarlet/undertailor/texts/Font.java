@@ -231,6 +231,21 @@ public class Font {
         }
     }
     
+    /**
+     * Takes over the font data and character sprites of
+     * the provided font, disposing of this font's previous
+     * sprites. Used to reload a font in place while texts
+     * are still referring to it.
+     * 
+     * @param source the font to take the contents of
+     */
+    public void replace(Font source) {
+        SpriteSheet old = this.sheet;
+        this.data = source.data;
+        this.sheet = source.sheet;
+        old.dispose();
+    }
+    
     public FontData getFontData() {
         return data;
     }
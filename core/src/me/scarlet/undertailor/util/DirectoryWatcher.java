@@ -0,0 +1,240 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.util;
+
+import me.scarlet.undertailor.Undertailor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A thread watching directory trees for changed files.
+ * 
+ * <p>Listeners are registered against a root directory through
+ * {@link #watch(File, Consumer)}, and are told of every file created or
+ * modified anywhere beneath it, subdirectories created later included.
+ * Listeners are called on the watcher thread; anything touching the engine
+ * should be queued for the main thread by the listener.</p>
+ * 
+ * <p>Editors tend to write a file several times when saving it, so changes
+ * are collected until the tree has been quiet for {@link #SETTLE_TIME}
+ * milliseconds and each changed file is only reported once.</p>
+ */
+public class DirectoryWatcher extends Thread {
+    
+    public static final String WATCHER_TAG = "watcher";
+    public static final long SETTLE_TIME = 100;
+    
+    private static DirectoryWatcher shared;
+    
+    /**
+     * Returns the watcher shared by the engine's managers,
+     * starting it if it wasn't running yet.
+     * 
+     * @return the shared watcher, or null if the platform
+     *         doesn't support watching files
+     */
+    public static synchronized DirectoryWatcher getShared() {
+        if(shared == null) {
+            try {
+                shared = new DirectoryWatcher();
+                shared.start();
+            } catch(IOException e) {
+                Undertailor.instance.warn(WATCHER_TAG, "could not start file watcher; changed assets will not be reloaded (" + e.getMessage() + ")");
+            }
+        }
+        
+        return shared;
+    }
+    
+    /**
+     * Stops the shared watcher if it was running. A later
+     * call to {@link #getShared()} starts a new one.
+     */
+    public static synchronized void killShared() {
+        if(shared != null) {
+            shared.kill();
+            shared = null;
+        }
+    }
+    
+    private static class Watch {
+        
+        private Path root;
+        private Consumer<File> listener;
+        
+    }
+    
+    private boolean running;
+    private WatchService service;
+    private Map<WatchKey, Path> directories;
+    private List<Watch> watches;
+    
+    public DirectoryWatcher() throws IOException {
+        this.setName("Tailor Watcher Thread");
+        this.setDaemon(true);
+        this.service = FileSystems.getDefault().newWatchService();
+        this.directories = new HashMap<>();
+        this.watches = new CopyOnWriteArrayList<>();
+        this.running = true;
+    }
+    
+    /**
+     * Starts watching the provided directory tree, reporting
+     * changed files to the provided listener.
+     * 
+     * @param root the root of the directory tree to watch
+     * @param listener the listener to report changes to
+     */
+    public void watch(File root, Consumer<File> listener) {
+        if(!root.isDirectory()) {
+            return;
+        }
+        
+        Watch watch = new Watch();
+        watch.root = root.toPath().toAbsolutePath().normalize();
+        watch.listener = listener;
+        watches.add(watch);
+        register(root);
+    }
+    
+    /**
+     * Stops this {@link DirectoryWatcher}. Listeners are no
+     * longer called once this returns.
+     */
+    public void kill() {
+        this.running = false;
+        try {
+            service.close();
+        } catch(IOException ignored) {}
+    }
+    
+    @Override
+    public void run() {
+        while(running) {
+            try {
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = service.take();
+                while(key != null) {
+                    collect(key, changed);
+                    key = service.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+                }
+                
+                for(Path path : changed) {
+                    dispatch(path);
+                }
+            } catch(InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+        }
+    }
+    
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory;
+        synchronized(directories) {
+            directory = directories.get(key);
+        }
+        
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                continue;
+            }
+            
+            Path path = directory.resolve((Path) event.context());
+            if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && path.toFile().isDirectory()) {
+                register(path.toFile());
+            } else {
+                changed.add(path);
+            }
+        }
+        
+        if(!key.reset()) {
+            synchronized(directories) {
+                directories.remove(key);
+            }
+        }
+    }
+    
+    private void dispatch(Path path) {
+        File file = path.toFile();
+        if(!file.isFile()) {
+            return;
+        }
+        
+        Path normalized = path.toAbsolutePath().normalize();
+        for(Watch watch : watches) {
+            if(normalized.startsWith(watch.root)) {
+                try {
+                    watch.listener.accept(file);
+                } catch(Exception e) {
+                    Undertailor.instance.warn(WATCHER_TAG, "failed to handle change to " + file.getName() + ": " + LuaUtil.formatJavaException(e));
+                }
+            }
+        }
+    }
+    
+    private void register(File directory) {
+        List<File> pending = new ArrayList<>();
+        pending.add(directory);
+        while(!pending.isEmpty()) {
+            File current = pending.remove(pending.size() - 1);
+            try {
+                Path path = current.toPath().toAbsolutePath().normalize();
+                WatchKey key = path.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                synchronized(directories) {
+                    directories.put(key, path);
+                }
+            } catch(IOException e) {
+                Undertailor.instance.warn(WATCHER_TAG, "could not watch directory " + current.getAbsolutePath() + ": " + e.getMessage());
+                continue;
+            }
+            
+            File[] children = current.listFiles(File::isDirectory);
+            if(children != null) {
+                for(File child : children) {
+                    pending.add(child);
+                }
+            }
+        }
+    }
+}
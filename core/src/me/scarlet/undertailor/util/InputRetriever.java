@@ -26,6 +26,8 @@ package me.scarlet.undertailor.util;
 
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.utils.TimeUtils;
+import me.scarlet.undertailor.lua.LuaObjectHolder;
+import me.scarlet.undertailor.lua.LuaObjectValue;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,11 +36,12 @@ public class InputRetriever implements InputProcessor {
     
     public static InputData currentData;
     
-    public static class InputData {
+    public static class InputData implements LuaObjectHolder {
 
         private long currentTick;
         private boolean isConsumed;
         private Map<Integer, PressData> pressData;
+        private LuaObjectValue<?> luaValue;
         
         public InputData(Map<Integer, PressData> pressData) {
             this.isConsumed = false;
@@ -60,9 +63,19 @@ public class InputRetriever implements InputProcessor {
         public void consume() {
             this.isConsumed = true;
         }
+        
+        @Override
+        public LuaObjectValue<?> getCachedObjectValue() {
+            return luaValue;
+        }
+        
+        @Override
+        public void setCachedObjectValue(LuaObjectValue<?> value) {
+            this.luaValue = value;
+        }
     }
     
-    public static class PressData {
+    public static class PressData implements LuaObjectHolder {
         
         private long holdTime;
         private InputData parent;
@@ -71,6 +84,7 @@ public class InputRetriever implements InputProcessor {
         private long lastPressTime;
         private long lastReleaseTick;
         private long lastReleaseTime;
+        private LuaObjectValue<?> luaValue;
         
         public PressData(InputData parent) {
             this.isPressed = false;
@@ -143,6 +157,16 @@ public class InputRetriever implements InputProcessor {
             this.lastPressTick = parent.currentTick;
             this.lastPressTime = TimeUtils.millis();
         }
+        
+        @Override
+        public LuaObjectValue<?> getCachedObjectValue() {
+            return luaValue;
+        }
+        
+        @Override
+        public void setCachedObjectValue(LuaObjectValue<?> value) {
+            this.luaValue = value;
+        }
     }
     
     private long tick;
@@ -26,9 +26,14 @@ package me.scarlet.undertailor.util;
 
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.LuaScriptException;
+import me.scarlet.undertailor.lua.LuaObjectValue;
+import me.scarlet.undertailor.lua.PrototypeCache;
+import me.scarlet.undertailor.lua.ScriptCompiler;
+import me.scarlet.undertailor.lua.ScriptWatchdog;
 import me.scarlet.undertailor.manager.StyleManager;
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaClosure;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
@@ -40,13 +45,92 @@ import org.luaj.vm2.lib.jse.JseBaseLib;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 
 public class LuaUtil {
     
+    private static final int CACHED_NUMBER_MIN = -1024;
+    private static final int CACHED_NUMBER_MAX = 4096;
+    private static final LuaValue[] CACHED_NUMBERS;
+    
+    static {
+        CACHED_NUMBERS = new LuaValue[CACHED_NUMBER_MAX - CACHED_NUMBER_MIN];
+        for(int i = 0; i < CACHED_NUMBERS.length; i++) {
+            CACHED_NUMBERS[i] = LuaValue.valueOf(i + CACHED_NUMBER_MIN);
+        }
+    }
+    
+    /**
+     * Returns a {@link LuaValue} for the provided number.
+     * 
+     * <p>Integral values within the cached range, such as ids, counters and
+     * tile coordinates, are shared instead of allocated for every call.
+     * Anything else, including most physics positions as they are rarely
+     * integral, is delegated to {@link LuaValue#valueOf(double)}.</p>
+     * 
+     * @param value the number to convert
+     * 
+     * @return a LuaValue holding the number
+     */
+    public static LuaValue valueOf(double value) {
+        int integral = (int) value;
+        if(integral == value && integral >= CACHED_NUMBER_MIN && integral < CACHED_NUMBER_MAX) {
+            return CACHED_NUMBERS[integral - CACHED_NUMBER_MIN];
+        }
+        
+        return LuaValue.valueOf(value);
+    }
+    
+    /**
+     * Returns the provided x and y values, either written into the provided
+     * table at indices 1 and 2, or as a pair of return values if no table was
+     * given.
+     * 
+     * @param x the x value
+     * @param y the y value
+     * @param out a table to write into, or nil
+     * 
+     * @return the table written into, or the two values
+     */
+    public static Varargs asPair(double x, double y, LuaValue out) {
+        if(out.isnil()) {
+            return LuaValue.varargsOf(valueOf(x), valueOf(y));
+        }
+        
+        LuaTable table = out.checktable();
+        table.rawset(1, valueOf(x));
+        table.rawset(2, valueOf(y));
+        return table;
+    }
+    
+    /**
+     * Reads the array part of the provided table as numbers,
+     * for batched calls passing many values at once.
+     * 
+     * @param value the table to read
+     * @param buffer an array to read into, reused if large
+     *        enough
+     * 
+     * @return the array read into, holding
+     *         <code>rawlen()</code> values of the table
+     */
+    public static float[] toFloatArray(LuaValue value, float[] buffer) {
+        LuaTable table = value.checktable();
+        int length = table.rawlen();
+        if(buffer == null || buffer.length < length) {
+            buffer = new float[Math.max(length, buffer == null ? 16 : buffer.length * 2)];
+        }
+        
+        for(int i = 0; i < length; i++) {
+            buffer[i] = (float) table.rawget(i + 1).checkdouble();
+        }
+        
+        return buffer;
+    }
+    
     /**
      * Iterate through the values of a {@link LuaTable}.
      * 
@@ -127,7 +211,7 @@ public class LuaUtil {
         }
         
         iterateTable(globals, entry -> {
-            if(entry.arg(2).tojstring().startsWith("function: @")) {
+            if(entry.arg(2).tojstring().startsWith("function: @") || ScriptCompiler.isCompiledFunction(entry.arg(2))) {
                 functions.put(entry.arg(1).tojstring(), entry.arg(2).checkfunction());
             }
         });
@@ -165,6 +249,39 @@ public class LuaUtil {
         throw new LuaError("expected " + sb.toString() + ", got " + value.typename());
     }
     
+    /**
+     * Checks the given value against a {@link LuaObjectValue} type id,
+     * returning it if matching.
+     * 
+     * <p>Faster than {@link #checkType(LuaValue, String...)}, as the check is
+     * a single identity comparison.</p>
+     * 
+     * @param value the value to check
+     * @param typeId the expected type id
+     * 
+     * @throws LuaError if the value is not of the given type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends LuaValue> T checkType(LuaValue value, int typeId) {
+        if(value instanceof LuaObjectValue && ((LuaObjectValue<?>) value).getTypeId() == typeId) {
+            return (T) value;
+        }
+        
+        throw new LuaError("expected " + LuaObjectValue.getTypeName(typeId) + ", got " + value.typename());
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T extends LuaValue> T checkType(LuaValue value, int typeId, int otherTypeId) {
+        if(value instanceof LuaObjectValue) {
+            int type = ((LuaObjectValue<?>) value).getTypeId();
+            if(type == typeId || type == otherTypeId) {
+                return (T) value;
+            }
+        }
+        
+        throw new LuaError("expected " + LuaObjectValue.getTypeName(typeId) + " or " + LuaObjectValue.getTypeName(otherTypeId) + ", got " + value.typename());
+    }
+    
     public static boolean isOfType(LuaValue value, String typename) {
         if(value.typename().equals(typename)) {
             return true;
@@ -202,8 +319,9 @@ public class LuaUtil {
     }
     
     public static Varargs invokeNonNull(LuaValue source, String functionName, Varargs args) {
-        if(!source.rawget(functionName).isnil()) {
-            return source.rawget(functionName).invoke(args);
+        LuaValue function = source.rawget(functionName);
+        if(!function.isnil()) {
+            return ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(function, functionName), function, args);
         }
         
         return null;
@@ -230,12 +348,21 @@ public class LuaUtil {
     }
     
     public static void loadFile(Globals loader, File scriptFile) throws FileNotFoundException {
-        InputStream stream = loader.finder.findResource(scriptFile.getAbsolutePath());
-        if(stream == null) {
+        if(!scriptFile.isFile()) {
             throw new FileNotFoundException(scriptFile.getAbsolutePath());
         }
         
-        String chunkname = "@" + scriptFile.getName();
-        loader.load(stream, chunkname, "bt", loader).invoke();
+        try {
+            LuaFunction chunk = ScriptCompiler.load(loader, scriptFile);
+            if(chunk == null) {
+                chunk = new LuaClosure(PrototypeCache.getPrototype(scriptFile), loader);
+            }
+            
+            ScriptWatchdog.invoke(ScriptWatchdog.getScriptName(chunk, ScriptWatchdog.MAIN_CHUNK), chunk, LuaValue.NONE);
+        } catch(FileNotFoundException e) {
+            throw e;
+        } catch(IOException e) {
+            throw new LuaError("failed to read script " + scriptFile.getName() + ": " + e.getMessage());
+        }
     }
 }
@@ -178,6 +178,61 @@ public class MultiRenderer {
         batch.draw(region, x, y, originX, originY, width, height, scaleX, scaleY, rotation);
     }
     
+    /**
+     * Draws the provided region once for each entry of the
+     * provided arrays, centered on its position.
+     * 
+     * @param region the region to draw
+     * @param x the x positions to draw at
+     * @param y the y positions to draw at
+     * @param scale the scale of each entry
+     * @param rotation the rotation of each entry, in degrees
+     * @param alpha the alpha of each entry
+     * @param count the amount of entries to draw
+     * @param tint the color to tint every entry with
+     * @param alphaMultiplier the alpha to multiply the alpha
+     *        of each entry with
+     */
+    public void drawParticles(TextureRegion region, float[] x, float[] y, float[] scale, float[] rotation, float[] alpha, int count, Color tint, float alphaMultiplier) {
+        this.startDrawingSprite();
+        float width = region.getRegionWidth();
+        float height = region.getRegionHeight();
+        float originX = width / 2F;
+        float originY = height / 2F;
+        
+        Color previous = batch.getColor().cpy();
+        for(int i = 0; i < count; i++) {
+            batch.setColor(tint.r, tint.g, tint.b, tint.a * alpha[i] * alphaMultiplier);
+            batch.draw(region, x[i] - originX, y[i] - originY, originX, originY, width, height, scale[i], scale[i], rotation[i]);
+        }
+        
+        batch.setColor(previous);
+    }
+    
+    /**
+     * Draws each of the provided regions centered on its position,
+     * skipping null regions.
+     * 
+     * @param regions the region of each entry
+     * @param x the x positions to draw at
+     * @param y the y positions to draw at
+     * @param rotation the rotation of each entry, in degrees
+     * @param count the amount of entries to draw
+     */
+    public void drawSprites(TextureRegion[] regions, float[] x, float[] y, float[] rotation, int count) {
+        this.startDrawingSprite();
+        for(int i = 0; i < count; i++) {
+            TextureRegion region = regions[i];
+            if(region != null) {
+                float width = region.getRegionWidth();
+                float height = region.getRegionHeight();
+                float originX = width / 2F;
+                float originY = height / 2F;
+                batch.draw(region, x[i] - originX, y[i] - originY, originX, originY, width, height, 1F, 1F, rotation[i]);
+            }
+        }
+    }
+    
 //     ### ShapeRenderer methods
     
     private void startDrawingShape() {
@@ -307,4 +362,66 @@ public class MultiRenderer {
         
         renderer.triangle(vx1.x, vx1.y, vx2.x, vx2.y, vx3.x, vx3.y);
     }
+    
+//     ### Batched ShapeRenderer methods
+    
+    /*
+     * Batched variants take a flat array of records, each of
+     * them stride values long. If a palette is given, the last
+     * value of each record is the index of the color to draw
+     * that record with; otherwise the current shape color is
+     * used for all of them.
+     */
+    
+    private void setBatchRecordColor(float[] data, int index, int stride, Color[] palette) {
+        if(palette != null) {
+            renderer.setColor(palette[(int) data[index + stride - 1]]);
+        }
+    }
+    
+    public void drawLines(float[] lines, int count, int stride, Color[] palette) {
+        this.startDrawingShape();
+        if(renderer.getCurrentType() != ShapeType.Filled) {
+            renderer.set(ShapeType.Filled);
+        }
+        
+        Color previous = renderer.getColor().cpy();
+        for(int i = 0; i < count * stride; i += stride) {
+            this.setBatchRecordColor(lines, i, stride, palette);
+            renderer.rectLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3], lines[i + 4]);
+        }
+        
+        renderer.setColor(previous);
+    }
+    
+    public void drawFilledRectangles(float[] rects, int count, int stride, Color[] palette) {
+        this.startDrawingShape();
+        if(renderer.getCurrentType() != ShapeType.Filled) {
+            renderer.set(ShapeType.Filled);
+        }
+        
+        Color previous = renderer.getColor().cpy();
+        for(int i = 0; i < count * stride; i += stride) {
+            this.setBatchRecordColor(rects, i, stride, palette);
+            renderer.rect(rects[i], rects[i + 1], rects[i + 2], rects[i + 3]);
+        }
+        
+        renderer.setColor(previous);
+    }
+    
+    public void drawCircles(float[] circles, int count, int stride, Color[] palette, boolean filled) {
+        this.startDrawingShape();
+        ShapeType type = filled ? ShapeType.Filled : ShapeType.Line;
+        if(renderer.getCurrentType() != type) {
+            renderer.set(type);
+        }
+        
+        Color previous = renderer.getColor().cpy();
+        for(int i = 0; i < count * stride; i += stride) {
+            this.setBatchRecordColor(circles, i, stride, palette);
+            renderer.circle(circles[i], circles[i + 1], circles[i + 2]);
+        }
+        
+        renderer.setColor(previous);
+    }
 }
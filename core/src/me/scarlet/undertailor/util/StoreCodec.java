@@ -0,0 +1,745 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.util;
+
+import me.scarlet.undertailor.Undertailor;
+import me.scarlet.undertailor.lua.StoreTable;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of store tables.
+ * 
+ * <p>A store is written as a header followed by one section per
+ * entry of its root table. Each section holds the entry's key and
+ * value, its strings interned within the section, so an untouched
+ * section can be copied into the next save as the very bytes it
+ * was last written or read as. Codecs are kept one per store for
+ * that reason, remembering the sections of the last save or
+ * load.</p>
+ * 
+ * <p>Changes can also be written as journal records, holding only
+ * the sections that changed since the last save and the keys that
+ * were removed. Records are framed by their length and checksum,
+ * so a journal cut short by a crash is read up to its last whole
+ * record. Every snapshot is given a new random generation, which
+ * each record carries as well; records of another generation than
+ * the snapshot they are replayed over are left out, so a journal
+ * outliving the snapshot it was written against cannot roll back a
+ * newer one.</p>
+ * 
+ * <p>Values are tagged; integers are zigzag varints, numbers are
+ * 8-byte doubles and strings are written once per section, being
+ * referred to by index afterwards. Tables whose keys run from 1 to
+ * their length are written as arrays. Values that cannot be stored,
+ * such as functions, are dropped with a warning.</p>
+ */
+public class StoreCodec {
+    
+    public static final byte[] MAGIC = {'U', 'T', 'S', 'T'};
+    public static final int VERSION = 2;
+    public static final int MAX_DEPTH = 64;
+    
+    private static final int TAG_FALSE = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_NUMBER = 3;
+    private static final int TAG_STRING = 4;
+    private static final int TAG_STRING_REF = 5;
+    private static final int TAG_TABLE = 6;
+    private static final int TAG_ARRAY = 7;
+    
+    private static final int RECORD_CHANGES = 1;
+    
+    /**
+     * Returns an encoded store without any entries, of a
+     * generation of its own.
+     */
+    public static byte[] emptySnapshot() {
+        return new StoreCodec(null).encode(new LuaTable());
+    }
+    
+    private static long nextGeneration() {
+        long generation;
+        do {
+            generation = ThreadLocalRandom.current().nextLong();
+        } while(generation == 0); // 0 is left to stores of the first version, which had none
+        
+        return generation;
+    }
+    
+    /**
+     * Returns whether the provided data starts with the header
+     * of an encoded store.
+     */
+    public static boolean isEncoded(byte[] data) {
+        if(data.length < MAGIC.length) {
+            return false;
+        }
+        
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * The last known encoding of a root entry.
+     */
+    private static class Section {
+        
+        private LuaValue value;
+        private byte[] data;
+        private boolean trusted; // whether the value's tables are all tracked store tables
+    }
+    
+    private String storeName;
+    private Map<LuaValue, Section> sections;
+    private List<Section> changed;
+    private List<LuaValue> removed;
+    private boolean appendable;
+    private long generation;
+    private long journalLength;
+    
+    // per-section encoding state
+    private Buffer buffer;
+    private Map<LuaValue, Integer> strings;
+    private boolean trusted;
+    
+    // per-section decoding state
+    private byte[] input;
+    private int position;
+    private LuaString[] stringTable;
+    private int stringCount;
+    
+    public StoreCodec(String storeName) {
+        this.storeName = storeName;
+        this.sections = new HashMap<>();
+        this.changed = new ArrayList<>();
+        this.removed = new ArrayList<>();
+        this.appendable = false;
+        this.generation = 0;
+        this.journalLength = 0;
+        this.buffer = new Buffer();
+        this.strings = new HashMap<>();
+        this.stringTable = new LuaString[16];
+    }
+    
+    /**
+     * Returns whether changes to the store can be appended to its
+     * journal, which is the case once the store was written or
+     * read as a snapshot and its journal holds no broken records.
+     */
+    public boolean isAppendable() {
+        return appendable;
+    }
+    
+    /**
+     * Returns the size, in bytes, of the journal records written
+     * or read since the last snapshot.
+     */
+    public long getJournalLength() {
+        return journalLength;
+    }
+    
+    /**
+     * Returns the size, in bytes, the snapshot of the store's
+     * current state would have.
+     */
+    public long getSnapshotLength() {
+        long length = MAGIC.length + 14;
+        for(Section section : sections.values()) {
+            length += section.data.length + 5;
+        }
+        
+        return length;
+    }
+    
+    /**
+     * Encodes the provided table as a snapshot, re-encoding only
+     * the root entries that changed since the last call or since
+     * the table was decoded.
+     * 
+     * <p>Entries are reused as long as they still hold the same
+     * {@link StoreTable} and it is neither dirty nor shared; every
+     * other entry is encoded anew.</p>
+     * 
+     * @param root the table to encode
+     * 
+     * @return the encoded store
+     */
+    public byte[] encode(LuaTable root) {
+        this.update(root);
+        this.appendable = true;
+        this.generation = nextGeneration();
+        this.journalLength = 0;
+        
+        Buffer out = new Buffer((int) getSnapshotLength());
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        out.writeLong(generation);
+        out.writeVarint(sections.size());
+        for(Section section : sections.values()) {
+            out.writeVarint(section.data.length);
+            out.write(section.data, 0, section.data.length);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    /**
+     * Encodes the root entries of the provided table that changed
+     * since the last call, the last snapshot or since the table
+     * was decoded as a single journal record.
+     * 
+     * @param root the table to encode
+     * 
+     * @return the journal record, or null if nothing changed
+     */
+    public byte[] encodeRecord(LuaTable root) {
+        this.update(root);
+        if(changed.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        
+        Buffer out = new Buffer(256);
+        out.writeLong(generation);
+        out.write(RECORD_CHANGES);
+        out.writeVarint(changed.size());
+        for(Section section : changed) {
+            out.writeVarint(section.data.length);
+            out.write(section.data, 0, section.data.length);
+        }
+        
+        out.writeVarint(removed.size());
+        for(LuaValue key : removed) {
+            buffer.reset();
+            strings.clear();
+            writeValue(key, 0);
+            out.writeVarint(buffer.size);
+            out.write(buffer.data, 0, buffer.size);
+        }
+        
+        changed.clear();
+        removed.clear();
+        byte[] record = frame(out.toByteArray());
+        this.journalLength += record.length;
+        return record;
+    }
+    
+    // [length][crc32][payload]; a torn write fails either the length or the checksum
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        Buffer out = new Buffer(payload.length + 8);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload, 0, payload.length);
+        return out.toByteArray();
+    }
+    
+    private void update(LuaTable root) {
+        Map<LuaValue, Section> current = new HashMap<>();
+        changed.clear();
+        removed.clear();
+        
+        try {
+            LuaValue key = LuaValue.NIL;
+            while(true) {
+                Varargs pair = root.next(key);
+                if((key = pair.arg1()).isnil()) {
+                    break;
+                }
+                
+                LuaValue value = pair.arg(2);
+                Section section = sections.get(key);
+                if(section == null || section.value != value || !section.trusted
+                    || (value instanceof StoreTable && ((StoreTable) value).isDirty())) {
+                    Section encoded = encodeSection(key, value);
+                    if(encoded == null) {
+                        continue;
+                    }
+                    
+                    if(section == null || !Arrays.equals(section.data, encoded.data)) {
+                        changed.add(encoded);
+                    }
+                    
+                    section = encoded;
+                }
+                
+                current.put(key, section);
+            }
+        } catch(RuntimeException e) {
+            // tables may have been marked clean without their section being kept
+            this.sections.clear();
+            this.appendable = false;
+            throw e;
+        }
+        
+        for(LuaValue key : sections.keySet()) {
+            if(!current.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        
+        this.sections = current;
+        if(root instanceof StoreTable) {
+            ((StoreTable) root).markClean();
+        }
+    }
+    
+    /**
+     * Decodes the provided store, remembering its sections for
+     * later calls to {@link #encode(LuaTable)}.
+     * 
+     * @param data the encoded store
+     * 
+     * @return the decoded table, along with every table within
+     *         it, as clean {@link StoreTable}s
+     * 
+     * @throws IOException if the data is not a valid store
+     */
+    public StoreTable decode(byte[] data) throws IOException {
+        if(!isEncoded(data)) {
+            throw new IOException("not a store file");
+        }
+        
+        this.input = data;
+        this.position = MAGIC.length;
+        try {
+            int version = readByte();
+            if(version == 1) {
+                this.generation = 0;
+            } else if(version == VERSION) {
+                this.generation = readLong();
+            } else {
+                throw new IOException("unsupported store version " + version);
+            }
+            
+            StoreTable root = new StoreTable();
+            this.sections.clear();
+            int count = readVarint();
+            for(int i = 0; i < count; i++) {
+                readSection(root, readVarint());
+            }
+            
+            root.markClean();
+            this.appendable = true;
+            this.journalLength = 0;
+            return root;
+        } catch(ArrayIndexOutOfBoundsException e) {
+            throw new IOException("truncated store file");
+        } finally {
+            this.input = null;
+            Arrays.fill(stringTable, null);
+        }
+    }
+    
+    /**
+     * Applies the records of the provided journal to the provided
+     * table, as decoded from the snapshot the journal was written
+     * against.
+     * 
+     * <p>Records are applied in order until one turns out to be
+     * incomplete or corrupt, as left by a write cut short; records
+     * of another generation than the snapshot are skipped. Unless
+     * every record could be read, the journal is no longer appended
+     * to, the next save writing a fresh snapshot instead.</p>
+     * 
+     * @param root the table to apply the journal to
+     * @param journal the journal
+     * 
+     * @return whether every record of the journal was applied
+     * 
+     * @throws IOException if a record passing its checksum could
+     *         not be read
+     */
+    public boolean replay(StoreTable root, byte[] journal) throws IOException {
+        this.input = journal;
+        this.position = 0;
+        this.appendable = false;
+        try {
+            CRC32 crc = new CRC32();
+            while(position < journal.length) {
+                if(journal.length - position < 8) {
+                    break;
+                }
+                
+                int length = readInt();
+                int checksum = readInt();
+                if(length < 1 || length > journal.length - position) {
+                    break;
+                }
+                
+                crc.reset();
+                crc.update(journal, position, length);
+                if((int) crc.getValue() != checksum) {
+                    break;
+                }
+                
+                int end = position + length;
+                if(length < 9 || readLong() != generation) { // written against an older snapshot
+                    this.position = end;
+                    continue;
+                }
+                
+                if(readByte() != RECORD_CHANGES) {
+                    throw new IOException("unknown store journal record");
+                }
+                
+                int count = readVarint();
+                for(int i = 0; i < count; i++) {
+                    readSection(root, readVarint());
+                }
+                
+                count = readVarint();
+                for(int i = 0; i < count; i++) {
+                    readVarint();
+                    this.stringCount = 0;
+                    LuaValue key = readValue(0);
+                    root.rawset(key, LuaValue.NIL);
+                    sections.remove(key);
+                }
+                
+                if(position != end) {
+                    throw new IOException("malformed store journal record");
+                }
+            }
+            
+            root.markClean();
+            this.journalLength = position;
+            this.appendable = position == journal.length;
+            return appendable;
+        } catch(ArrayIndexOutOfBoundsException e) {
+            throw new IOException("truncated store journal record");
+        } finally {
+            this.input = null;
+            Arrays.fill(stringTable, null);
+        }
+    }
+    
+    private void readSection(StoreTable root, int length) throws IOException {
+        int start = position;
+        int end = start + length;
+        if(length < 0 || end > input.length) {
+            throw new IOException("truncated store section");
+        }
+        
+        this.stringCount = 0;
+        LuaValue key = readValue(0);
+        LuaValue value = readValue(0);
+        if(position != end) {
+            throw new IOException("malformed store section");
+        }
+        
+        root.rawset(key, value);
+        Section section = new Section();
+        section.value = value;
+        section.data = Arrays.copyOfRange(input, start, end);
+        section.trusted = true; // freshly decoded tables are only held here
+        sections.put(key, section);
+    }
+    
+    private Section encodeSection(LuaValue key, LuaValue value) {
+        if(!isStorable(key) || (!isStorable(value) && !value.istable())) {
+            Undertailor.instance.warn("store", "dropped key/value pair \"" + key.tojstring() + "\" of store " + storeName + " (key or value unsupported for storage)");
+            return null;
+        }
+        
+        buffer.reset();
+        strings.clear();
+        this.trusted = true;
+        writeValue(key, 0);
+        writeValue(value, 0);
+        
+        Section section = new Section();
+        section.value = value;
+        section.data = buffer.toByteArray();
+        section.trusted = trusted && (!value.istable() || value instanceof StoreTable);
+        return section;
+    }
+    
+    private void writeValue(LuaValue value, int depth) {
+        int type = value.type();
+        if(type == LuaValue.TBOOLEAN) {
+            buffer.write(value.toboolean() ? TAG_TRUE : TAG_FALSE);
+        } else if(type == LuaValue.TNUMBER) {
+            if(value.isint()) {
+                buffer.write(TAG_INTEGER);
+                int number = value.toint();
+                buffer.writeVarint((number << 1) ^ (number >> 31));
+            } else {
+                buffer.write(TAG_NUMBER);
+                buffer.writeLong(Double.doubleToLongBits(value.todouble()));
+            }
+        } else if(type == LuaValue.TSTRING) {
+            Integer index = strings.get(value);
+            if(index != null) {
+                buffer.write(TAG_STRING_REF);
+                buffer.writeVarint(index);
+            } else {
+                LuaString string = value.checkstring();
+                strings.put(string, strings.size());
+                buffer.write(TAG_STRING);
+                buffer.writeVarint(string.m_length);
+                buffer.write(string.m_bytes, string.m_offset, string.m_length);
+            }
+        } else if(type == LuaValue.TTABLE) {
+            writeTable((LuaTable) value, depth + 1);
+        }
+    }
+    
+    private void writeTable(LuaTable table, int depth) {
+        if(depth > MAX_DEPTH) {
+            throw new IllegalStateException("store table nested deeper than " + MAX_DEPTH + " levels (does it contain itself?)");
+        }
+        
+        if(table instanceof StoreTable) {
+            StoreTable store = (StoreTable) table;
+            this.trusted &= !store.isShared();
+            store.markClean();
+        } else {
+            this.trusted = false;
+        }
+        
+        // count what can be written first, dropping the rest
+        int length = table.length();
+        int count = 0;
+        boolean array = true;
+        LuaValue key = LuaValue.NIL;
+        while(true) {
+            Varargs pair = table.next(key);
+            if((key = pair.arg1()).isnil()) {
+                break;
+            }
+            
+            LuaValue value = pair.arg(2);
+            if(isStorable(key) && (isStorable(value) || value.istable())) {
+                count++;
+                array &= key.type() == LuaValue.TNUMBER && key.isint() && key.toint() >= 1 && key.toint() <= length;
+            } else {
+                array = false;
+                Undertailor.instance.warn("store", "dropped key/value pair \"" + key.tojstring() + "\" of store " + storeName + " (key or value unsupported for storage)");
+            }
+        }
+        
+        if(array && count == length) {
+            buffer.write(TAG_ARRAY);
+            buffer.writeVarint(length);
+            for(int i = 1; i <= length; i++) {
+                writeValue(table.rawget(i), depth);
+            }
+        } else {
+            buffer.write(TAG_TABLE);
+            buffer.writeVarint(count);
+            key = LuaValue.NIL;
+            while(true) {
+                Varargs pair = table.next(key);
+                if((key = pair.arg1()).isnil()) {
+                    break;
+                }
+                
+                LuaValue value = pair.arg(2);
+                if(isStorable(key) && (isStorable(value) || value.istable())) {
+                    writeValue(key, depth);
+                    writeValue(value, depth);
+                }
+            }
+        }
+    }
+    
+    private LuaValue readValue(int depth) throws IOException {
+        int tag = readByte();
+        switch(tag) {
+            case TAG_FALSE:
+                return LuaValue.FALSE;
+            case TAG_TRUE:
+                return LuaValue.TRUE;
+            case TAG_INTEGER:
+                int number = readVarint();
+                return LuaValue.valueOf((number >>> 1) ^ -(number & 1));
+            case TAG_NUMBER:
+                return LuaValue.valueOf(Double.longBitsToDouble(readLong()));
+            case TAG_STRING:
+                int length = readVarint();
+                if(length < 0 || position + length > input.length) {
+                    throw new IOException("truncated store string");
+                }
+                
+                LuaString string = LuaString.valueOf(Arrays.copyOfRange(input, position, position + length));
+                position += length;
+                if(stringCount == stringTable.length) {
+                    this.stringTable = Arrays.copyOf(stringTable, stringCount * 2);
+                }
+                
+                stringTable[stringCount++] = string;
+                return string;
+            case TAG_STRING_REF:
+                int index = readVarint();
+                if(index < 0 || index >= stringCount) {
+                    throw new IOException("bad store string reference " + index);
+                }
+                
+                return stringTable[index];
+            case TAG_TABLE:
+            case TAG_ARRAY:
+                if(depth >= MAX_DEPTH) {
+                    throw new IOException("store nested deeper than " + MAX_DEPTH + " levels");
+                }
+                
+                StoreTable table = new StoreTable();
+                int count = readVarint();
+                for(int i = 1; i <= count; i++) {
+                    if(tag == TAG_ARRAY) {
+                        table.rawset(i, readValue(depth + 1));
+                    } else {
+                        LuaValue key = readValue(depth + 1);
+                        table.rawset(key, readValue(depth + 1));
+                    }
+                }
+                
+                table.markClean();
+                return table;
+            default:
+                throw new IOException("unknown store value tag " + tag);
+        }
+    }
+    
+    private int readByte() {
+        return input[position++] & 0xFF;
+    }
+    
+    private long readLong() {
+        long value = 0;
+        for(int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte();
+        }
+        
+        return value;
+    }
+    
+    private int readInt() {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+    
+    private int readVarint() throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        
+        throw new IOException("malformed store varint");
+    }
+    
+    private static boolean isStorable(LuaValue value) {
+        int type = value.type();
+        return type == LuaValue.TBOOLEAN || type == LuaValue.TNUMBER || type == LuaValue.TSTRING;
+    }
+    
+    /**
+     * Growable byte buffer.
+     */
+    private static class Buffer {
+        
+        private byte[] data;
+        private int size;
+        
+        private Buffer() {
+            this(256);
+        }
+        
+        private Buffer(int capacity) {
+            this.data = new byte[Math.max(16, capacity)];
+            this.size = 0;
+        }
+        
+        private void reset() {
+            this.size = 0;
+        }
+        
+        private void ensure(int extra) {
+            if(size + extra > data.length) {
+                this.data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+            }
+        }
+        
+        private void write(int b) {
+            ensure(1);
+            data[size++] = (byte) b;
+        }
+        
+        private void write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+        
+        private void writeVarint(int value) {
+            ensure(5);
+            while((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            
+            data[size++] = (byte) value;
+        }
+        
+        private void writeInt(int value) {
+            ensure(4);
+            for(int i = 24; i >= 0; i -= 8) {
+                data[size++] = (byte) (value >>> i);
+            }
+        }
+        
+        private void writeLong(long value) {
+            ensure(8);
+            for(int i = 56; i >= 0; i -= 8) {
+                data[size++] = (byte) (value >>> i);
+            }
+        }
+        
+        private byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/* 
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2016 Tellerva, Marc Lawrence
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.scarlet.undertailor.util;
+
+import me.scarlet.undertailor.Undertailor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A thread writing store files off the main thread.
+ * 
+ * <p>Each store is a snapshot file along with a journal of the
+ * changes made since the snapshot. Journal records are appended
+ * as they are queued, everything queued at once being written
+ * before the journals touched are synced to the disk a single time,
+ * so frequent saves cost an append each rather than a rewrite of
+ * the store.</p>
+ * 
+ * <p>Snapshots are written next to their target first, synced and
+ * then moved over it, the journal only being deleted once the move
+ * went through. A crash before the move leaves the old snapshot and
+ * journal; one after it may leave the new snapshot next to the old
+ * journal, whose records are then skipped on load for belonging to
+ * another generation (see {@link StoreCodec}). Journal records cut
+ * short are skipped as well.</p>
+ * 
+ * <p>Once a write to a store fails, its journal can no longer be
+ * trusted to be read back whole. Further records for it are dropped
+ * and {@link #isBroken(File)} reports it until a snapshot of the
+ * store is written successfully.</p>
+ */
+public class StoreWriter extends Thread {
+    
+    public static final String TEMP_FILE_EXT = ".tmp";
+    
+    private static final int OP_APPEND = 0;
+    private static final int OP_SNAPSHOT = 1;
+    private static final int OP_CLEAR = 2;
+    
+    private static class Operation {
+        
+        private int type;
+        private File snapshot;
+        private File journal;
+        private byte[] data;
+    }
+    
+    private final Object lock;
+    private List<Operation> queue;
+    private List<Operation> writing;
+    private Set<File> broken;
+    private boolean running;
+    
+    public StoreWriter() {
+        this.setName("Tailor Store Thread");
+        this.setDaemon(true);
+        this.lock = new Object();
+        this.queue = new ArrayList<>();
+        this.writing = null;
+        this.broken = new HashSet<>();
+        this.running = true;
+    }
+    
+    /**
+     * Queues the provided journal record to be appended to the
+     * provided journal.
+     */
+    public void append(File journal, byte[] record) {
+        Operation op = new Operation();
+        op.type = OP_APPEND;
+        op.journal = journal;
+        op.data = record;
+        queue(op);
+    }
+    
+    /**
+     * Queues the provided snapshot to replace the provided
+     * snapshot file, emptying the provided journal.
+     */
+    public void snapshot(File snapshot, File journal, byte[] data) {
+        Operation op = new Operation();
+        op.type = OP_SNAPSHOT;
+        op.snapshot = snapshot;
+        op.journal = journal;
+        op.data = data;
+        queue(op);
+    }
+    
+    /**
+     * Queues the provided store to be deleted. The provided empty
+     * snapshot replaces the store first, so that the store reads as
+     * empty even if the deletion is cut short.
+     */
+    public void clear(File snapshot, File journal, byte[] emptySnapshot) {
+        Operation op = new Operation();
+        op.type = OP_CLEAR;
+        op.snapshot = snapshot;
+        op.journal = journal;
+        op.data = emptySnapshot;
+        queue(op);
+    }
+    
+    /**
+     * Returns whether a write to the store of the provided journal
+     * failed since its last snapshot, in which case the next save of
+     * the store has to be written as a snapshot.
+     */
+    public boolean isBroken(File journal) {
+        synchronized(lock) {
+            return broken.contains(journal);
+        }
+    }
+    
+    /**
+     * Returns whether writes to the store of the provided journal
+     * are queued or being written, in which case the store's files
+     * do not hold its last save yet.
+     */
+    public boolean isPending(File journal) {
+        synchronized(lock) {
+            return contains(queue, journal) || (writing != null && contains(writing, journal));
+        }
+    }
+    
+    /**
+     * Blocks until every queued write has reached the disk.
+     */
+    public void flush() {
+        synchronized(lock) {
+            while((!queue.isEmpty() || writing != null) && this.isAlive()) {
+                try {
+                    lock.wait(100);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stops this {@link StoreWriter} once every queued write has
+     * reached the disk.
+     */
+    public void kill() {
+        this.flush();
+        synchronized(lock) {
+            this.running = false;
+            lock.notifyAll();
+        }
+    }
+    
+    @Override
+    public void run() {
+        while(true) {
+            List<Operation> batch;
+            synchronized(lock) {
+                while(running && queue.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch(InterruptedException ignored) {}
+                }
+                
+                if(queue.isEmpty()) {
+                    return;
+                }
+                
+                batch = queue;
+                this.writing = batch;
+                this.queue = new ArrayList<>();
+            }
+            
+            Map<File, FileOutputStream> journals = new HashMap<>();
+            Set<File> created = new HashSet<>();
+            for(Operation op : batch) {
+                try {
+                    switch(op.type) {
+                        case OP_APPEND:
+                            if(isBroken(op.journal)) {
+                                break; // would only follow a torn record
+                            }
+                            
+                            FileOutputStream out = journals.get(op.journal);
+                            if(out == null) {
+                                if(!op.journal.exists()) {
+                                    created.add(op.journal);
+                                }
+                                
+                                journals.put(op.journal, out = new FileOutputStream(op.journal, true));
+                            }
+                            
+                            out.write(op.data);
+                            break;
+                        case OP_SNAPSHOT:
+                            close(journals.remove(op.journal), false);
+                            writeAtomically(op.snapshot, op.data);
+                            Files.deleteIfExists(op.journal.toPath());
+                            setBroken(op.journal, false);
+                            break;
+                        case OP_CLEAR:
+                            close(journals.remove(op.journal), false);
+                            writeAtomically(op.snapshot, op.data);
+                            Files.deleteIfExists(op.journal.toPath());
+                            Files.deleteIfExists(op.snapshot.toPath());
+                            setBroken(op.journal, false);
+                            break;
+                    }
+                } catch(Exception e) {
+                    setBroken(op.journal, true);
+                    if(op.type == OP_APPEND) {
+                        try {
+                            close(journals.remove(op.journal), false);
+                        } catch(IOException ignored) {}
+                    }
+                    
+                    File file = op.type == OP_SNAPSHOT ? op.snapshot : op.journal;
+                    Undertailor.instance.warn("store", "could not write store file " + file.getName() + ": " + LuaUtil.formatJavaException(e));
+                }
+            }
+            
+            // one sync per journal for the whole batch
+            for(Map.Entry<File, FileOutputStream> entry : journals.entrySet()) {
+                try {
+                    close(entry.getValue(), true);
+                } catch(IOException e) {
+                    setBroken(entry.getKey(), true);
+                    Undertailor.instance.warn("store", "could not write store file " + entry.getKey().getName() + ": " + LuaUtil.formatJavaException(e));
+                }
+            }
+            
+            // journals created by this batch only survive a crash once their directory entry does
+            for(File journal : created) {
+                syncDirectory(journal.getAbsoluteFile().getParentFile());
+            }
+            
+            synchronized(lock) {
+                this.writing = null;
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    private void setBroken(File journal, boolean flag) {
+        synchronized(lock) {
+            if(flag) {
+                broken.add(journal);
+            } else {
+                broken.remove(journal);
+            }
+        }
+    }
+    
+    private static boolean contains(List<Operation> operations, File journal) {
+        for(Operation op : operations) {
+            if(op.journal.equals(journal)) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private void queue(Operation op) {
+        synchronized(lock) {
+            if(op.type != OP_APPEND) { // supersedes anything queued for the store before it
+                Iterator<Operation> iterator = queue.iterator();
+                while(iterator.hasNext()) {
+                    if(iterator.next().journal.equals(op.journal)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            
+            queue.add(op);
+            lock.notifyAll();
+        }
+    }
+    
+    private static void close(FileOutputStream out, boolean sync) throws IOException {
+        if(out != null) {
+            try {
+                if(sync) {
+                    out.getFD().sync();
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+    
+    private static void writeAtomically(File file, byte[] data) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        
+        File temp = new File(parent, file.getName() + TEMP_FILE_EXT);
+        try(FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        
+        // make the rename itself durable
+        syncDirectory(parent);
+    }
+    
+    /**
+     * Syncs the entries of the provided directory to the disk, where
+     * the platform allows syncing a directory.
+     */
+    private static void syncDirectory(File directory) {
+        if(directory != null) {
+            try(FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch(IOException ignored) {}
+        }
+    }
+}
@@ -39,6 +39,16 @@ public class AnimationSetWrapper extends DisposableWrapper<AnimationSet> {
         this.node = node;
     }
     
+    /**
+     * Replaces the configuration used when building this wrapper's animation
+     * set. Takes effect on the next reload.
+     * 
+     * @param node the new animation set configuration
+     */
+    public void setConfig(ConfigurationNode node) {
+        this.node = node;
+    }
+    
     @Override
     public AnimationSet newReference() {
         return AnimationSet.fromConfig(name, node);
@@ -27,8 +27,10 @@ package me.scarlet.undertailor.wrappers;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.TimeUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
@@ -41,6 +43,22 @@ public abstract class DisposableWrapper<T extends Disposable> {
                 || value instanceof LuaMusic;
     }*/
     
+    /**
+     * Implemented by objects referring to a wrapper that need to be told when
+     * the wrapper's reference has been reloaded, usually to drop anything they
+     * cached from the previous reference.
+     */
+    public static interface ReloadListener {
+        
+        /**
+         * Called after the reference of the provided wrapper has been
+         * reloaded.
+         * 
+         * @param wrapper the reloaded wrapper
+         */
+        public void onReload(DisposableWrapper<?> wrapper);
+    }
+    
     private static Map<Class<? extends DisposableWrapper<?>>, Set<DisposableWrapper<?>>> instances;
     public static final long DEFAULT_LIFETIME = 10000; // 10s
     
@@ -168,6 +186,48 @@ public abstract class DisposableWrapper<T extends Disposable> {
         return false;
     }
     
+    /**
+     * Disposes of the current reference regardless of its referrers, so that
+     * it is rebuilt from the wrapper's source data.
+     * 
+     * <p>Wrappers whose references were referring to this wrapper, such as a
+     * room map using a tilemap, are reloaded as well, as they were built out
+     * of the previous reference. Referrers implementing
+     * {@link ReloadListener} are notified once done. A wrapper that was in use
+     * has its reference rebuilt immediately; any other is rebuilt on its next
+     * access.</p>
+     */
+    public final void reload() {
+        List<Object> dependents;
+        synchronized(this) {
+            dependents = new ArrayList<>(referrers.keySet());
+            if(!this.isDisposed()) {
+                disposable.dispose();
+                disposable = null;
+            }
+            
+            this.lastAccess = -1;
+        }
+        
+        for(Set<DisposableWrapper<?>> wrappers : instances.values()) {
+            for(DisposableWrapper<?> wrapper : new ArrayList<>(wrappers)) {
+                if(wrapper != this && !wrapper.isDisposed() && dependents.contains(wrapper.getRawReference())) {
+                    wrapper.reload();
+                }
+            }
+        }
+        
+        if(this.isAlwaysAlive() || this.hasReferrers()) {
+            this.getReference();
+        }
+        
+        for(Object dependent : dependents) {
+            if(dependent instanceof ReloadListener) {
+                ((ReloadListener) dependent).onReload(this);
+            }
+        }
+    }
+    
     public long getMaximumLifetime() {
         return DEFAULT_LIFETIME;
     }
@@ -38,6 +38,16 @@ public class RoomDataWrapper extends DisposableWrapper<RoomMap> {
         this.setAlwaysAlive(true);
     }
     
+    /**
+     * Replaces the map data used when building this wrapper's room map. Takes
+     * effect on the next reload.
+     * 
+     * @param mapData the new map data
+     */
+    public void setMapData(ConfigurationNode mapData) {
+        this.mapData = mapData;
+    }
+    
     @Override
     public RoomMap newReference() {
         return RoomMap.fromConfig(mapData);
@@ -24,6 +24,7 @@
 
 package me.scarlet.undertailor.wrappers;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import me.scarlet.undertailor.Undertailor;
 import me.scarlet.undertailor.exception.TextureTilingException;
@@ -32,6 +33,7 @@ import me.scarlet.undertailor.manager.SpriteSheetManager;
 import me.scarlet.undertailor.util.LuaUtil;
 import ninja.leaping.configurate.ConfigurationNode;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 
 public class SpriteSheetWrapper extends DisposableWrapper<SpriteSheet> {
@@ -39,20 +41,33 @@ public class SpriteSheetWrapper extends DisposableWrapper<SpriteSheet> {
     public static final long MAX_LIFETIME = 60000; // 1 minute
     
     private String name;
-    private Texture texture;
+    private File texture;
     private ConfigurationNode config;
-    public SpriteSheetWrapper(String name, Texture texture, ConfigurationNode config) {
+    public SpriteSheetWrapper(String name, File texture, ConfigurationNode config) {
         super(null);
         this.name = name;
         this.config = config;
         this.texture = texture;
     }
+    
+    /**
+     * Replaces the sheet definition used when building this wrapper's
+     * spritesheet. Takes effect on the next reload.
+     * 
+     * @param config the new sheet definition
+     */
+    public void setConfig(ConfigurationNode config) {
+        this.config = config;
+    }
 
     @Override
     public SpriteSheet newReference() {
+        // spritesheets dispose of their texture, so each one gets a fresh texture
+        Texture texture = new Texture(Gdx.files.absolute(this.texture.getAbsolutePath()));
         try {
             return SpriteSheet.fromConfig(name, texture, config);
         } catch(FileNotFoundException | TextureTilingException e) {
+            texture.dispose();
             Undertailor.instance.error(SpriteSheetManager.MANAGER_TAG, LuaUtil.formatJavaException(e), e);
             return null;
         }
@@ -21,9 +21,11 @@ public class DesktopLauncher extends Application {
     static class TailorThread extends Thread {
         
         private File assetDir;
+        private boolean dev;
         
-        public TailorThread(File assetDir) {
+        public TailorThread(File assetDir, boolean dev) {
             this.assetDir = assetDir;
+            this.dev = dev;
         }
         
         @Override
@@ -36,7 +38,7 @@ public class DesktopLauncher extends Application {
             config.vSyncEnabled = true;
             config.addIcon("assets/defaultIcon_small.png", Files.FileType.Classpath);
             config.addIcon("assets/defaultIcon.png", Files.FileType.Classpath);
-            new LwjglApplication(new Undertailor(config, assetDir), config);
+            new LwjglApplication(new Undertailor(config, assetDir, dev), config);
         }
     }
     
@@ -55,9 +57,11 @@ public class DesktopLauncher extends Application {
     
     public static void main (String[] args) {
         File assetDir = null;
+        boolean dev = false;
         
         if(args.length > 0) {
             if(args[0].equalsIgnoreCase("-dev")) {
+                dev = true;
                 assetDir = new File(System.getProperty("user.dir"));
                 System.out.println("setting asset directory to work directory");
             } else {
@@ -85,7 +89,7 @@ public class DesktopLauncher extends Application {
         }
         
         initRuntime();
-        new TailorThread(assetDir).start();
+        new TailorThread(assetDir, dev).start();
         Application.launch(args);
     }
 